@@ -110,8 +110,12 @@ public class DatabaseApp extends Application {
     }
 
     private void showTable(String tableName) {
-        Table table = dbManager.getTable(tableName);
-        if (table == null) {
+        List<String> columnNames;
+        List<Map<String, Object>> rows;
+        try {
+            columnNames = dbManager.read(tableName, Table::getColumnNames);
+            rows = dbManager.read(tableName, table -> table.getRows(dbManager.currentSnapshot()));
+        } catch (Exception e) {
             showError("Table not found: " + tableName);
             return;
         }
@@ -120,17 +124,17 @@ public class DatabaseApp extends Application {
         tableView.getItems().clear();
 
 
-        for (String column : table.getColumns().keySet()) {
+        for (String column : columnNames) {
             TableColumn<ObservableList<Object>, Object> col = new TableColumn<>(column);
-            int colIndex = table.getColumns().keySet().stream().toList().indexOf(column);
+            int colIndex = columnNames.indexOf(column);
             col.setCellValueFactory(param -> new javafx.beans.property.SimpleObjectProperty<>(param.getValue().get(colIndex)));
             tableView.getColumns().add(col);
         }
 
 
-        for (Map<String, Object> row : table.getRows()) {
+        for (Map<String, Object> row : rows) {
             ObservableList<Object> rowData = FXCollections.observableArrayList();
-            for (String colName : table.getColumns().keySet()) {
+            for (String colName : columnNames) {
                 rowData.add(row.getOrDefault(colName, null));
             }
             tableView.getItems().add(rowData);
@@ -144,13 +148,14 @@ public class DatabaseApp extends Application {
 
 
     private void showDropColumnDialog(String tableName) {
-        Table table = dbManager.getTable(tableName);
-        if (table == null) {
+        List<String> columnNames;
+        try {
+            columnNames = dbManager.read(tableName, Table::getColumnNames);
+        } catch (Exception e) {
             showError("Таблица не найдена.");
             return;
         }
 
-        List<String> columnNames = table.getColumnNames();
         if (columnNames.isEmpty()) {
             showError("В таблице нет столбцов для удаления.");
             return;
@@ -185,9 +190,15 @@ public class DatabaseApp extends Application {
 
         Optional<String> result = dialog.showAndWait();
         result.ifPresent(columnName -> {
-            table.dropColumn(columnName);
-
-            dbManager.saveTable(tableName, table);
+            try {
+                dbManager.write(tableName, table -> {
+                    dbManager.dropColumn(table, columnName);
+                    return null;
+                });
+                dbManager.commit();
+            } catch (Exception e) {
+                showError(e.getMessage());
+            }
             showTable(tableName);
         });
     }
@@ -230,9 +241,15 @@ public class DatabaseApp extends Application {
                 boolean isNotNull = notNullCheck.isSelected();
 
                 if (!columnName.isEmpty()) {
-                    Table table = dbManager.getTable(tableName);
-                    table.addNewColumn(columnName, columnType, isUnique, isNotNull);
-                    dbManager.saveTable(tableName, table);
+                    try {
+                        dbManager.write(tableName, table -> {
+                            dbManager.addColumn(table, columnName, columnType, isUnique, isNotNull);
+                            return null;
+                        });
+                        dbManager.commit();
+                    } catch (Exception e) {
+                        showError(e.getMessage());
+                    }
                     showTable(tableName);
                 } else {
                     showError("Имя столбца не может быть пустым!");
@@ -248,6 +265,12 @@ public class DatabaseApp extends Application {
 
 
 
+    @Override
+    public void stop() {
+        dbManager.closeSession(parser.getSession());
+        dbManager.close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
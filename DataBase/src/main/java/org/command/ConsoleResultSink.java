@@ -0,0 +1,46 @@
+package org.command;
+
+import java.util.List;
+
+/** Печатает результат таблицей в System.out. */
+public class ConsoleResultSink implements ResultSink {
+    private List<String> columns;
+    private int rows;
+
+    @Override
+    public void columns(List<String> names) {
+        columns = names;
+        rows = 0;
+    }
+
+    @Override
+    public void row(List<Object> values) {
+        if (rows++ == 0) {
+            System.out.println("Результаты запроса:");
+            System.out.println("────────────────────────────────────────────────────");
+            for (String colName : columns) {
+                System.out.print(colName + "\t");
+            }
+            System.out.println("\n────────────────────────────────────────────────────");
+        }
+
+        for (Object value : values) {
+            System.out.print((value == null ? "NULL" : value) + "\t");
+        }
+        System.out.println();
+    }
+
+    @Override
+    public void end() {
+        if (rows == 0) {
+            System.out.println("Запрос не вернул результатов.");
+        } else {
+            System.out.println("────────────────────────────────────────────────────");
+        }
+    }
+
+    @Override
+    public void message(String text) {
+        System.out.println(text);
+    }
+}
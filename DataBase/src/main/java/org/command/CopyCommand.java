@@ -0,0 +1,24 @@
+package org.command;
+
+import org.app.LoggerManager;
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.parser.Statement;
+
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+public class CopyCommand implements SQLCommand {
+    private static final Logger logger = LoggerManager.getLogger(CopyCommand.class);
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Copy copy = (Statement.Copy) statement;
+
+        long loaded = dbManager.copy(copy.table(), Paths.get(copy.path()), copy.format(), copy.header());
+        dbManager.commit();
+
+        Session.currentSink().message("Загружено " + loaded + " строк в таблицу " + copy.table());
+        logger.info("Загружено " + loaded + " строк из " + copy.path() + " в таблицу " + copy.table());
+    }
+}
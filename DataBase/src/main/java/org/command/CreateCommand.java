@@ -2,37 +2,22 @@ package org.command;
 
 import org.app.LoggerManager;
 import org.database.DatabaseManager;
-import org.model.Column;
-import org.parser.SQLParser;
+import org.parser.Statement;
 
-import java.util.List;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class CreateCommand implements SQLCommand {
     private static final Logger logger = LoggerManager.getLogger(CreateCommand.class);
-    private final Pattern pattern = Pattern.compile("CREATE TABLE (\\w+) \\((.*)\\);", Pattern.DOTALL);
 
     @Override
-    public boolean matches(String command) {
-        return pattern.matcher(command).matches();
-    }
-
-    @Override
-    public void execute(String command, DatabaseManager dbManager) throws Exception {
-        Matcher matcher = pattern.matcher(command);
-
-        matcher.matches();
-
-        String tableName = matcher.group(1);
-        String columnsStr = matcher.group(2);
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.CreateTable create = (Statement.CreateTable) statement;
 
+        String tableName = create.table();
 
-        List<Column> columns = SQLParser.parseColumns(columnsStr);
-        dbManager.createTable(tableName, columns);
+        dbManager.createTable(tableName, create.columns());
 
-        dbManager.saveTable(tableName, dbManager.getTable(tableName));
+        dbManager.commit();
 
         logger.info("Создана таблица " + tableName);
     }
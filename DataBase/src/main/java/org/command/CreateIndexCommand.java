@@ -0,0 +1,28 @@
+package org.command;
+
+import org.app.LoggerManager;
+import org.database.DatabaseManager;
+import org.parser.Statement;
+
+import java.util.logging.Logger;
+
+public class CreateIndexCommand implements SQLCommand {
+    private static final Logger logger = LoggerManager.getLogger(CreateIndexCommand.class);
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.CreateIndex create = (Statement.CreateIndex) statement;
+
+        String indexName = create.name();
+        String tableName = create.table();
+        String columnName = create.column();
+
+        dbManager.write(tableName, table -> {
+            dbManager.createIndex(table, indexName, columnName, create.type());
+            return null;
+        });
+        dbManager.commit();
+
+        logger.info("Создан индекс " + indexName + " для " + tableName + "(" + columnName + ")");
+    }
+}
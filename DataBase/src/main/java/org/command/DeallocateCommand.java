@@ -0,0 +1,15 @@
+package org.command;
+
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.parser.Statement;
+
+public class DeallocateCommand implements SQLCommand {
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Deallocate deallocate = (Statement.Deallocate) statement;
+
+        Session.current().deallocate(deallocate.name());
+    }
+}
@@ -1,34 +1,21 @@
 package org.command;
 
 import org.database.DatabaseManager;
-import org.model.Table;
-import org.parser.SQLParser;
-
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import org.parser.ConditionBinder;
+import org.parser.Statement;
+import org.planner.Condition;
 
 public class DeleteCommand implements SQLCommand {
-    private final Pattern pattern = Pattern.compile("DELETE FROM (\\w+) WHERE (.+);", Pattern.DOTALL);
-
-    @Override
-    public boolean matches(String command) {
-        return pattern.matcher(command).matches();
-    }
 
     @Override
-    public void execute(String command, DatabaseManager dbManager) throws Exception {
-        Matcher matcher = pattern.matcher(command);
-
-        matcher.matches();
-
-        String tableName = matcher.group(1);
-        String conditionStr = matcher.group(2);
-
-        Table table = dbManager.getTable(tableName);
-
-        Map<String, Object> conditions = SQLParser.parseConditions(conditionStr, table);
-        table.deleteRows(conditions);
-        dbManager.saveTable(tableName, table);
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Delete delete = (Statement.Delete) statement;
+
+        dbManager.write(delete.table(), table -> {
+            Condition where = ConditionBinder.bind(delete.where(), table);
+            dbManager.deleteRows(table, where);
+            return null;
+        });
+        dbManager.commit();
     }
 }
@@ -0,0 +1,17 @@
+package org.command;
+
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.parser.SQLCommandFactory;
+import org.parser.Statement;
+
+public class ExecuteCommand implements SQLCommand {
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Execute execute = (Statement.Execute) statement;
+
+        Statement bound = Session.current().getPrepared(execute.name()).bind(execute.values());
+        SQLCommandFactory.getCommand(bound.command()).execute(bound, dbManager);
+    }
+}
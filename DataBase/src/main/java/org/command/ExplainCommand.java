@@ -0,0 +1,69 @@
+package org.command;
+
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.model.Table;
+import org.parser.JoinBinder;
+import org.parser.Statement;
+import org.planner.AccessPath;
+import org.planner.JoinPlan;
+import org.planner.QueryPlan;
+import org.storage.ColumnarStorage;
+import org.storage.ZoneMap;
+
+import java.util.BitSet;
+
+public class ExplainCommand implements SQLCommand {
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Select select = ((Statement.Explain) statement).select();
+        if (select.join() != null) {
+            explainJoin(select, dbManager);
+            return;
+        }
+
+        QueryPlan plan = dbManager.read(select.table(), table -> SelectCommand.plan(select, table));
+        ResultSink sink = Session.currentSink();
+        for (String line : plan.explain()) {
+            sink.message(line);
+        }
+        if (plan.getAccessPath() == AccessPath.FULL_SCAN) {
+            String zones = dbManager.read(select.table(), table -> describeZones(table, plan));
+            if (zones != null) {
+                sink.message(zones);
+            }
+        }
+        if (select.isAggregate()) {
+            sink.message("  Агрегация: хеш-таблица групп"
+                    + (select.groupBy().isEmpty() ? "" : " по " + String.join(", ", select.groupBy()))
+                    + (plan.isParallel() ? ", частичные агрегаты по частям таблицы сливаются" : ""));
+            if (select.sortColumn() != null) {
+                sink.message("  Сортировка групп: " + select.sortColumn() + (select.descending() ? " по убыванию" : ""));
+            }
+        }
+    }
+
+    /** Сколько зон полный просмотр пропустит по статистике min/max; null — статистики зон нет. */
+    private static String describeZones(Table table, QueryPlan plan) {
+        if (!(table.getStorage() instanceof ColumnarStorage columnar) || plan.getFilters().isEmpty()) {
+            return null;
+        }
+        BitSet skipped = table.skippedZones(plan);
+        return "  Зоны по " + ZoneMap.ZONE_ROWS + " строк: пропускается "
+                + (skipped == null ? 0 : skipped.cardinality()) + " из " + columnar.getZoneMap().zoneCount();
+    }
+
+    private static void explainJoin(Statement.Select select, DatabaseManager dbManager) throws Exception {
+        JoinPlan plan = SelectCommand.readJoined(select, dbManager,
+                (left, right) -> new JoinBinder(left, right).plan(select));
+        ResultSink sink = Session.currentSink();
+        for (String line : plan.explain()) {
+            sink.message(line);
+        }
+        if (select.sortColumn() != null) {
+            sink.message("  Сортировка результата: " + select.sortColumn() + (select.descending() ? " по убыванию" : "")
+                    + " (в памяти)");
+        }
+    }
+}
@@ -2,51 +2,32 @@ package org.command;
 
 import org.app.LoggerManager;
 import org.database.DatabaseManager;
-import org.model.Table;
+import org.parser.Literal;
 import org.parser.SQLParser;
+import org.parser.Statement;
 
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class InsertCommand implements SQLCommand {
     private static final Logger logger = LoggerManager.getLogger(InsertCommand.class);
-    private final Pattern pattern = Pattern.compile("INSERT INTO (\\w+)\\s*\\((.*)\\);", Pattern.DOTALL);
 
     @Override
-    public boolean matches(String command) {
-        return pattern.matcher(command).matches();
-    }
-
-    @Override
-    public void execute(String command, DatabaseManager dbManager) throws Exception {
-        Matcher matcher = pattern.matcher(command);
-
-        matcher.matches();
-
-        String tableName = matcher.group(1);
-        String valuesBlock = matcher.group(2);
-
-        Table table = dbManager.getTable(tableName);
-
-        boolean hasBrackets = valuesBlock.trim().startsWith("(");
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Insert insert = (Statement.Insert) statement;
 
-        if (hasBrackets) {
-            Pattern rowPattern = Pattern.compile("\\((.*?)\\)");
-            Matcher rowMatcher = rowPattern.matcher(valuesBlock);
+        String tableName = insert.table();
 
-            while (rowMatcher.find()) {
-                String rowValues = rowMatcher.group(1);
-                Map<String, Object> row = SQLParser.parseRow(table, rowValues);
-                table.insertRow(row);
+        dbManager.write(tableName, table -> {
+            for (List<Literal> values : insert.rows()) {
+                Map<String, Object> row = SQLParser.parseRow(table, values);
+                dbManager.insertRow(table, row);
             }
-        } else {
-            Map<String, Object> row = SQLParser.parseRow(table, valuesBlock);
-            table.insertRow(row);
-        }
-        dbManager.saveTable(table.getName(), table);
-        logger.info("Данные добавлены в таблицу " + table.getName());
+            return null;
+        });
+        dbManager.commit();
+        logger.info("Данные добавлены в таблицу " + tableName);
     }
 
 }
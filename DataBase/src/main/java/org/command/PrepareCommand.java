@@ -0,0 +1,20 @@
+package org.command;
+
+import org.app.LoggerManager;
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.parser.Statement;
+
+import java.util.logging.Logger;
+
+public class PrepareCommand implements SQLCommand {
+    private static final Logger logger = LoggerManager.getLogger(PrepareCommand.class);
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Prepare prepare = (Statement.Prepare) statement;
+
+        Session.current().prepare(prepare.name(), prepare.prepared());
+        logger.info("Подготовлена команда " + prepare.name());
+    }
+}
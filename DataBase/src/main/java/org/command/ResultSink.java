@@ -0,0 +1,19 @@
+package org.command;
+
+import java.util.List;
+
+/** Куда команда отдаёт результат: в консоль приложения или клиенту сервера. */
+public interface ResultSink {
+
+    /** Начало результата запроса: имена столбцов. */
+    void columns(List<String> names);
+
+    /** Очередная строка результата, значения в порядке столбцов. */
+    void row(List<Object> values);
+
+    /** Конец результата запроса. */
+    void end();
+
+    /** Текстовое сообщение (например, строка плана EXPLAIN). */
+    void message(String text);
+}
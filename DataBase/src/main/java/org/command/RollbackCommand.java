@@ -0,0 +1,17 @@
+package org.command;
+
+import org.app.LoggerManager;
+import org.database.DatabaseManager;
+import org.parser.Statement;
+
+import java.util.logging.Logger;
+
+public class RollbackCommand implements SQLCommand {
+    private static final Logger logger = LoggerManager.getLogger(RollbackCommand.class);
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        dbManager.rollbackTransaction();
+        logger.info("Транзакция отменена");
+    }
+}
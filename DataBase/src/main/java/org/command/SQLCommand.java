@@ -1,8 +1,8 @@
 package org.command;
 
 import org.database.DatabaseManager;
+import org.parser.Statement;
 
 public interface SQLCommand {
-    boolean matches(String command);
-    void execute(String command, DatabaseManager dbManager) throws Exception;
+    void execute(Statement statement, DatabaseManager dbManager) throws Exception;
 }
@@ -1,86 +1,165 @@
 package org.command;
 
 import org.database.DatabaseManager;
+import org.database.Session;
 import org.model.Table;
-import org.parser.SQLParser;
+import org.model.TableCursor;
+import org.parser.ConditionBinder;
+import org.parser.JoinBinder;
+import org.parser.Statement;
+import org.planner.Aggregate;
+import org.planner.Condition;
+import org.planner.JoinPlan;
+import org.planner.QueryPlan;
+import org.planner.QueryPlanner;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class SelectCommand implements  SQLCommand {
-    private final Pattern pattern = Pattern.compile("SELECT (.+) FROM (\\w+)(?: WHERE (.+?))?(?: SORT (\\w+))?;", Pattern.DOTALL);
 
     @Override
-    public boolean matches(String command) {
-        return pattern.matcher(command).matches();
-    }
-
-    @Override
-    public void execute(String command, DatabaseManager dbManager) throws Exception {
-        Matcher matcher = pattern.matcher(command);
-
-        matcher.matches();
-
-        String fields = matcher.group(1);
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Select select = (Statement.Select) statement;
+        if (select.isAggregate()) {
+            aggregate(select, dbManager);
+            return;
+        }
+        if (select.join() != null) {
+            join(select, dbManager);
+            return;
+        }
 
+        try (TableCursor cursor = dbManager.read(select.table(), table -> {
+            List<String> colNames = getStringList(select.columns(), table);
+            return dbManager.openCursor(table, plan(select, table), colNames, select.offset(), select.limit());
+        })) {
+            ResultSink sink = Session.currentSink();
+            sink.columns(cursor.getColumns());
+            while (cursor.hasNext()) {
+                sink.row(cursor.next());
+            }
+            sink.end();
+        }
+    }
 
-        String tableName = matcher.group(2);
-        String whereClause = matcher.group(3);
-        String sortColumn = matcher.group(4);
+    /**
+     * SELECT с агрегатами: группы считаются под блокировкой на чтение, затем сортируются по столбцу
+     * результата и обрезаются LIMIT/OFFSET. Групп обычно немного, поэтому они собираются в память целиком.
+     */
+    private static void aggregate(Statement.Select select, DatabaseManager dbManager) throws Exception {
+        List<List<Object>> rows = dbManager.read(select.table(), table ->
+                dbManager.aggregate(table, plan(select, table), select.groupBy(), select.aggregates()));
+        List<String> columns = select.aggregates().stream().map(Aggregate::toString).toList();
+
+        int sortIndex = -1;
+        if (select.sortColumn() != null) {
+            sortIndex = columns.indexOf(select.sortColumn());
+            if (sortIndex == -1) {
+                throw new IllegalArgumentException("В результате запроса нет столбца " + select.sortColumn());
+            }
+        }
+        send(select, columns, rows, sortIndex);
+    }
 
-        Table table = dbManager.getTable(tableName);
+    /**
+     * SELECT с JOIN: строки соединения собираются в память под блокировками на чтение обеих таблиц,
+     * затем сортируются и обрезаются LIMIT/OFFSET. Без SORT собирается не больше OFFSET + LIMIT строк.
+     * Значение столбца SORT добавляется в конец каждой строки и не выводится.
+     */
+    private static void join(Statement.Select select, DatabaseManager dbManager) throws Exception {
+        List<String> columns = new ArrayList<>();
+        List<List<Object>> rows = readJoined(select, dbManager, (left, right) -> {
+            JoinBinder binder = new JoinBinder(left, right);
+            List<JoinPlan.ColumnRef> refs = new ArrayList<>();
+            if (select.columns().isEmpty()) {
+                refs.addAll(binder.allColumns());
+                refs.forEach(ref -> columns.add(binder.qualifiedName(ref)));
+            } else {
+                for (String column : select.columns()) {
+                    refs.add(binder.column(column));
+                    columns.add(column);
+                }
+            }
+            if (select.sortColumn() != null) {
+                refs.add(binder.column(select.sortColumn()));
+            }
+            long maxRows = select.sortColumn() == null && select.limit() >= 0
+                    ? select.offset() + select.limit() : Long.MAX_VALUE;
+            return dbManager.join(binder.plan(select), left, right, refs, maxRows);
+        });
+        send(select, columns, rows, select.sortColumn() == null ? -1 : columns.size());
+    }
 
-        List<Map<String, Object>> result;
-        if (whereClause != null) {
-            Map<String, Object> conditions = SQLParser.parseConditions(whereClause, table);
-            result = table.selectRows(conditions);
-        } else {
-            result = new ArrayList<>(table.getRows());
+    /** Сортирует строки по столбцу sortIndex (-1 — без сортировки), применяет OFFSET/LIMIT и выводит первые столбцы. */
+    private static void send(Statement.Select select, List<String> columns, List<List<Object>> rows, int sortIndex) {
+        if (sortIndex != -1) {
+            Comparator<List<Object>> order = (row1, row2) -> compareValues(row1.get(sortIndex), row2.get(sortIndex));
+            rows.sort(select.descending() ? order.reversed() : order);
         }
 
-        List<String> colNames = getStringList(fields, table, tableName);
-
-        if (sortColumn != null) {
-            sortResults(result, sortColumn, table, tableName);
+        int from = (int) Math.min(select.offset(), rows.size());
+        int to = select.limit() < 0 ? rows.size() : (int) Math.min(rows.size(), from + select.limit());
+        ResultSink sink = Session.currentSink();
+        sink.columns(columns);
+        for (List<Object> row : rows.subList(from, to)) {
+            sink.row(row.size() == columns.size() ? row : row.subList(0, columns.size()));
         }
+        sink.end();
+    }
 
-        table.printResults(result, colNames);
+    /**
+     * Выполняет action под блокировками на чтение таблиц FROM и JOIN. Блокировки берутся в порядке имён таблиц,
+     * поэтому соединения A JOIN B и B JOIN A не ждут друг друга.
+     */
+    static <T> T readJoined(Statement.Select select, DatabaseManager dbManager, JoinAction<T> action) throws Exception {
+        String leftName = select.table();
+        String rightName = select.join().table();
+        boolean leftFirst = leftName.compareTo(rightName) < 0;
+        return dbManager.read(leftFirst ? leftName : rightName, first ->
+                dbManager.read(leftFirst ? rightName : leftName, second ->
+                        leftFirst ? action.apply(first, second) : action.apply(second, first)));
     }
 
-    private static List<String> getStringList(String fields, Table table, String tableName) {
-        List<String> colNames;
-        if (fields.equals("*")) {
-            colNames = table.getColumnNames();
-        } else {
-            colNames = new ArrayList<>();
-            String[] columns = fields.split("\\s*,\\s*");
-
-            for (String column : columns) {
-                if (!table.getColumns().containsKey(column)) {
-                    throw new IllegalArgumentException("В таблице " + tableName + " нет поля " + column);
-                }
-                colNames.add(column);
-            }
+    interface JoinAction<T> {
+        T apply(Table left, Table right) throws Exception;
+    }
+
+    /** Пустые значения идут первыми, как в SORT по столбцу таблицы. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object value1, Object value2) {
+        boolean empty1 = value1 == null || "".equals(value1);
+        boolean empty2 = value2 == null || "".equals(value2);
+        if (empty1 || empty2) {
+            return Boolean.compare(!empty1, !empty2);
+        }
+        if (value1 instanceof Comparable && value1.getClass() == value2.getClass()) {
+            return ((Comparable) value1).compareTo(value2);
         }
-        return colNames;
+        return value1.toString().compareTo(value2.toString());
     }
 
-    private static void sortResults(List<Map<String, Object>> result, String sortColumn, Table table, String tableName) {
-        if (!table.getColumns().containsKey(sortColumn)) {
-            throw new IllegalArgumentException("В таблице " + tableName + " нет поля " + sortColumn);
+    static QueryPlan plan(Statement.Select select, Table table) {
+        String sortColumn = select.isAggregate() ? null : select.sortColumn();
+
+        if (sortColumn != null && !table.getColumns().containsKey(sortColumn)) {
+            throw new IllegalArgumentException("В таблице " + table.getName() + " нет поля " + sortColumn);
         }
 
-        result.sort((row1, row2) -> {
-            Object v1 = row1.get(sortColumn);
-            Object v2 = row2.get(sortColumn);
+        Condition where = select.where() != null ? ConditionBinder.bind(select.where(), table) : null;
+        return QueryPlanner.plan(table, where, sortColumn, select.descending(), select.planCache());
+    }
 
-            if (v1 instanceof Comparable && v2 instanceof Comparable) {
-                return ((Comparable) v1).compareTo(v2);
+    private static List<String> getStringList(List<String> fields, Table table) {
+        if (fields.isEmpty()) {
+            return table.getColumnNames();
+        }
+        for (String column : fields) {
+            if (!table.getColumns().containsKey(column)) {
+                throw new IllegalArgumentException("В таблице " + table.getName() + " нет поля " + column);
             }
-            return 0;
-        });
+        }
+        return fields;
     }
 }
@@ -0,0 +1,36 @@
+package org.command;
+
+import org.app.LoggerManager;
+import org.database.DatabaseManager;
+import org.parser.ConditionBinder;
+import org.parser.Literal;
+import org.parser.Statement;
+import org.planner.Condition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+public class UpdateCommand implements SQLCommand {
+    private static final Logger logger = LoggerManager.getLogger(UpdateCommand.class);
+
+    @Override
+    public void execute(Statement statement, DatabaseManager dbManager) throws Exception {
+        Statement.Update update = (Statement.Update) statement;
+
+        String tableName = update.table();
+
+        dbManager.write(tableName, table -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Map.Entry<String, Literal> entry : update.values().entrySet()) {
+                String type = table.getColumn(entry.getKey()).getType();
+                values.put(entry.getKey(), entry.getValue().toValue(type));
+            }
+            Condition where = ConditionBinder.bind(update.where(), table);
+            dbManager.updateRows(table, where, values);
+            return null;
+        });
+        dbManager.commit();
+        logger.info("Данные изменены в таблице " + tableName);
+    }
+}
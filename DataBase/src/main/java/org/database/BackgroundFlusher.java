@@ -0,0 +1,82 @@
+package org.database;
+
+import org.app.LoggerManager;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Фоновый поток записи: выполняет flush по запросу (request) и, если intervalMillis > 0, раз в intervalMillis.
+ * Запросы, пришедшие до начала очередного flush, сливаются в один.
+ */
+class BackgroundFlusher {
+    private static final Logger logger = LoggerManager.getLogger(BackgroundFlusher.class);
+
+    @FunctionalInterface
+    interface Flush {
+        void run() throws IOException;
+    }
+
+    private final long intervalMillis;
+    private final Flush flush;
+    private final Thread thread;
+    private boolean requested;
+    private boolean stopped;
+
+    BackgroundFlusher(long intervalMillis, Flush flush) {
+        this.intervalMillis = intervalMillis;
+        this.flush = flush;
+        this.thread = new Thread(this::loop, "database-flusher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void request() {
+        requested = true;
+        notifyAll();
+    }
+
+    private void loop() {
+        while (true) {
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + intervalMillis;
+                while (!requested && !stopped) {
+                    long delay = intervalMillis > 0 ? deadline - System.currentTimeMillis() : 0;
+                    if (intervalMillis > 0 && delay <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                requested = false;
+            }
+
+            try {
+                flush.run();
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Ошибка фоновой записи изменений: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Останавливает поток, дождавшись окончания начатой записи. */
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
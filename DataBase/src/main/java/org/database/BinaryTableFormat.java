@@ -0,0 +1,700 @@
+package org.database;
+
+import org.index.Index;
+import org.index.IndexType;
+import org.model.Column;
+import org.model.Table;
+import org.storage.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Двоичный формат файла таблицы, версия 4:
+ * <pre>
+ * "JDBT" | версия | имя | lsn | столбцы | индексы | число строк | блок на каждый столбец | зоны
+ * </pre>
+ * Блок столбца — [вид][длина][кодек][данные], сжатые кодеком {@link BlockCodec} данные предваряет их
+ * исходная длина. Данные — массивы int/long, битовые маски NULL и значений, словарь строк с int-кодами,
+ * для массивов — словарь элементов, длины строк и элементы подряд. int хранятся разностями соседних
+ * значений, даты — разностями секунд (varint), boolean — длинами серий, если так выходит короче.
+ * Зоны — размер зоны (0 — статистики нет) и [длина][данные] {@link ZoneMap} на каждый столбец.
+ * Чтение идёт из отображённого в память файла прямо в колонки, без промежуточных строк и Map
+ * на строку таблицы. Файлы версии 1 (массивы — блоком значений), 2 (без зон) и 3 (без сжатия) читаются.
+ */
+public class BinaryTableFormat {
+    static final int MAGIC = 0x4A444254;
+    static final short VERSION = 4;
+
+    private static final byte INT_BLOCK = 1;
+    private static final byte BOOLEAN_BLOCK = 2;
+    private static final byte DATE_BLOCK = 3;
+    private static final byte STRING_BLOCK = 4;
+    private static final byte VALUE_BLOCK = 5;
+    private static final byte ARRAY_BLOCK = 6;
+    private static final byte INT_DELTA_BLOCK = 7;
+    private static final byte DATE_DELTA_BLOCK = 8;
+    private static final byte BOOLEAN_RUN_BLOCK = 9;
+
+    private static final byte EMPTY_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte BOOLEAN_VALUE = 2;
+    private static final byte DATE_VALUE = 3;
+    private static final byte STRING_VALUE = 4;
+    private static final byte LIST_VALUE = 5;
+
+    private final StorageType storageType;
+    private final int parallelRows;
+    private final BlockCodec codec;
+
+    public BinaryTableFormat(StorageType storageType, int parallelRows, BlockCodec codec) {
+        this.storageType = storageType;
+        this.parallelRows = parallelRows;
+        this.codec = codec;
+    }
+
+    public static boolean isBinary(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    public void write(Table table, Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        TableStorage storage = table.getStorage();
+
+        int[] rowIds = new int[storage.size()];
+        int count = 0;
+        for (int rowId = storage.nextRowId(0); rowId != -1; rowId = storage.nextRowId(rowId + 1)) {
+            rowIds[count++] = rowId;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeString(out, table.getName());
+            out.writeLong(table.getLsn());
+
+            out.writeInt(table.getColumns().size());
+            for (Column column : table.getColumns().values()) {
+                writeString(out, column.getName());
+                writeString(out, column.getType());
+                out.writeByte((column.getIsUnique() ? 1 : 0) | (column.getIsNotNull() ? 2 : 0));
+            }
+
+            out.writeInt(table.getIndexes().size());
+            for (Index index : table.getIndexes().values()) {
+                writeString(out, index.getName());
+                writeString(out, index.getColumn());
+                writeString(out, index.getType().name());
+            }
+
+            out.writeInt(rowIds.length);
+            for (Column column : table.getColumns().values()) {
+                writeColumnBlock(out, storage, column, rowIds, codec);
+            }
+
+            ZoneMap zones = storage instanceof ColumnarStorage columnar ? columnar.zonesForRows(rowIds) : null;
+            out.writeInt(zones == null ? 0 : ZoneMap.ZONE_ROWS);
+            if (zones != null) {
+                for (Column column : table.getColumns().values()) {
+                    ByteArrayOutputStream block = new ByteArrayOutputStream();
+                    zones.write(new DataOutputStream(block), column.getName());
+                    out.writeInt(block.size());
+                    block.writeTo(out);
+                }
+            }
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte blockKind(String type) {
+        return switch (type.toLowerCase()) {
+            case "int" -> INT_BLOCK;
+            case "boolean" -> BOOLEAN_BLOCK;
+            case "date" -> DATE_BLOCK;
+            case "string" -> STRING_BLOCK;
+            default -> ArrayColumnVector.elementType(type) != null ? ARRAY_BLOCK : VALUE_BLOCK;
+        };
+    }
+
+    /** Пишет блок столбца [вид][длина][кодек][данные]; сжатие сохраняется, только если блок стал меньше. */
+    static void writeColumnBlock(DataOutputStream out, TableStorage storage, Column column, int[] rowIds,
+                                 BlockCodec codec) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        byte kind = writeColumn(new DataOutputStream(block), storage, column, rowIds);
+        byte[] raw = block.toByteArray();
+        byte[] compressed = codec.id() != BlockCodecs.NONE.id() ? codec.compress(raw) : null;
+
+        out.writeByte(kind);
+        if (compressed != null && compressed.length + Integer.BYTES < raw.length) {
+            out.writeInt(1 + Integer.BYTES + compressed.length);
+            out.writeByte(codec.id());
+            out.writeInt(raw.length);
+            out.write(compressed);
+        } else {
+            out.writeInt(1 + raw.length);
+            out.writeByte(BlockCodecs.NONE.id());
+            out.write(raw);
+        }
+    }
+
+    private static byte writeColumn(DataOutputStream out, TableStorage storage, Column column, int[] rowIds) throws IOException {
+        String name = column.getName();
+        ColumnVector vector = storage instanceof ColumnarStorage columnar ? columnar.getVector(name) : null;
+        byte kind = blockKind(column.getType());
+        BitSet nulls = new BitSet(rowIds.length);
+
+        switch (kind) {
+            case INT_BLOCK -> {
+                int[] values = new int[rowIds.length];
+                for (int i = 0; i < rowIds.length; i++) {
+                    if (vector instanceof IntColumnVector ints) {
+                        if (ints.isNull(rowIds[i])) {
+                            nulls.set(i);
+                        } else {
+                            values[i] = ints.getInt(rowIds[i]);
+                        }
+                    } else if (storage.getValue(rowIds[i], name) instanceof Number number) {
+                        values[i] = number.intValue();
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                writeBitSet(out, nulls);
+                if (deltaBytes(values) < (long) values.length * Integer.BYTES) {
+                    kind = INT_DELTA_BLOCK;
+                    int previous = 0;
+                    for (int value : values) {
+                        writeVarLong(out, zigZag((long) value - previous));
+                        previous = value;
+                    }
+                } else {
+                    for (int value : values) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+            case BOOLEAN_BLOCK -> {
+                BitSet values = new BitSet(rowIds.length);
+                for (int i = 0; i < rowIds.length; i++) {
+                    if (storage.getValue(rowIds[i], name) instanceof Boolean value) {
+                        values.set(i, value);
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                writeBitSet(out, nulls);
+                int runs = 0;
+                long runBytes = 0;
+                for (int from = 0; from < rowIds.length; runs++) {
+                    int to = runs % 2 == 0 ? values.nextSetBit(from) : values.nextClearBit(from);
+                    to = to < 0 || to > rowIds.length ? rowIds.length : to;
+                    runBytes += varLongBytes(to - from);
+                    from = to;
+                }
+                if (runBytes + varLongBytes(runs) < (values.length() + 63) / 64 * 8L + Integer.BYTES) {
+                    // длины серий попеременно false и true, начиная с false (первая может быть нулевой)
+                    kind = BOOLEAN_RUN_BLOCK;
+                    writeVarLong(out, runs);
+                    for (int from = 0, run = 0; run < runs; run++) {
+                        int to = run % 2 == 0 ? values.nextSetBit(from) : values.nextClearBit(from);
+                        to = to < 0 || to > rowIds.length ? rowIds.length : to;
+                        writeVarLong(out, to - from);
+                        from = to;
+                    }
+                } else {
+                    writeBitSet(out, values);
+                }
+            }
+            case DATE_BLOCK -> {
+                long[] seconds = new long[rowIds.length];
+                int[] nanos = new int[rowIds.length];
+                int[] offsets = new int[rowIds.length];
+                for (int i = 0; i < rowIds.length; i++) {
+                    if (vector instanceof DateColumnVector dates) {
+                        if (dates.isNull(rowIds[i])) {
+                            nulls.set(i);
+                            continue;
+                        }
+                        seconds[i] = dates.getEpochSecond(rowIds[i]);
+                        nanos[i] = dates.getNano(rowIds[i]);
+                        offsets[i] = dates.getOffsetSeconds(rowIds[i]);
+                    } else if (storage.getValue(rowIds[i], name) instanceof ZonedDateTime date) {
+                        seconds[i] = date.toEpochSecond();
+                        nanos[i] = date.getNano();
+                        offsets[i] = date.getOffset().getTotalSeconds();
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                writeBitSet(out, nulls);
+                kind = DATE_DELTA_BLOCK;
+                long previous = 0;
+                for (long value : seconds) {
+                    writeVarLong(out, zigZag(value - previous));
+                    previous = value;
+                }
+                for (int value : nanos) {
+                    writeVarLong(out, value);
+                }
+                previous = 0;
+                for (int value : offsets) {
+                    writeVarLong(out, zigZag(value - previous));
+                    previous = value;
+                }
+            }
+            case STRING_BLOCK -> {
+                List<String> dictionary = new ArrayList<>();
+                Map<String, Integer> dictionaryCodes = new HashMap<>();
+                int[] codes = new int[rowIds.length];
+                for (int i = 0; i < rowIds.length; i++) {
+                    Object value = storage.getValue(rowIds[i], name);
+                    if (!(value instanceof String string) || string.isEmpty()) {
+                        codes[i] = -1;
+                        continue;
+                    }
+                    Integer code = dictionaryCodes.get(string);
+                    if (code == null) {
+                        code = dictionary.size();
+                        dictionary.add(string);
+                        dictionaryCodes.put(string, code);
+                    }
+                    codes[i] = code;
+                }
+                out.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(out, value);
+                }
+                for (int code : codes) {
+                    out.writeInt(code);
+                }
+            }
+            case ARRAY_BLOCK -> writeArrays(out, storage, column, vector, rowIds);
+            default -> {
+                for (int rowId : rowIds) {
+                    writeValue(out, storage.getValue(rowId, name));
+                }
+            }
+        }
+        return kind;
+    }
+
+    /**
+     * Словарь элементов (только используемые значения, коды назначаются заново), длины строк
+     * и элементы подряд. Массивы ROW-хранилища сначала упаковываются во временную колонку.
+     */
+    private static void writeArrays(DataOutputStream out, TableStorage storage, Column column, ColumnVector vector,
+                                    int[] rowIds) throws IOException {
+        ArrayColumnVector arrays;
+        int[] ids = rowIds;
+        if (vector instanceof ArrayColumnVector packed) {
+            arrays = packed;
+        } else {
+            arrays = new ArrayColumnVector(ArrayColumnVector.elementType(column.getType()));
+            ids = new int[rowIds.length];
+            for (int i = 0; i < rowIds.length; i++) {
+                arrays.set(i, storage.getValue(rowIds[i], column.getName()));
+                ids[i] = i;
+            }
+        }
+        int[] lengths = new int[ids.length];
+        int[] elements = arrays.packedData(ids, lengths);
+
+        List<Object> dictionary = new ArrayList<>();
+        boolean coded = arrays.getElementType().equals("string") || arrays.getElementType().equals("date");
+        if (coded) {
+            int[] newCodes = new int[arrays.dictionarySize()];
+            Arrays.fill(newCodes, -1);
+            for (int i = 0; i < elements.length; i++) {
+                int code = elements[i];
+                if (newCodes[code] == -1) {
+                    newCodes[code] = dictionary.size();
+                    dictionary.add(arrays.decodeElement(code));
+                }
+                elements[i] = newCodes[code];
+            }
+        }
+
+        out.writeInt(dictionary.size());
+        for (Object value : dictionary) {
+            writeValue(out, value);
+        }
+        for (int length : lengths) {
+            out.writeInt(length);
+        }
+        out.writeInt(elements.length);
+        for (int element : elements) {
+            out.writeInt(element);
+        }
+    }
+
+    /** Размер разностей соседних значений в varint. */
+    private static long deltaBytes(int[] values) {
+        long bytes = 0;
+        int previous = 0;
+        for (int value : values) {
+            bytes += varLongBytes(zigZag((long) value - previous));
+            previous = value;
+        }
+        return bytes;
+    }
+
+    private static long zigZag(long value) {return (value << 1) ^ (value >> 63);}
+
+    private static long unZigZag(long value) {return (value >>> 1) ^ -(value & 1);}
+
+    private static int varLongBytes(long value) {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    /** Беззнаковое число по 7 бит в байте, старший бит — признак продолжения. */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            if (shift > 63) {
+                throw new IllegalArgumentException("слишком длинное число varint");
+            }
+        }
+    }
+
+    static void writeBitSet(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null || "".equals(value)) {
+            out.writeByte(EMPTY_VALUE);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INT_VALUE);
+            out.writeInt(number);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean(bool);
+        } else if (value instanceof ZonedDateTime date) {
+            out.writeByte(DATE_VALUE);
+            out.writeLong(date.toEpochSecond());
+            out.writeInt(date.getNano());
+            out.writeInt(date.getOffset().getTotalSeconds());
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST_VALUE);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString(out, value.toString());
+        }
+    }
+
+    public Table read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Повреждён файл таблицы " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Читает только заголовок файла: имя, LSN и схему таблицы. */
+    public CatalogEntry readCatalogEntry(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(buffer);
+            String name = readString(buffer);
+            long lsn = buffer.getLong();
+            return new CatalogEntry(name, readColumns(buffer), lsn);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Повреждён файл таблицы " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static short checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Файл не является двоичным файлом таблицы");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Неподдерживаемая версия формата таблицы: " + version);
+        }
+        return version;
+    }
+
+    static List<Column> readColumns(ByteBuffer buffer) {
+        int columnCount = buffer.getInt();
+        List<Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String name = readString(buffer);
+            String type = readString(buffer);
+            byte flags = buffer.get();
+            columns.add(new Column(name, type, (flags & 1) != 0, (flags & 2) != 0));
+        }
+        return columns;
+    }
+
+    private Table read(ByteBuffer buffer) throws IOException {
+        short version = checkHeader(buffer);
+
+        Table table = new Table(readString(buffer), storageType);
+        table.setLsn(buffer.getLong());
+
+        for (Column column : readColumns(buffer)) {
+            table.addColumn(column.getName(), column.getType(), column.getIsUnique(), column.getIsNotNull());
+        }
+
+        int indexCount = buffer.getInt();
+        List<String[]> indexes = new ArrayList<>();
+        for (int i = 0; i < indexCount; i++) {
+            indexes.add(new String[]{readString(buffer), readString(buffer), readString(buffer)});
+        }
+
+        int rowCount = buffer.getInt();
+        boolean coded = version >= 4;
+        List<ForkJoinTask<ColumnVector>> blocks = new ArrayList<>();
+        for (Column column : table.getColumns().values()) {
+            byte kind = buffer.get();
+            int length = buffer.getInt();
+            ByteBuffer block = buffer.slice(buffer.position(), length);
+            blocks.add(ForkJoinTask.adapt(() -> readColumnBlock(block, kind, column.getType(), rowCount, coded)));
+            buffer.position(buffer.position() + length);
+        }
+
+        Map<String, ByteBuffer> zoneBlocks = new HashMap<>();
+        int zoneRows = version >= 3 ? buffer.getInt() : 0;
+        if (zoneRows != 0) {
+            for (Column column : table.getColumns().values()) {
+                int length = buffer.getInt();
+                zoneBlocks.put(column.getName(), buffer.slice(buffer.position(), length));
+                buffer.position(buffer.position() + length);
+            }
+        }
+
+        if (rowCount >= parallelRows && blocks.size() > 1) {
+            ForkJoinTask.invokeAll(blocks);
+        } else {
+            for (ForkJoinTask<ColumnVector> block : blocks) {
+                block.invoke();
+            }
+        }
+
+        Map<String, ColumnVector> vectors = new LinkedHashMap<>();
+        int position = 0;
+        for (Column column : table.getColumns().values()) {
+            try {
+                vectors.put(column.getName(), blocks.get(position++).join());
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new IOException("Ошибка чтения столбца " + column.getName() + ": " + cause.getMessage(), cause);
+            }
+        }
+        ZoneMap zones = zoneRows == ZoneMap.ZONE_ROWS && storageType == StorageType.COLUMNAR
+                ? ZoneMap.read(zoneBlocks, vectors, rowCount) : null;
+        table.loadColumns(vectors, rowCount, null, zones);
+
+        for (String[] index : indexes) {
+            table.createIndex(index[0], index[1], IndexType.valueOf(index[2]));
+        }
+        return table;
+    }
+
+    /** Читает блок столбца после [вид][длина]; coded — перед данными есть байт кодека (версия 4). */
+    static ColumnVector readColumnBlock(ByteBuffer block, byte kind, String type, int rowCount, boolean coded)
+            throws IOException {
+        if (coded) {
+            BlockCodec codec = BlockCodecs.forId(block.get());
+            if (codec != BlockCodecs.NONE) {
+                int rawLength = block.getInt();
+                block = ByteBuffer.wrap(codec.decompress(block.slice(), rawLength));
+            }
+        }
+        return readColumn(block, kind, type, rowCount);
+    }
+
+    private static ColumnVector readColumn(ByteBuffer buffer, byte kind, String type, int rowCount) throws IOException {
+        switch (kind) {
+            case INT_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                int[] values = new int[rowCount];
+                buffer.asIntBuffer().get(values);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                return new IntColumnVector(values, nulls);
+            }
+            case INT_DELTA_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                int[] values = new int[rowCount];
+                int previous = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    previous += (int) unZigZag(readVarLong(buffer));
+                    values[i] = previous;
+                }
+                return new IntColumnVector(values, nulls);
+            }
+            case BOOLEAN_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                return new BooleanColumnVector(readBitSet(buffer), nulls);
+            }
+            case BOOLEAN_RUN_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                BitSet values = new BitSet(rowCount);
+                long runs = readVarLong(buffer);
+                int from = 0;
+                for (long run = 0; run < runs; run++) {
+                    int to = from + (int) readVarLong(buffer);
+                    values.set(from, to, run % 2 == 1);
+                    from = to;
+                }
+                return new BooleanColumnVector(values, nulls);
+            }
+            case DATE_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                long[] seconds = new long[rowCount];
+                int[] nanos = new int[rowCount];
+                int[] offsets = new int[rowCount];
+                buffer.asLongBuffer().get(seconds);
+                buffer.position(buffer.position() + rowCount * Long.BYTES);
+                buffer.asIntBuffer().get(nanos);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                buffer.asIntBuffer().get(offsets);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                return new DateColumnVector(seconds, nanos, offsets, nulls);
+            }
+            case DATE_DELTA_BLOCK -> {
+                BitSet nulls = readBitSet(buffer);
+                long[] seconds = new long[rowCount];
+                int[] nanos = new int[rowCount];
+                int[] offsets = new int[rowCount];
+                long previous = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    previous += unZigZag(readVarLong(buffer));
+                    seconds[i] = previous;
+                }
+                for (int i = 0; i < rowCount; i++) {
+                    nanos[i] = (int) readVarLong(buffer);
+                }
+                int offset = 0;
+                for (int i = 0; i < rowCount; i++) {
+                    offset += (int) unZigZag(readVarLong(buffer));
+                    offsets[i] = offset;
+                }
+                return new DateColumnVector(seconds, nanos, offsets, nulls);
+            }
+            case STRING_BLOCK -> {
+                int dictionarySize = buffer.getInt();
+                List<String> dictionary = new ArrayList<>(dictionarySize);
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary.add(readString(buffer));
+                }
+                int[] codes = new int[rowCount];
+                buffer.asIntBuffer().get(codes);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                return new StringColumnVector(codes, dictionary);
+            }
+            case ARRAY_BLOCK -> {
+                int dictionarySize = buffer.getInt();
+                List<Object> dictionary = new ArrayList<>(dictionarySize);
+                for (int i = 0; i < dictionarySize; i++) {
+                    dictionary.add(readValue(buffer));
+                }
+                int[] lengths = new int[rowCount];
+                buffer.asIntBuffer().get(lengths);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                int[] elements = new int[buffer.getInt()];
+                buffer.asIntBuffer().get(elements);
+                buffer.position(buffer.position() + elements.length * Integer.BYTES);
+                return new ArrayColumnVector(ArrayColumnVector.elementType(type), lengths, elements, dictionary);
+            }
+            case VALUE_BLOCK -> {
+                String elementType = ArrayColumnVector.elementType(type);
+                ColumnVector vector = elementType != null ? new ArrayColumnVector(elementType) : null;
+                Object[] values = new Object[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    Object value = readValue(buffer);
+                    values[i] = "".equals(value) ? null : value;
+                    if (vector != null) {
+                        vector.set(i, values[i]);
+                    }
+                }
+                return vector != null ? vector : new ObjectColumnVector(values);
+            }
+            default -> throw new IOException("Неизвестный вид блока столбца: " + kind);
+        }
+    }
+
+    static BitSet readBitSet(ByteBuffer buffer) {
+        long[] words = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return BitSet.valueOf(words);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Object readValue(ByteBuffer buffer) throws IOException {
+        byte tag = buffer.get();
+        return switch (tag) {
+            case EMPTY_VALUE -> "";
+            case INT_VALUE -> buffer.getInt();
+            case BOOLEAN_VALUE -> buffer.get() != 0;
+            case DATE_VALUE -> {
+                long seconds = buffer.getLong();
+                int nano = buffer.getInt();
+                int offset = buffer.getInt();
+                yield ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nano), ZoneOffset.ofTotalSeconds(offset));
+            }
+            case STRING_VALUE -> readString(buffer);
+            case LIST_VALUE -> {
+                int size = buffer.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buffer));
+                }
+                yield list;
+            }
+            default -> throw new IOException("Неизвестный тип значения: " + tag);
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package org.database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Сжатие блоков столбцов в файлах таблиц. id записывается в каждый блок, по нему блок распаковывается,
+ * поэтому он должен быть уникальным и не меняться; собственный кодек подключается через
+ * {@link BlockCodecs#register} и выбирается в storage.compression по имени.
+ */
+public interface BlockCodec {
+    byte id();
+
+    String name();
+
+    byte[] compress(byte[] data);
+
+    /** Распаковывает data в массив из rawLength байт. */
+    byte[] decompress(ByteBuffer data, int rawLength) throws IOException;
+}
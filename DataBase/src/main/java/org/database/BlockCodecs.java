@@ -0,0 +1,63 @@
+package org.database;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Известные кодеки блоков: NONE (id 0, без сжатия), DEFLATE (id 1) и подключённые через register. */
+public final class BlockCodecs {
+    public static final BlockCodec NONE = new BlockCodec() {
+        @Override
+        public byte id() {return 0;}
+
+        @Override
+        public String name() {return "NONE";}
+
+        @Override
+        public byte[] compress(byte[] data) {return data;}
+
+        @Override
+        public byte[] decompress(ByteBuffer data, int rawLength) {
+            byte[] raw = new byte[rawLength];
+            data.get(raw);
+            return raw;
+        }
+    };
+
+    private static final Map<Byte, BlockCodec> byId = new ConcurrentHashMap<>();
+    private static final Map<String, BlockCodec> byName = new ConcurrentHashMap<>();
+
+    static {
+        register(NONE);
+        register(new DeflateCodec(DatabaseConfig.getCompressionLevel()));
+    }
+
+    private BlockCodecs() {
+    }
+
+    public static void register(BlockCodec codec) {
+        BlockCodec existing = byId.get(codec.id());
+        if (existing != null && !existing.name().equalsIgnoreCase(codec.name())) {
+            throw new IllegalArgumentException("Кодек с id " + codec.id() + " уже зарегистрирован: " + existing.name());
+        }
+        byId.put(codec.id(), codec);
+        byName.put(codec.name().toUpperCase(), codec);
+    }
+
+    public static BlockCodec forName(String name) {
+        BlockCodec codec = byName.get(name.toUpperCase());
+        if (codec == null) {
+            throw new IllegalArgumentException("Неизвестный кодек сжатия: " + name);
+        }
+        return codec;
+    }
+
+    static BlockCodec forId(byte id) throws IOException {
+        BlockCodec codec = byId.get(id);
+        if (codec == null) {
+            throw new IOException("Блок сжат неизвестным кодеком с id " + id);
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,265 @@
+package org.database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.model.Column;
+import org.model.Table;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Чтение файла для COPY: CSV (поля через запятую, "..." с "" внутри, массивы как [1 2 3]) или JSON Lines
+ * (объект на строку, ключи — имена столбцов). Файл читается потоком, значения разбираются сразу в типы
+ * столбцов без SQL-литералов и отдаются пачками по BATCH_ROWS строк; NOT-NULL проверяется при разборе,
+ * чтобы ошибка указывала строку файла.
+ */
+public final class BulkLoader {
+    public static final int BATCH_ROWS = 10_000;
+
+    public enum Format {CSV, JSON}
+
+    /** Приёмник пачки; firstLine и lastLine — строки файла, из которых она собрана. */
+    public interface BatchConsumer {
+        void accept(List<Map<String, Object>> rows, long firstLine, long lastLine) throws Exception;
+    }
+
+    private final Table table;
+    private final Path path;
+    private final Format format;
+    private final boolean header;
+    private final List<Column> columns;
+
+    public BulkLoader(Table table, Path path, Format format, boolean header) {
+        this.table = table;
+        this.path = path;
+        this.format = format == null ? detect(path) : format;
+        this.header = header;
+        this.columns = new ArrayList<>(table.getColumns().values());
+    }
+
+    /** Формат по расширению: .json, .jsonl, .ndjson — JSON Lines, остальное — CSV. */
+    public static Format detect(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson") ? Format.JSON : Format.CSV;
+    }
+
+    /** Читает файл и возвращает число загруженных строк. */
+    public long load(BatchConsumer consumer) throws Exception {
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Ошибка: файл " + path + " не найден.");
+        }
+        List<Function<String, Object>> parsers = new ArrayList<>();
+        for (Column column : columns) {
+            parsers.add(parser(column.getType()));
+        }
+
+        long loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int[] positions = null;
+            List<Map<String, Object>> batch = new ArrayList<>(BATCH_ROWS);
+            long lineNumber = 0;
+            long firstLine = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    if (format == Format.CSV && header && positions == null) {
+                        positions = headerPositions(splitCsv(line));
+                        continue;
+                    }
+                    Map<String, Object> row = format == Format.CSV
+                            ? csvRow(splitCsv(line), positions, parsers)
+                            : jsonRow(line);
+                    checkNotNull(row);
+                    if (batch.isEmpty()) {
+                        firstLine = lineNumber;
+                    }
+                    batch.add(row);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    throw new IllegalArgumentException("Ошибка в строке " + lineNumber + " файла " + path + ": " + e.getMessage(), e);
+                }
+                if (batch.size() == BATCH_ROWS) {
+                    loaded += flush(consumer, batch, firstLine, lineNumber);
+                }
+            }
+            if (!batch.isEmpty()) {
+                loaded += flush(consumer, batch, firstLine, lineNumber);
+            }
+        } catch (IOException e) {
+            throw new IOException("Ошибка чтения файла " + path + ": " + e.getMessage(), e);
+        }
+        return loaded;
+    }
+
+    private static int flush(BatchConsumer consumer, List<Map<String, Object>> batch, long firstLine, long lastLine)
+            throws Exception {
+        try {
+            consumer.accept(batch, firstLine, lastLine);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ошибка в строках " + firstLine + "–" + lastLine + ": "
+                    + e.getMessage().replaceFirst("^Ошибка: ", ""), e);
+        }
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private int[] headerPositions(List<String> names) {
+        int[] positions = new int[columns.size()];
+        java.util.Arrays.fill(positions, -1);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().toUpperCase(Locale.ROOT);
+            int column = columnIndex(name);
+            if (column == -1) {
+                throw new IllegalArgumentException("в таблице " + table.getName() + " нет поля " + name);
+            }
+            positions[column] = i;
+        }
+        return positions;
+    }
+
+    private int columnIndex(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Map<String, Object> csvRow(List<String> fields, int[] positions, List<Function<String, Object>> parsers) {
+        if (positions == null && fields.size() != columns.size()) {
+            throw new IllegalArgumentException("количество значений (" + fields.size()
+                    + ") не совпадает с количеством столбцов (" + columns.size() + ")");
+        }
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            int position = positions == null ? i : positions[i];
+            String text = position >= 0 && position < fields.size() ? fields.get(position).trim() : "";
+            Column column = columns.get(i);
+            try {
+                row.put(column.getName(), text.isEmpty() ? "" : parsers.get(i).apply(text));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("неверное значение '" + text + "' для столбца "
+                        + column.getName() + " (" + column.getType() + ")");
+            }
+        }
+        return row;
+    }
+
+    private Map<String, Object> jsonRow(String line) {
+        JsonObject object = JsonParser.parseString(line).getAsJsonObject();
+        Map<String, JsonElement> values = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            String name = entry.getKey().toUpperCase(Locale.ROOT);
+            if (columnIndex(name) == -1) {
+                throw new IllegalArgumentException("в таблице " + table.getName() + " нет поля " + name);
+            }
+            values.put(name, entry.getValue());
+        }
+        Map<String, Object> row = new HashMap<>();
+        for (Column column : columns) {
+            JsonElement value = values.get(column.getName());
+            try {
+                row.put(column.getName(), TableJsonAdapter.readValue(value, column.getType()));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("неверное значение " + value + " для столбца "
+                        + column.getName() + " (" + column.getType() + ")");
+            }
+        }
+        return row;
+    }
+
+    private void checkNotNull(Map<String, Object> row) {
+        for (Column column : columns) {
+            if (column.getIsNotNull() && "".equals(row.get(column.getName()))) {
+                throw new IllegalArgumentException("поле '" + column.getName() + "' не может быть NULL");
+            }
+        }
+    }
+
+    /** Поля строки CSV: запятая внутри "..." не разделяет поля, "" внутри кавычек — кавычка. */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("не закрыты кавычки");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /** Разбор непустого значения поля CSV по типу столбца. */
+    private static Function<String, Object> parser(String type) {
+        String typeKey = type.toLowerCase(Locale.ROOT);
+        if (typeKey.startsWith("[]")) {
+            Function<String, Object> element = parser(switch (typeKey.substring(2)) {
+                case "ints" -> "int";
+                case "booleans" -> "boolean";
+                case "dates" -> "date";
+                default -> "string";
+            });
+            return text -> {
+                if (!text.startsWith("[") || !text.endsWith("]")) {
+                    throw new IllegalArgumentException(text);
+                }
+                List<Object> array = new ArrayList<>();
+                for (String item : text.substring(1, text.length() - 1).trim().split("\\s+")) {
+                    if (!item.isEmpty()) {
+                        array.add(element.apply(item.length() > 1 && item.startsWith("\"") && item.endsWith("\"")
+                                ? item.substring(1, item.length() - 1) : item));
+                    }
+                }
+                return array;
+            };
+        }
+        return switch (typeKey) {
+            case "int" -> Integer::parseInt;
+            case "boolean" -> text -> {
+                if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                    return Boolean.parseBoolean(text);
+                }
+                throw new IllegalArgumentException(text);
+            };
+            case "date" -> text -> ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            default -> text -> text;
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package org.database;
+
+import org.model.Column;
+
+import java.util.List;
+
+/** Сведения о таблице, известные без загрузки её строк. */
+public record CatalogEntry(String name, List<Column> columns, long lsn) {
+}
@@ -0,0 +1,52 @@
+package org.database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.model.Table;
+import org.planner.Condition;
+import org.storage.ValueRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Условие DELETE или UPDATE в журнале прежнего формата: дерево Condition в JSON, значения читаются
+ * по типу столбца. Новые записи хранят изменённые строки, условие читается только из старых журналов.
+ */
+final class ConditionJson {
+
+    private ConditionJson() {
+    }
+
+    static Condition read(JsonObject json, Table table) {
+        String op = json.get("op").getAsString();
+        if (op.equals("AND") || op.equals("OR")) {
+            List<Condition> terms = new ArrayList<>();
+            for (JsonElement term : json.getAsJsonArray("terms")) {
+                terms.add(read(term.getAsJsonObject(), table));
+            }
+            return op.equals("AND") ? new Condition.And(terms) : new Condition.Or(terms);
+        }
+
+        String column = json.get("column").getAsString();
+        String type = table.getColumn(column).getType();
+        return switch (op) {
+            case "EQ" -> new Condition.Equals(column, TableJsonAdapter.readValue(json.get("value"), type));
+            case "NE" -> new Condition.NotEquals(column, TableJsonAdapter.readValue(json.get("value"), type));
+            case "RANGE" -> new Condition.Range(column, new ValueRange(
+                    json.has("low") ? TableJsonAdapter.readValue(json.get("low"), type) : null,
+                    json.has("lowInclusive") && json.get("lowInclusive").getAsBoolean(),
+                    json.has("high") ? TableJsonAdapter.readValue(json.get("high"), type) : null,
+                    json.has("highInclusive") && json.get("highInclusive").getAsBoolean()));
+            case "IN" -> {
+                List<Object> values = new ArrayList<>();
+                for (JsonElement value : json.getAsJsonArray("values")) {
+                    values.add(TableJsonAdapter.readValue(value, type));
+                }
+                yield new Condition.In(column, values);
+            }
+            case "LIKE" -> new Condition.Like(column, json.get("pattern").getAsString());
+            default -> throw new IllegalArgumentException("Неизвестное условие в журнале: " + op);
+        };
+    }
+}
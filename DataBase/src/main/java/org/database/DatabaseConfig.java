@@ -0,0 +1,106 @@
+package org.database;
+
+import org.storage.StorageType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+public class DatabaseConfig {
+    private static final Properties props = new Properties();
+
+    static {
+        loadConfig();
+    }
+
+    private static void loadConfig() {
+        try (InputStream input = DatabaseConfig.class.getClassLoader().getResourceAsStream("database.properties")) {
+            if (input == null) {
+                throw new RuntimeException("Файл database.properties не найден!");
+            }
+            props.load(input);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения database.properties", e);
+        }
+    }
+
+    public static StorageType getStorageType() {
+        return StorageType.valueOf(props.getProperty("storage.engine", "COLUMNAR").toUpperCase());
+    }
+
+    public static TableFileFormat getTableFileFormat() {
+        return TableFileFormat.valueOf(props.getProperty("storage.format", "PAGED").toUpperCase());
+    }
+
+    /** Кодек сжатия блоков файлов таблиц: NONE, DEFLATE или подключённый через BlockCodecs.register. */
+    public static String getCompression() {
+        return props.getProperty("storage.compression", "DEFLATE");
+    }
+
+    public static int getCompressionLevel() {
+        return Integer.parseInt(props.getProperty("storage.compression_level", "1"));
+    }
+
+    public static int getLoaderThreads() {
+        int threads = Integer.parseInt(props.getProperty("loader.threads", "0"));
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static int getParallelLoadRows() {
+        return Integer.parseInt(props.getProperty("loader.parallel_rows", "100000"));
+    }
+
+    public static boolean isWalEnabled() {
+        return Boolean.parseBoolean(props.getProperty("wal.enabled", "true"));
+    }
+
+    public static long getGroupCommitMillis() {
+        return Long.parseLong(props.getProperty("wal.group_commit_ms", "2"));
+    }
+
+    public static int getCheckpointRecords() {
+        return Integer.parseInt(props.getProperty("wal.checkpoint_records", "10000"));
+    }
+
+    public static Durability getDurability() {
+        return Durability.valueOf(props.getProperty("flush.durability", "SYNC").toUpperCase());
+    }
+
+    public static long getFlushIntervalMillis() {
+        return Long.parseLong(props.getProperty("flush.interval_ms", "100"));
+    }
+
+    public static boolean isLazyLoading() {
+        return Boolean.parseBoolean(props.getProperty("cache.lazy", "false"));
+    }
+
+    public static long getCacheBudgetBytes() {
+        return Long.parseLong(props.getProperty("cache.budget_mb", "0")) * 1024 * 1024;
+    }
+
+    public static TableCache.Policy getCachePolicy() {
+        return TableCache.Policy.valueOf(props.getProperty("cache.policy", "LRU").toUpperCase());
+    }
+
+    public static int getSortMemoryRows() {
+        return Integer.parseInt(props.getProperty("sort.memory_rows", "500000"));
+    }
+
+    public static int getParallelScanRows() {
+        return Integer.parseInt(props.getProperty("scan.parallel_rows", "200000"));
+    }
+
+    public static int getScanThreads() {
+        int threads = Integer.parseInt(props.getProperty("scan.threads", "0"));
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static int getStatementCacheSize() {
+        return Integer.parseInt(props.getProperty("statement.cache_size", "256"));
+    }
+
+    public static int getServerPort() {
+        return Integer.parseInt(props.getProperty("server.port", "7070"));
+    }
+}
@@ -2,8 +2,20 @@ package org.database;
 
 import com.google.gson.*;
 import org.app.LoggerManager;
+import org.index.IndexType;
 import org.model.Column;
+import org.model.HashJoin;
 import org.model.Table;
+import org.model.TableCursor;
+import org.planner.Aggregate;
+import org.planner.Condition;
+import org.planner.JoinPlan;
+import org.planner.QueryPlan;
+import org.storage.ParallelScan;
+import org.storage.StorageType;
+import org.transaction.Snapshot;
+import org.transaction.Transaction;
+import org.transaction.TransactionManager;
 
 import java.util.logging.Logger;
 
@@ -14,23 +26,68 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
-public class DatabaseManager {
+/**
+ * Каталог таблиц базы. Может использоваться из нескольких потоков: запросы выполняются
+ * через read, изменения — через write, которые блокируют таблицу на время операции.
+ * Изменения идут от имени транзакции сеанса (BEGIN ... COMMIT) или, если её нет,
+ * отдельной транзакции на каждый оператор.
+ */
+public final class DatabaseManager {
     private static final Logger logger = LoggerManager.getLogger(DatabaseManager.class);
 
     private final String DB_PATH = "my-database/";
-    private final Map<String, Table> tables = new HashMap<>();
+    private final Map<String, CatalogEntry> catalog = new ConcurrentHashMap<>();
+    private final TableCache tables;
+    private final StorageType storageType = DatabaseConfig.getStorageType();
+    private final int sortMemoryRows = DatabaseConfig.getSortMemoryRows();
+    private final Set<String> dirtyTables = ConcurrentHashMap.newKeySet();
+    /**
+     * Изменения берут блокировку на чтение, контрольная точка — на запись: журнал не должен
+     * очищаться между изменением таблицы и её сохранением.
+     */
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private final TransactionManager transactions = new TransactionManager();
+    /** Транзакция, от имени которой выполняется текущий оператор write. */
+    private final ThreadLocal<Transaction> statement = new ThreadLocal<>();
+    private WriteAheadLog wal;
+    private int replayedRecords;
+    private final Durability durability = DatabaseConfig.getDurability();
+    /** Поток, сохраняющий изменения в фоне; запускается после загрузки базы. */
+    private volatile BackgroundFlusher flusher;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    static {
+        ParallelScan.configure(DatabaseConfig.getParallelScanRows(), DatabaseConfig.getScanThreads());
+    }
 
     public String getDB_PATH() {return DB_PATH;}
 
+    @FunctionalInterface
+    public interface TableAction<T> {
+        T apply(Table table) throws Exception;
+    }
+
 
     private final Gson customGson = new GsonBuilder()
             .registerTypeAdapter(ZonedDateTime.class, new JsonSerializer<ZonedDateTime>() {
@@ -46,23 +103,86 @@ public class DatabaseManager {
                     return ZonedDateTime.parse(json.getAsString(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
                 }
             })
+            .registerTypeAdapter(Table.class, new TableJsonAdapter(storageType))
             .create();
 
+    private final BlockCodec codec = BlockCodecs.forName(DatabaseConfig.getCompression());
+    private final BinaryTableFormat binaryFormat =
+            new BinaryTableFormat(storageType, DatabaseConfig.getParallelLoadRows(), codec);
+    private final PagedTableFormat pagedFormat =
+            new PagedTableFormat(storageType, DatabaseConfig.getParallelLoadRows(), codec);
+    private final TableFileFormat fileFormat = DatabaseConfig.getTableFileFormat();
+
+    public DatabaseManager() {
+        tables = new TableCache(DatabaseConfig.getCacheBudgetBytes(), DatabaseConfig.getCachePolicy(), this::beforeEvict);
+    }
 
 
     public void saveTable(String tableName, Table table) {
         try {
-            Files.createDirectories(Paths.get(DB_PATH));
+            writeTableFile(tableName, table);
+        } catch (IOException e) {
+            logger.severe("Ошибка при сохранении таблицы " + tableName + ": " + e.getMessage());
+        }
+    }
 
-            String tableJson = customGson.toJson(table);
+    private void writeTableFile(String tableName, Table table) throws IOException {
+        Files.createDirectories(Paths.get(DB_PATH));
 
-            FileWriter writer = new FileWriter(DB_PATH + tableName + ".db");
-            writer.write(tableJson);
+        Table image = committedImage(table);
+        Path path = Paths.get(DB_PATH + tableName + ".db");
+        switch (fileFormat) {
+            case PAGED -> pagedFormat.write(image, path);
+            case BINARY -> binaryFormat.write(image, path);
+            case JSON -> {
+                Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (Writer writer = Files.newBufferedWriter(tmp)) {
+                    customGson.toJson(image, writer);
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        if (fileFormat != TableFileFormat.PAGED) {
+            PagedTableFormat.deletePages(path);
+        } else if (image != table) {
+            // в файле строки копии без незафиксированных версий, слоты таблицы с ним больше не совпадают
+            table.getStorage().markAllDirty();
+        }
+        catalog.put(tableName, catalogEntry(table));
+    }
 
-            writer.close();
-        } catch (IOException e) {
-            logger.severe("Ошибка при сохранении таблицы " + tableName + ": " + e.getMessage());
+    public void exportTableJson(String tableName, Path target) throws Exception {
+        Table image = read(tableName, this::committedImage);
+        Files.writeString(target, customGson.toJson(image));
+    }
+
+    /** Таблица без незафиксированных версий строк — то, что можно сохранить в файл. */
+    private Table committedImage(Table table) {
+        return table.hasPendingVersions() ? table.copyVisible(transactions.snapshot(), storageType) : table;
+    }
+
+    /** Загружает таблицу из JSON-файла (формат прежних версий) и записывает её в базу. */
+    public Table importTableJson(Path source) throws Exception {
+        Table table = customGson.fromJson(Files.readString(source), Table.class);
+        changeLock.readLock().lock();
+        try {
+            synchronized (this) {
+                if (catalog.containsKey(table.getName())) {
+                    throw new Exception("Table " + table.getName() + " уже существует ");
+                }
+                tables.put(table.getName(), table);
+                try {
+                    writeTableFile(table.getName(), table);
+                } catch (IOException e) {
+                    tables.remove(table.getName());
+                    throw new IOException("Таблица " + table.getName() + " не импортирована: " + e.getMessage(), e);
+                }
+            }
+        } finally {
+            changeLock.readLock().unlock();
         }
+        evict(tables.enforceBudget(table.getName()));
+        return table;
     }
 
 
@@ -88,66 +208,898 @@ public class DatabaseManager {
                 return null;
             }
 
-            String json = new String(Files.readAllBytes(tablePath));
-            Table table = customGson.fromJson(json, Table.class);
-
-            table.normalizeRowTypes();
+            if (PagedTableFormat.isPaged(tablePath)) {
+                return pagedFormat.read(tablePath);
+            }
+            if (BinaryTableFormat.isBinary(tablePath)) {
+                return binaryFormat.read(tablePath);
+            }
 
-            return table;
+            String json = new String(Files.readAllBytes(tablePath));
+            return customGson.fromJson(json, Table.class);
 
-        } catch (IOException e) {
+        } catch (IOException | JsonParseException e) {
             logger.severe("Ошибка при загрузке таблицы " + tableName + ": " + e.getMessage());
             return null;
         }
     }
 
+    private CatalogEntry readCatalogEntry(Path path) throws IOException {
+        if (PagedTableFormat.isPaged(path)) {
+            return pagedFormat.readCatalogEntry(path);
+        }
+        if (BinaryTableFormat.isBinary(path)) {
+            return binaryFormat.readCatalogEntry(path);
+        }
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return TableJsonAdapter.readCatalogEntry(reader, customGson);
+        }
+    }
+
+    private static CatalogEntry catalogEntry(Table table) {
+        return new CatalogEntry(table.getName(), new ArrayList<>(table.getColumns().values()), table.getLsn());
+    }
+
+    /**
+     * Загружает таблицы параллельно: по задаче на файл в пуле из loader.threads потоков.
+     * Крупные двоичные таблицы дополнительно разбираются по блокам столбцов (см. BinaryTableFormat).
+     * При cache.lazy=true читаются только заголовки файлов, а строки загружаются при первом обращении.
+     */
     public void loadAllTables() {
-        try {
-            Files.list(Paths.get(DB_PATH))
-                    .filter(path -> path.toString().endsWith(".db"))
-                    .forEach(path -> {
-                        String tableName = path.getFileName().toString().replace(".db", "");
-                        Table table = loadTable(tableName);
-                        if (table != null) {
-                            tables.put(tableName, table);
-                            logger.info("Загружена таблица: " + tableName);
-                        }
-                    });
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(Paths.get(DB_PATH))) {
+            list.filter(path -> path.toString().endsWith(".db")).forEach(files::add);
         } catch (IOException e) {
             logger.severe("Ошибка при загрузке базы данных: " + e.getMessage());
         }
+
+        boolean lazy = DatabaseConfig.isLazyLoading();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(DatabaseConfig.getLoaderThreads());
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Path path : files) {
+                Runnable load = lazy ? () -> readCatalogFile(path) : () -> loadTableFile(path);
+                tasks.add(pool.submit(load));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        logger.info(String.format("%s таблиц: %d из %d за %d мс, потоков: %d", lazy ? "Найдено" : "Загружено",
+                catalog.size(), files.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                pool.getParallelism()));
+        evict(tables.enforceBudget(null));
+
+        if (DatabaseConfig.isWalEnabled()) {
+            openWal();
+        }
+        startFlusher();
+    }
+
+    /**
+     * Запускает фоновую запись и регистрирует завершающий hook, который при остановке JVM
+     * сохраняет ещё не записанные изменения.
+     */
+    private synchronized void startFlusher() {
+        if (flusher != null) {
+            return;
+        }
+        long interval = durability == Durability.PERIODIC ? DatabaseConfig.getFlushIntervalMillis() : 0;
+        flusher = new BackgroundFlusher(interval, this::backgroundFlush);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "database-shutdown"));
+    }
+
+    /**
+     * Работа фонового потока: при PERIODIC делает долговечными изменения, накопленные с прошлого раза,
+     * и при переполнении журнала выполняет контрольную точку. Таблица, изменённая несколькими
+     * операторами, сохраняется один раз.
+     */
+    private void backgroundFlush() throws IOException {
+        if (durability == Durability.PERIODIC) {
+            flush();
+        }
+        if (wal != null && wal.getRecordsSinceCheckpoint() >= DatabaseConfig.getCheckpointRecords()) {
+            checkpoint();
+        }
+    }
+
+    private void loadTableFile(Path path) {
+        String tableName = path.getFileName().toString().replace(".db", "");
+        long start = System.nanoTime();
+
+        Table table = loadTable(tableName);
+        if (table != null) {
+            tables.put(tableName, table);
+            catalog.put(tableName, catalogEntry(table));
+
+            long size = 0;
+            try {
+                size = Files.size(path);
+            } catch (IOException ignored) {
+            }
+            logger.info(String.format("Загружена таблица: %s (строк: %d, байт: %d, %d мс)", tableName,
+                    table.getRowCount(), size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+    }
+
+    private void readCatalogFile(Path path) {
+        String tableName = path.getFileName().toString().replace(".db", "");
+        try {
+            catalog.put(tableName, readCatalogEntry(path));
+        } catch (IOException | RuntimeException e) {
+            logger.severe("Ошибка при чтении заголовка таблицы " + tableName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Вызывается кэшем под блокировкой таблицы перед вытеснением: изменённая таблица сохраняется в файл.
+     * Сохранение не должно пересекаться с контрольной точкой, но ждать changeLock, держа блокировку таблицы,
+     * нельзя, поэтому при занятом changeLock или ошибке записи таблица остаётся в памяти изменённой.
+     */
+    private boolean beforeEvict(Table table) {
+        String tableName = table.getName();
+        if (!dirtyTables.contains(tableName)) {
+            return true;
+        }
+        if (!changeLock.readLock().tryLock()) {
+            return false;
+        }
+        try {
+            writeTableFile(tableName, table);
+            dirtyTables.remove(tableName);
+            return true;
+        } catch (IOException e) {
+            logger.severe("Таблица " + tableName + " не вытеснена, ошибка при сохранении: " + e.getMessage());
+            return false;
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    private void evict(List<String> evicted) {
+        if (!evicted.isEmpty()) {
+            logger.info("Вытеснены из памяти таблицы: " + evicted);
+        }
+    }
+
+    private void openWal() {
+        wal = new WriteAheadLog(Paths.get(DB_PATH + "wal.log"), DatabaseConfig.getGroupCommitMillis());
+        try {
+            for (CatalogEntry entry : catalog.values()) {
+                wal.advanceLsn(entry.lsn());
+            }
+            wal.open(this::replay);
+
+            if (replayedRecords > 0) {
+                logger.info("Из журнала восстановлено записей: " + replayedRecords);
+                checkpoint();
+            }
+        } catch (IOException e) {
+            logger.severe("Ошибка открытия журнала, изменения будут сохраняться целиком: " + e.getMessage());
+            wal = null;
+        }
+    }
+
+    private void replay(JsonObject record) {
+        String op = record.get("op").getAsString();
+        if (op.equals("CHECKPOINT")) {
+            return;
+        }
+
+        long lsn = record.get("lsn").getAsLong();
+        if (op.equals("TX")) {
+            replayTransaction(record.getAsJsonArray("changes"), lsn);
+            return;
+        }
+
+        String tableName = record.get("table").getAsString();
+        Table table = catalog.containsKey(tableName) ? getTable(tableName) : null;
+
+        try {
+            switch (op) {
+                case "CREATE_TABLE" -> {
+                    if (table != null) {
+                        return;
+                    }
+                    List<Column> columns = new ArrayList<>();
+                    for (JsonElement column : record.getAsJsonArray("columns")) {
+                        columns.add(customGson.fromJson(column, Column.class));
+                    }
+                    table = buildTable(tableName, columns);
+                    tables.put(tableName, table);
+                    catalog.put(tableName, catalogEntry(table));
+                }
+                case "DROP_TABLE" -> {
+                    if (table == null || table.getLsn() >= lsn) {
+                        return;
+                    }
+                    tables.remove(tableName);
+                    catalog.remove(tableName);
+                    dirtyTables.remove(tableName);
+                    PagedTableFormat.delete(Paths.get(DB_PATH + tableName + ".db"));
+                    replayedRecords++;
+                    return;
+                }
+                default -> {
+                    if (table == null || table.getLsn() >= lsn) {
+                        return;
+                    }
+                    applyChange(table, op, record);
+                }
+            }
+        } catch (Exception e) {
+            logger.warning("Запись журнала " + lsn + " (" + op + ") не применена: " + e.getMessage());
+            return;
+        }
+
+        table.setLsn(lsn);
+        dirtyTables.add(tableName);
+        replayedRecords++;
+    }
+
+    /**
+     * Доигрывает зафиксированную транзакцию. Все её изменения имеют один LSN, поэтому
+     * пропускаются только таблицы, сохранённые уже после этой транзакции.
+     */
+    private void replayTransaction(JsonArray changes, long lsn) {
+        Set<String> skipped = new HashSet<>();
+        Set<String> applied = new HashSet<>();
+
+        for (JsonElement element : changes) {
+            JsonObject change = element.getAsJsonObject();
+            String op = change.get("op").getAsString();
+            String tableName = change.get("table").getAsString();
+            if (skipped.contains(tableName) || !catalog.containsKey(tableName)) {
+                continue;
+            }
+
+            Table table = getTable(tableName);
+            if (!applied.contains(tableName) && table.getLsn() >= lsn) {
+                skipped.add(tableName);
+                continue;
+            }
+            applied.add(tableName);
+
+            try {
+                applyChange(table, op, change);
+            } catch (Exception e) {
+                logger.warning("Запись журнала " + lsn + " (" + op + ") не применена: " + e.getMessage());
+            }
+            table.setLsn(lsn);
+            dirtyTables.add(tableName);
+            replayedRecords++;
+        }
+    }
+
+    private void applyChange(Table table, String op, JsonObject record) throws Exception {
+        switch (op) {
+            case "INSERT" -> table.insertRow(readRow(record.getAsJsonObject("row"), table));
+            case "DELETE" -> {
+                if (record.has("rows")) {
+                    table.replayDelete(readRows(record, table));
+                } else {
+                    table.deleteRows(readWhere(record, table));
+                }
+            }
+            case "UPDATE" -> {
+                Map<String, Object> values = new HashMap<>();
+                for (Map.Entry<String, JsonElement> entry : record.getAsJsonObject("values").entrySet()) {
+                    String type = table.getColumn(entry.getKey()).getType();
+                    values.put(entry.getKey(), TableJsonAdapter.readValue(entry.getValue(), type));
+                }
+                if (record.has("rows")) {
+                    table.replayUpdate(readRows(record, table), values);
+                } else {
+                    table.updateRows(readWhere(record, table), values, null, true);
+                }
+            }
+            case "CREATE_INDEX" -> table.createIndex(record.get("index").getAsString(),
+                    record.get("column").getAsString(), IndexType.valueOf(record.get("type").getAsString()));
+            case "ADD_COLUMN" -> {
+                Column column = customGson.fromJson(record.get("column"), Column.class);
+                table.addNewColumn(column.getName(), column.getType(), column.getIsUnique(), column.getIsNotNull());
+            }
+            case "DROP_COLUMN" -> table.dropColumn(record.get("column").getAsString());
+            case "COPY" -> throw new IllegalStateException("строки COPY не попали в файл таблицы " + table.getName());
+            default -> throw new IllegalArgumentException("Неизвестная операция журнала: " + op);
+        }
     }
 
 
     public void createTable(String name, List<Column> columns) throws Exception {
-        if (tables.containsKey(name)) {
-            throw new Exception("Table " + name + " уже существует ");
+        checkNoTransaction();
+        Table table = buildTable(name, columns);
+
+        changeLock.readLock().lock();
+        try {
+            synchronized (this) {
+                if (catalog.containsKey(name)) {
+                    throw new Exception("Table " + name + " уже существует ");
+                }
+                tables.put(name, table);
+                catalog.put(name, catalogEntry(table));
+
+                JsonObject record = record("CREATE_TABLE", name);
+                record.add("columns", customGson.toJsonTree(columns));
+                logChange(table, record);
+            }
+        } finally {
+            changeLock.readLock().unlock();
         }
+    }
 
-        Table table = new Table(name);
+    private Table buildTable(String name, List<Column> columns) {
+        Table table = new Table(name, storageType);
         for (Column col : columns) {
             table.addColumn(col.getName(), col.getType(), col.getIsUnique(), col.getIsNotNull());
         }
-        tables.put(name, table);
+        return table;
     }
 
-    public void dropTable(String name) {
-        Table table = tables.get(name);
-        if (table == null) {
-            throw new IllegalArgumentException("Ошибка: таблица " + name + " не найдена.");
+    /** Удаляет таблицу, дождавшись завершения выполняющихся над ней запросов. */
+    public void dropTable(String name) throws IOException {
+        checkNoTransaction();
+        long lsn = 0;
+
+        changeLock.readLock().lock();
+        try {
+            Table table = lockTable(name, true);
+            try {
+                synchronized (this) {
+                    catalog.remove(name);
+                    tables.remove(name);
+                    dirtyTables.remove(name);
+                }
+                if (wal != null) {
+                    lsn = wal.append(record("DROP_TABLE", name));
+                }
+            } finally {
+                table.getLock().writeLock().unlock();
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+
+        if (wal != null) {
+            wal.sync(lsn);
+        }
+        PagedTableFormat.delete(Paths.get(DB_PATH + name + ".db"));
+    }
+
+    /** Выполняет action над таблицей под блокировкой на чтение; запросы не блокируют друг друга. */
+    public <T> T read(String tableName, TableAction<T> action) throws Exception {
+        Table table = lockTable(tableName, false);
+        try {
+            return action.apply(table);
+        } finally {
+            table.getLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет action под блокировкой таблицы на запись. Методы изменения таблицы
+     * (insertRow, deleteRows, updateRows, createIndex, addColumn, dropColumn) вызываются только внутри write.
+     * Оператор атомарен: при ошибке его изменения откатываются, а в открытой транзакции
+     * сеанса сохраняются изменения предыдущих операторов.
+     */
+    public <T> T write(String tableName, TableAction<T> action) throws Exception {
+        changeLock.readLock().lock();
+        try {
+            Table table = lockTable(tableName, true);
+            Session session = Session.current();
+            Transaction transaction = session == null ? null : session.getTransaction();
+            boolean autocommit = transaction == null;
+            if (autocommit) {
+                transaction = transactions.begin();
+            }
+            Transaction.Savepoint savepoint = transaction.savepoint();
+
+            statement.set(transaction);
+            try {
+                if (table.hasPendingVersions()) {
+                    table.vacuum(transactions.horizon());
+                }
+                T result = action.apply(table);
+                if (autocommit) {
+                    commitTransaction(transaction);
+                }
+                return result;
+            } catch (Exception e) {
+                transaction.rollbackTo(savepoint);
+                if (autocommit) {
+                    transactions.finish(transaction);
+                }
+                throw e;
+            } finally {
+                statement.remove();
+                table.getLock().writeLock().unlock();
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Загружает файл в таблицу (COPY). Строки не пишутся в журнал: пачки добавляются одной транзакцией
+     * под блокировкой таблицы, затем файл таблицы перезаписывается один раз. В журнал попадает только
+     * запись COPY, её LSN сохраняется в файле, поэтому более ранние записи журнала при восстановлении
+     * пропускаются. При ошибке в любой пачке загрузка откатывается целиком; ошибка записи файла после
+     * фиксации строк не откатывает их, таблица сохраняется на следующей контрольной точке.
+     */
+    public long copy(String tableName, Path source, BulkLoader.Format format, boolean header) throws Exception {
+        checkNoTransaction();
+        changeLock.readLock().lock();
+        try {
+            Table table = lockTable(tableName, true);
+            try {
+                Transaction transaction = transactions.begin();
+                long loaded;
+                try {
+                    if (table.hasPendingVersions()) {
+                        table.vacuum(transactions.horizon());
+                    }
+                    loaded = new BulkLoader(table, source, format, header)
+                            .load((rows, firstLine, lastLine) -> table.insertRows(rows, transaction));
+                } catch (Exception e) {
+                    transaction.rollback();
+                    transactions.finish(transaction);
+                    throw e;
+                }
+                transactions.finish(transaction);
+
+                // строки зафиксированы и дальше не откатываются: если файл не записан, таблица остаётся
+                // изменённой и сохраняется на следующей контрольной точке, журнал до этого не очищается
+                dirtyTables.add(tableName);
+                table.vacuum(transactions.horizon());
+                try {
+                    long lsn = 0;
+                    if (wal != null) {
+                        lsn = wal.append(record("COPY", tableName));
+                        table.setLsn(lsn);
+                    }
+                    writeTableFile(tableName, table);
+                    dirtyTables.remove(tableName);
+                    if (wal != null) {
+                        wal.sync(lsn);
+                    }
+                } catch (IOException e) {
+                    throw new IOException("Строки загружены в таблицу " + tableName + ", но файл таблицы не сохранён,"
+                            + " повторная запись — на контрольной точке: " + e.getMessage(), e);
+                }
+                return loaded;
+            } finally {
+                table.getLock().writeLock().unlock();
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    /** Снимок, которому видны строки текущего оператора: снимок транзакции сеанса или последних фиксаций. */
+    public Snapshot currentSnapshot() {
+        Transaction transaction = statement.get();
+        if (transaction == null) {
+            Session session = Session.current();
+            transaction = session == null ? null : session.getTransaction();
+        }
+        return transaction == null ? transactions.snapshot() : transaction.getSnapshot();
+    }
+
+    public List<Map<String, Object>> selectRows(Table table, QueryPlan plan) {
+        return table.selectRows(plan, currentSnapshot());
+    }
+
+    /** Агрегаты по строкам плана, видимым текущему оператору (вызывается внутри read). */
+    public List<List<Object>> aggregate(Table table, QueryPlan plan, List<String> groupBy, List<Aggregate> items) {
+        return table.aggregate(plan, currentSnapshot(), groupBy, items);
+    }
+
+    /** Строки соединения left и right, видимые текущему оператору (вызывается внутри read обеих таблиц). */
+    public List<List<Object>> join(JoinPlan plan, Table left, Table right, List<JoinPlan.ColumnRef> columns,
+                                   long maxRows) {
+        return new HashJoin(plan, left, right, currentSnapshot()).rows(columns, maxRows);
+    }
+
+    /**
+     * Открывает курсор по результату плана (вызывается внутри read). Вне транзакции курсор
+     * получает собственный снимок, который держит очистку, пока курсор не закрыт.
+     */
+    public TableCursor openCursor(Table table, QueryPlan plan, List<String> columns, long offset, long limit) {
+        Session session = Session.current();
+        Transaction transaction = session == null ? null : session.getTransaction();
+        if (transaction != null) {
+            return table.openCursor(plan, transaction.getSnapshot(), columns, offset, limit, sortMemoryRows, () -> {
+            });
+        }
+
+        Snapshot snapshot = transactions.openSnapshot();
+        return table.openCursor(plan, snapshot, columns, offset, limit, sortMemoryRows,
+                () -> transactions.release(snapshot));
+    }
+
+    public void begin() {
+        Session session = requireSession();
+        if (session.getTransaction() != null) {
+            throw new IllegalStateException("Ошибка: транзакция уже начата.");
+        }
+        session.setTransaction(transactions.begin());
+    }
+
+    /** COMMIT: изменения транзакции сеанса одной записью попадают в журнал и становятся видны остальным. */
+    public void commitTransaction() throws IOException {
+        Session session = requireSession();
+        Transaction transaction = requireTransaction(session);
+        session.setTransaction(null);
+        commitTransaction(transaction);
+        commit();
+    }
+
+    public void rollbackTransaction() {
+        Session session = requireSession();
+        Transaction transaction = requireTransaction(session);
+        session.setTransaction(null);
+        rollback(transaction);
+    }
+
+    /** Закрывает сеанс, откатывая незавершённую транзакцию. */
+    public void closeSession(Session session) {
+        Transaction transaction = session.getTransaction();
+        if (transaction != null) {
+            session.setTransaction(null);
+            rollback(transaction);
+        }
+    }
+
+    /** Откат меняет хранилище таблиц, поэтому, как и другие изменения, не пересекается с контрольной точкой. */
+    private void rollback(Transaction transaction) {
+        changeLock.readLock().lock();
+        try {
+            transaction.rollback();
+            transactions.finish(transaction);
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    private void commitTransaction(Transaction transaction) throws IOException {
+        changeLock.readLock().lock();
+        try {
+            if (!transaction.getChanges().isEmpty()) {
+                long lsn = 0;
+                if (wal != null) {
+                    JsonObject record = new JsonObject();
+                    record.addProperty("op", "TX");
+                    JsonArray changes = new JsonArray();
+                    transaction.getChanges().forEach(changes::add);
+                    record.add("changes", changes);
+                    lsn = wal.append(record);
+                }
+                for (Table table : transaction.getTables()) {
+                    dirtyTables.add(table.getName());
+                    if (lsn > 0) {
+                        table.setLsn(lsn);
+                    }
+                }
+            }
+            transactions.finish(transaction);
+
+            // очистка версий удаляет и переставляет строки, поэтому тоже выполняется под changeLock
+            long horizon = transactions.horizon();
+            for (Table table : transaction.getTables()) {
+                table.getLock().writeLock().lock();
+                try {
+                    table.vacuum(horizon);
+                } finally {
+                    table.getLock().writeLock().unlock();
+                }
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    private static Session requireSession() {
+        Session session = Session.current();
+        if (session == null) {
+            throw new IllegalStateException("Ошибка: транзакции доступны только в сеансе SQLParser.");
+        }
+        return session;
+    }
+
+    private static Transaction requireTransaction(Session session) {
+        if (session.getTransaction() == null) {
+            throw new IllegalStateException("Ошибка: транзакция не начата.");
+        }
+        return session.getTransaction();
+    }
+
+    private static void checkNoTransaction() {
+        Session session = Session.current();
+        if (session != null && session.getTransaction() != null) {
+            throw new IllegalStateException("Ошибка: изменение схемы внутри транзакции не поддерживается.");
+        }
+    }
+
+    /**
+     * Блокирует текущий экземпляр таблицы. Если пока поток ждал блокировку, таблицу вытеснили
+     * из памяти, она загружается заново; если удалили — getTable бросает исключение.
+     */
+    private Table lockTable(String tableName, boolean exclusive) {
+        while (true) {
+            Table table = getTable(tableName);
+            Lock lock = exclusive ? table.getLock().writeLock() : table.getLock().readLock();
+            lock.lock();
+            if (tables.isResident(tableName, table)) {
+                return table;
+            }
+            lock.unlock();
+        }
+    }
+
+    private Transaction checkWriteLocked(Table table) {
+        Transaction transaction = statement.get();
+        if (transaction == null || !table.getLock().isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException("Изменение таблицы " + table.getName() + " вне DatabaseManager.write");
+        }
+        return transaction;
+    }
+
+    public void insertRow(Table table, Map<String, Object> row) throws Exception {
+        Transaction transaction = checkWriteLocked(table);
+        table.insertRow(row, transaction);
+
+        JsonObject record = record("INSERT", table.getName());
+        record.add("row", customGson.toJsonTree(row));
+        transaction.log(table, record);
+    }
+
+    private static Map<String, Object> readRow(JsonObject jsonRow, Table table) {
+        Map<String, Object> row = new HashMap<>();
+        for (Column column : table.getColumns().values()) {
+            row.put(column.getName(), TableJsonAdapter.readValue(jsonRow.get(column.getName()), column.getType()));
+        }
+        return row;
+    }
+
+    /** Строки, которые изменил оператор DELETE или UPDATE, — в том виде, какими они были до него. */
+    private static List<Map<String, Object>> readRows(JsonObject record, Table table) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (JsonElement row : record.getAsJsonArray("rows")) {
+            rows.add(readRow(row.getAsJsonObject(), table));
+        }
+        return rows;
+    }
+
+    private JsonArray writeRows(List<Map<String, Object>> rows) {
+        JsonArray json = new JsonArray();
+        for (Map<String, Object> row : rows) {
+            json.add(customGson.toJsonTree(row));
+        }
+        return json;
+    }
+
+    /**
+     * Условие DELETE или UPDATE из журнала прежнего формата, где вместо изменённых строк записывалось
+     * условие: where или, ещё раньше, карта равенств conditions.
+     */
+    private static Condition readWhere(JsonObject record, Table table) {
+        if (record.has("where")) {
+            return ConditionJson.read(record.getAsJsonObject("where"), table);
+        }
+        Map<String, Object> conditions = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : record.getAsJsonObject("conditions").entrySet()) {
+            String type = table.getColumn(entry.getKey()).getType();
+            conditions.put(entry.getKey(), TableJsonAdapter.readValue(entry.getValue(), type));
+        }
+        return Condition.equalities(conditions);
+    }
+
+    /**
+     * В журнал пишутся удалённые строки, а не условие: при восстановлении условие выполнилось бы
+     * без снимка транзакции и могло бы задеть строки, которых она не видела.
+     */
+    public void deleteRows(Table table, Condition where) {
+        Transaction transaction = checkWriteLocked(table);
+        List<Map<String, Object>> deleted = table.deleteRows(where, transaction);
+        if (deleted.isEmpty()) {
+            return;
+        }
+
+        JsonObject record = record("DELETE", table.getName());
+        record.add("rows", writeRows(deleted));
+        transaction.log(table, record);
+    }
+
+    /**
+     * Вне транзакции сеанса, когда других транзакций и снимков нет, строки меняются на месте. В журнал,
+     * как и для DELETE, пишутся изменённые строки в прежнем виде и новые значения столбцов.
+     */
+    public void updateRows(Table table, Condition where, Map<String, Object> values) {
+        Transaction transaction = checkWriteLocked(table);
+        Session session = Session.current();
+        boolean autocommit = session == null || session.getTransaction() != transaction;
+        List<Map<String, Object>> updated =
+                table.updateRows(where, values, transaction, autocommit && transactions.isSole(transaction));
+        if (updated.isEmpty()) {
+            return;
+        }
+
+        JsonObject record = record("UPDATE", table.getName());
+        record.add("rows", writeRows(updated));
+        record.add("values", customGson.toJsonTree(values));
+        transaction.log(table, record);
+    }
+
+    public void createIndex(Table table, String indexName, String columnName, IndexType type) {
+        checkWriteLocked(table);
+        checkNoTransaction();
+        table.createIndex(indexName, columnName, type);
+
+        JsonObject record = record("CREATE_INDEX", table.getName());
+        record.addProperty("index", indexName);
+        record.addProperty("column", columnName);
+        record.addProperty("type", type.name());
+        logChange(table, record);
+    }
+
+    public void addColumn(Table table, String columnName, String type, boolean isUnique, boolean isNotNull) {
+        checkWriteLocked(table);
+        checkNoTransaction();
+        table.addNewColumn(columnName, type, isUnique, isNotNull);
+
+        JsonObject record = record("ADD_COLUMN", table.getName());
+        record.add("column", customGson.toJsonTree(table.getColumn(columnName)));
+        logChange(table, record);
+    }
+
+    public void dropColumn(Table table, String columnName) {
+        checkWriteLocked(table);
+        checkNoTransaction();
+        table.dropColumn(columnName);
+
+        JsonObject record = record("DROP_COLUMN", table.getName());
+        record.addProperty("column", columnName);
+        logChange(table, record);
+    }
+
+    private static JsonObject record(String op, String tableName) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", op);
+        record.addProperty("table", tableName);
+        return record;
+    }
+
+    private void logChange(Table table, JsonObject record) {
+        dirtyTables.add(table.getName());
+        if (wal != null) {
+            table.setLsn(wal.append(record));
         }
-        tables.remove(name);
     }
 
+    /**
+     * Завершает оператор. При durability SYNC с журналом ждёт групповой фиксации его записей, без журнала
+     * сохраняет изменённые таблицы; при PERIODIC и SHUTDOWN возвращается сразу, изменения сохраняет
+     * фоновый поток или close. Контрольная точка по числу записей журнала тоже выполняется в фоне.
+     * Затем таблицы сверх бюджета памяти вытесняются.
+     */
+    public void commit() throws IOException {
+        if (durability == Durability.SYNC || flusher == null) {
+            flush();
+        }
+        if (wal != null && wal.getRecordsSinceCheckpoint() >= DatabaseConfig.getCheckpointRecords()) {
+            if (flusher != null) {
+                flusher.request();
+            } else {
+                checkpoint();
+            }
+        }
+        evict(tables.enforceBudget(null));
+    }
+
+    /** Делает долговечными все выполненные операторы: сбрасывает журнал, а без журнала сохраняет таблицы. */
+    public void flush() throws IOException {
+        if (wal == null) {
+            checkpoint();
+        } else {
+            wal.sync(wal.getLastLsn());
+        }
+    }
+
+    public void checkpoint() throws IOException {
+        changeLock.writeLock().lock();
+        try {
+            if (wal == null) {
+                saveDirtyTables();
+            } else {
+                wal.checkpoint(this::saveDirtyTables);
+            }
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Вызывается под changeLock на запись, поэтому таблицы в это время не меняются. Таблица, которую
+     * не удалось сохранить, остаётся изменённой, а ошибка передаётся дальше, чтобы журнал не очищался.
+     */
+    private void saveDirtyTables() throws IOException {
+        IOException failure = null;
+        for (String tableName : dirtyTables) {
+            Table table = tables.get(tableName);
+            if (table != null) {
+                try {
+                    writeTableFile(tableName, table);
+                } catch (IOException e) {
+                    logger.severe("Ошибка при сохранении таблицы " + tableName + ": " + e.getMessage());
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                    continue;
+                }
+            }
+            dirtyTables.remove(tableName);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Останавливает фоновую запись и сохраняет все изменения; повторные вызовы ничего не делают. */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.stop();
+        }
+        try {
+            checkpoint();
+            if (wal != null) {
+                wal.close();
+            }
+        } catch (IOException e) {
+            logger.severe("Ошибка при закрытии базы данных: " + e.getMessage());
+        }
+    }
+
+    /** Возвращает таблицу из памяти, при необходимости загружая её с диска. */
     public Table getTable(String name) {
         Table table = tables.get(name);
-        if (table == null) {
+        if (table != null) {
+            return table;
+        }
+        if (!catalog.containsKey(name)) {
             throw new IllegalArgumentException("Ошибка: таблица " + name + " не найдена.");
         }
+
+        synchronized (this) {
+            table = tables.get(name);
+            if (table == null) {
+                long start = System.nanoTime();
+                table = loadTable(name);
+                if (table == null) {
+                    throw new IllegalStateException("Ошибка: не удалось загрузить таблицу " + name);
+                }
+                tables.put(name, table);
+                logger.info(String.format("Загружена таблица: %s (строк: %d, %d мс)", name,
+                        table.getRowCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+                evict(tables.enforceBudget(name));
+            }
+        }
         return table;
     }
 
+    public CatalogEntry getCatalogEntry(String name) {
+        return catalog.get(name);
+    }
+
     public Set<String> listTables() {
-        return tables.keySet();
+        return catalog.keySet();
     }
 }
\ No newline at end of file
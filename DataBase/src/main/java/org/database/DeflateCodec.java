@@ -0,0 +1,67 @@
+package org.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Сжатие блоков через JDK Deflater с уровнем level (1 — быстрее, 9 — сильнее). */
+public class DeflateCodec implements BlockCodec {
+    public static final byte ID = 1;
+
+    private final int level;
+
+    public DeflateCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public byte id() {return ID;}
+
+    @Override
+    public String name() {return "DEFLATE";}
+
+    @Override
+    public byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[1 << 14];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(ByteBuffer data, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, rawLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength || !inflater.finished()) {
+                throw new IOException("повреждён сжатый блок: распаковано " + length + " из " + rawLength + " байт");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("повреждён сжатый блок: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.database;
+
+/**
+ * Когда изменения становятся долговечными. SYNC — оператор ждёт записи журнала (без журнала — сохранения
+ * таблиц), PERIODIC — фоновый поток сбрасывает их раз в flush.interval_ms, SHUTDOWN — только при закрытии
+ * базы; при сбое теряются изменения, не сброшенные к этому моменту.
+ */
+public enum Durability {
+    SYNC, PERIODIC, SHUTDOWN
+}
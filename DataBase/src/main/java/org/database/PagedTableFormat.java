@@ -0,0 +1,514 @@
+package org.database;
+
+import org.index.Index;
+import org.index.IndexType;
+import org.model.Column;
+import org.model.Table;
+import org.storage.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+
+/**
+ * Страничный формат таблицы. Строки хранятся сегментами по {@link ZoneMap#ZONE_ROWS} слотов (сегмент —
+ * зона columnar-хранилища) в файле страниц NAME.поколение.pages из страниц по PAGE_SIZE байт.
+ * Заголовок лежит в NAME.db:
+ * <pre>
+ * "JDBP" | версия | имя | lsn | столбцы | индексы | поколение | число и размер страниц | слоты | сегменты
+ *        | свободные страницы | CRC32
+ * </pre>
+ * Сегмент — [число слотов][удалённые слоты][блоки столбцов как в BinaryTableFormat, каждый сжат
+ * отдельно][статистика зоны], в заголовке для него хранятся длина, CRC32 и номера страниц. В файлах
+ * версии 1 блоки не сжаты, а размер страницы не записан и равен 16 КБ.
+ * <p>
+ * При сохранении columnar-таблицы пишутся только сегменты зон, изменённых после прошлой записи: через
+ * FileChannel в свободные страницы, затем заголовок пишется во временный файл и атомарно заменяет прежний.
+ * Страницы, на которые ссылается действующий заголовок, не перезаписываются, поэтому сбой во время записи
+ * оставляет целой прежнюю версию таблицы, а освободившиеся страницы используются со следующей записи.
+ * После изменения схемы и уплотнения, для ROW-хранилища, файлов прежней версии и когда свободных страниц
+ * больше, чем занятых, таблица пишется целиком в файл страниц следующего поколения.
+ */
+public class PagedTableFormat {
+    static final int MAGIC = 0x4A444250;
+    static final short VERSION = 2;
+    static final int PAGE_SIZE = 4 * 1024;
+    private static final int V1_PAGE_SIZE = 16 * 1024;
+
+    private final StorageType storageType;
+    private final int parallelRows;
+    private final BlockCodec codec;
+
+    public PagedTableFormat(StorageType storageType, int parallelRows, BlockCodec codec) {
+        this.storageType = storageType;
+        this.parallelRows = parallelRows;
+        this.codec = codec;
+    }
+
+    /** Сегмент в файле страниц: slots слотов, length байт на страницах pages. */
+    private record Segment(int slots, int length, int checksum, int[] pages) {
+    }
+
+    private record Header(short version, String name, long lsn, List<Column> columns, List<String[]> indexes,
+                          long generation, int pageCount, int pageSize, int slotCount, List<Segment> segments,
+                          int[] freePages) {
+    }
+
+    public static boolean isPaged(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /** Файл страниц таблицы с заголовком path. */
+    static Path pagesPath(Path path, long generation) {
+        String name = path.getFileName().toString();
+        return path.resolveSibling(name.substring(0, name.length() - ".db".length()) + "." + generation + ".pages");
+    }
+
+    /** Удаляет заголовок и все файлы страниц таблицы. */
+    public static void delete(Path path) throws IOException {
+        deletePages(path);
+        Files.deleteIfExists(path);
+    }
+
+    /** Удаляет файлы страниц таблицы, например после перехода на другой формат. */
+    public static void deletePages(Path path) throws IOException {
+        if (Files.notExists(path.getParent())) {
+            return;
+        }
+        String name = path.getFileName().toString();
+        String prefix = name.substring(0, name.length() - ".db".length()) + ".";
+        try (DirectoryStream<Path> pages = Files.newDirectoryStream(path.getParent(), prefix + "*.pages")) {
+            for (Path file : pages) {
+                if (file.getFileName().toString().substring(prefix.length()).matches("\\d+\\.pages")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    public void write(Table table, Path path) throws IOException {
+        TableStorage storage = table.getStorage();
+        Header previous = previousHeader(path);
+        BitSet dirty = storage.dirtyZones();
+        boolean columnar = storage instanceof ColumnarStorage;
+        int slotCount = columnar ? storage.slotCount() : storage.size();
+        int segmentCount = (slotCount + ZoneMap.ZONE_ROWS - 1) >> ZoneMap.ZONE_SHIFT;
+
+        boolean incremental = columnar && dirty != null && previous != null && sameLayout(previous, path, table)
+                && previous.segments.size() <= segmentCount
+                && previous.freePages.length <= previous.pageCount - previous.freePages.length;
+        long generation = previous == null ? 1 : incremental ? previous.generation : previous.generation + 1;
+        Path pagesPath = pagesPath(path, generation);
+
+        int[] liveRows = columnar ? null : liveRows(storage);
+        List<Segment> segments = new ArrayList<>(segmentCount);
+        List<Integer> released = new ArrayList<>();
+        PageAllocator allocator = incremental
+                ? new PageAllocator(previous.freePages, previous.pageCount) : new PageAllocator(new int[0], 0);
+
+        Set<StandardOpenOption> options = incremental
+                ? EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+                : EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (FileChannel channel = FileChannel.open(pagesPath, options)) {
+            for (int segment = 0; segment < segmentCount; segment++) {
+                int from = segment << ZoneMap.ZONE_SHIFT;
+                int slots = Math.min(ZoneMap.ZONE_ROWS, slotCount - from);
+                Segment old = incremental && segment < previous.segments.size() ? previous.segments.get(segment) : null;
+                if (old != null && old.slots == slots && !dirty.get(segment)) {
+                    segments.add(old);
+                    continue;
+                }
+                if (old != null) {
+                    for (int page : old.pages) {
+                        released.add(page);
+                    }
+                }
+
+                int[] rowIds = new int[slots];
+                for (int i = 0; i < slots; i++) {
+                    rowIds[i] = columnar ? from + i : liveRows[from + i];
+                }
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                writeSegment(new DataOutputStream(data), table, rowIds, columnar ? segment : -1);
+                byte[] bytes = data.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                int[] pages = writePages(channel, bytes, allocator);
+                segments.add(new Segment(slots, bytes.length, (int) crc.getValue(), pages));
+            }
+            channel.force(true);
+        }
+
+        int[] freePages = allocator.remainingFree();
+        if (!released.isEmpty()) {
+            freePages = Arrays.copyOf(freePages, freePages.length + released.size());
+            for (int i = 0; i < released.size(); i++) {
+                freePages[freePages.length - released.size() + i] = released.get(i);
+            }
+            Arrays.sort(freePages);
+        }
+        writeHeader(path, table, new Header(VERSION, table.getName(), table.getLsn(),
+                List.copyOf(table.getColumns().values()), List.of(), generation, allocator.pageCount, PAGE_SIZE, slotCount, segments, freePages));
+
+        if (previous != null && previous.generation != generation) {
+            Files.deleteIfExists(pagesPath(path, previous.generation));
+        }
+        if (table.getStorage() == storage) {
+            storage.markClean();
+        }
+    }
+
+    /**
+     * Заголовок прежней записи, если файл страничный и цел; иначе null. Даже если его сегменты нельзя
+     * использовать повторно, новая запись идёт в следующее поколение, чтобы не затереть действующий файл страниц.
+     */
+    private static Header previousHeader(Path path) {
+        try {
+            return Files.exists(path) && isPaged(path) ? readHeader(path) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Сегменты прежней записи можно оставить: та же версия формата, таблица и схема, файл страниц на месте. */
+    private static boolean sameLayout(Header header, Path path, Table table) {
+        List<Column> columns = List.copyOf(table.getColumns().values());
+        if (header.version != VERSION || !header.name.equals(table.getName())
+                || header.columns.size() != columns.size() || !Files.exists(pagesPath(path, header.generation))) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!header.columns.get(i).getName().equals(columns.get(i).getName())
+                    || !header.columns.get(i).getType().equalsIgnoreCase(columns.get(i).getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] liveRows(TableStorage storage) {
+        int[] rowIds = new int[storage.size()];
+        int count = 0;
+        for (int rowId = storage.nextRowId(0); rowId != -1; rowId = storage.nextRowId(rowId + 1)) {
+            rowIds[count++] = rowId;
+        }
+        return rowIds;
+    }
+
+    /** zone — зона columnar-хранилища, статистику которой записать вместе с сегментом (-1 — без статистики). */
+    private void writeSegment(DataOutputStream out, Table table, int[] rowIds, int zone) throws IOException {
+        TableStorage storage = table.getStorage();
+        out.writeInt(rowIds.length);
+        BitSet deleted = new BitSet(rowIds.length);
+        for (int i = 0; i < rowIds.length; i++) {
+            deleted.set(i, storage.nextRowId(rowIds[i]) != rowIds[i]);
+        }
+        BinaryTableFormat.writeBitSet(out, deleted);
+
+        for (Column column : table.getColumns().values()) {
+            BinaryTableFormat.writeColumnBlock(out, storage, column, rowIds, codec);
+        }
+
+        out.writeBoolean(zone >= 0);
+        if (zone >= 0) {
+            ZoneMap zones = ((ColumnarStorage) storage).getZoneMap();
+            for (Column column : table.getColumns().values()) {
+                zones.writeZone(out, column.getName(), zone);
+            }
+        }
+    }
+
+    /** Пишет данные на выделенные страницы; подряд идущие страницы записываются одним вызовом. */
+    private static int[] writePages(FileChannel channel, byte[] bytes, PageAllocator allocator) throws IOException {
+        int[] pages = new int[Math.max(1, (bytes.length + PAGE_SIZE - 1) / PAGE_SIZE)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = allocator.allocate();
+        }
+        int first = 0;
+        while (first < pages.length) {
+            int last = first;
+            while (last + 1 < pages.length && pages[last + 1] == pages[last] + 1) {
+                last++;
+            }
+            int offset = first * PAGE_SIZE;
+            ByteBuffer run = ByteBuffer.wrap(bytes, offset, Math.min(bytes.length, (last + 1) * PAGE_SIZE) - offset);
+            long position = (long) pages[first] * PAGE_SIZE;
+            while (run.hasRemaining()) {
+                position += channel.write(run, position);
+            }
+            first = last + 1;
+        }
+        return pages;
+    }
+
+    /** Страницы выдаются из свободных по прежнему заголовку, затем с конца файла. */
+    private static final class PageAllocator {
+        private final int[] free;
+        private int nextFree;
+        private int pageCount;
+
+        PageAllocator(int[] free, int pageCount) {
+            this.free = free;
+            this.pageCount = pageCount;
+        }
+
+        int allocate() {
+            return nextFree < free.length ? free[nextFree++] : pageCount++;
+        }
+
+        int[] remainingFree() {
+            return Arrays.copyOfRange(free, nextFree, free.length);
+        }
+    }
+
+    private static void writeHeader(Path path, Table table, Header header) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        BinaryTableFormat.writeString(out, header.name);
+        out.writeLong(header.lsn);
+
+        out.writeInt(header.columns.size());
+        for (Column column : header.columns) {
+            BinaryTableFormat.writeString(out, column.getName());
+            BinaryTableFormat.writeString(out, column.getType());
+            out.writeByte((column.getIsUnique() ? 1 : 0) | (column.getIsNotNull() ? 2 : 0));
+        }
+
+        out.writeInt(table.getIndexes().size());
+        for (Index index : table.getIndexes().values()) {
+            BinaryTableFormat.writeString(out, index.getName());
+            BinaryTableFormat.writeString(out, index.getColumn());
+            BinaryTableFormat.writeString(out, index.getType().name());
+        }
+
+        out.writeLong(header.generation);
+        out.writeInt(header.pageCount);
+        out.writeInt(header.pageSize);
+        out.writeInt(header.slotCount);
+        out.writeInt(header.segments.size());
+        for (Segment segment : header.segments) {
+            out.writeInt(segment.slots);
+            out.writeInt(segment.length);
+            out.writeInt(segment.checksum);
+            out.writeInt(segment.pages.length);
+            for (int page : segment.pages) {
+                out.writeInt(page);
+            }
+        }
+        out.writeInt(header.freePages.length);
+        for (int page : header.freePages) {
+            out.writeInt(page);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Читает заголовок, проверяя контрольную сумму. */
+    private static Header readHeader(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < Integer.BYTES * 2) {
+            throw new IOException("Повреждён заголовок таблицы " + path + ": файл слишком короткий");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(bytes.length - Integer.BYTES) != (int) crc.getValue()) {
+            throw new IOException("Повреждён заголовок таблицы " + path + ": не совпадает контрольная сумма");
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Файл не является страничным файлом таблицы");
+            }
+            short version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Неподдерживаемая версия страничного формата таблицы: " + version);
+            }
+            String name = BinaryTableFormat.readString(buffer);
+            long lsn = buffer.getLong();
+            List<Column> columns = BinaryTableFormat.readColumns(buffer);
+
+            int indexCount = buffer.getInt();
+            List<String[]> indexes = new ArrayList<>();
+            for (int i = 0; i < indexCount; i++) {
+                indexes.add(new String[]{BinaryTableFormat.readString(buffer), BinaryTableFormat.readString(buffer),
+                        BinaryTableFormat.readString(buffer)});
+            }
+
+            long generation = buffer.getLong();
+            int pageCount = buffer.getInt();
+            int pageSize = version >= 2 ? buffer.getInt() : V1_PAGE_SIZE;
+            if (pageSize <= 0) {
+                throw new IOException("Повреждён заголовок таблицы " + path + ": размер страницы " + pageSize);
+            }
+            int slotCount = buffer.getInt();
+            int segmentCount = buffer.getInt();
+            List<Segment> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                int slots = buffer.getInt();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                int[] pages = new int[buffer.getInt()];
+                for (int page = 0; page < pages.length; page++) {
+                    pages[page] = buffer.getInt();
+                }
+                segments.add(new Segment(slots, length, checksum, pages));
+            }
+            int[] freePages = new int[buffer.getInt()];
+            for (int i = 0; i < freePages.length; i++) {
+                freePages[i] = buffer.getInt();
+            }
+            return new Header(version, name, lsn, columns, indexes, generation, pageCount, pageSize, slotCount,
+                    segments, freePages);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Повреждён заголовок таблицы " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Читает только заголовок: имя, LSN и схему таблицы. */
+    public CatalogEntry readCatalogEntry(Path path) throws IOException {
+        Header header = readHeader(path);
+        return new CatalogEntry(header.name, header.columns, header.lsn);
+    }
+
+    /** Прочитанный сегмент: колонки столбцов и статистика зоны (null, если её нет). */
+    private record SegmentData(BitSet deleted, List<ColumnVector> vectors, ByteBuffer zones) {
+    }
+
+    public Table read(Path path) throws IOException {
+        Header header = readHeader(path);
+        Table table = new Table(header.name, storageType);
+        table.setLsn(header.lsn);
+        for (Column column : header.columns) {
+            table.addColumn(column.getName(), column.getType(), column.getIsUnique(), column.getIsNotNull());
+        }
+
+        Path pagesPath = pagesPath(path, header.generation);
+        List<ForkJoinTask<SegmentData>> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(pagesPath, StandardOpenOption.READ)) {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (Segment segment : header.segments) {
+                tasks.add(ForkJoinTask.adapt(() -> readSegment(file, segment, header.columns, header.pageSize,
+                        header.version >= 2)));
+            }
+            List<SegmentData> segments = new ArrayList<>(tasks.size());
+            try {
+                if (header.slotCount >= parallelRows && tasks.size() > 1) {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+                for (ForkJoinTask<SegmentData> task : tasks) {
+                    segments.add(task.invoke());
+                }
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new IOException("Ошибка чтения файла страниц " + pagesPath + ": " + cause.getMessage(), cause);
+            }
+            load(table, header, segments);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Повреждён файл страниц " + pagesPath + ": " + e.getMessage(), e);
+        }
+
+        for (String[] index : header.indexes) {
+            table.createIndex(index[0], index[1], IndexType.valueOf(index[2]));
+        }
+        table.getStorage().markClean();
+        return table;
+    }
+
+    private static SegmentData readSegment(ByteBuffer file, Segment segment, List<Column> columns, int pageSize,
+                                           boolean coded)
+            throws IOException {
+        byte[] bytes = new byte[segment.length];
+        for (int i = 0; i < segment.pages.length; i++) {
+            int offset = i * pageSize;
+            file.get(segment.pages[i] * pageSize, bytes, offset, Math.min(pageSize, segment.length - offset));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != segment.checksum) {
+            throw new IOException("не совпадает контрольная сумма сегмента на странице " + segment.pages[0]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int slots = buffer.getInt();
+        BitSet deleted = BinaryTableFormat.readBitSet(buffer);
+        List<ColumnVector> vectors = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            byte kind = buffer.get();
+            int length = buffer.getInt();
+            ByteBuffer block = buffer.slice(buffer.position(), length);
+            vectors.add(BinaryTableFormat.readColumnBlock(block, kind, column.getType(), slots, coded));
+            buffer.position(buffer.position() + length);
+        }
+        return new SegmentData(deleted, vectors, buffer.get() != 0 ? buffer.slice() : null);
+    }
+
+    /** Склеивает колонки сегментов и загружает их в таблицу вместе со статистикой зон. */
+    private void load(Table table, Header header, List<SegmentData> segments) {
+        int[] rows = new int[segments.size()];
+        BitSet deleted = new BitSet(header.slotCount);
+        int base = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            rows[i] = header.segments.get(i).slots;
+            BitSet segmentDeleted = segments.get(i).deleted;
+            for (int slot = segmentDeleted.nextSetBit(0); slot >= 0; slot = segmentDeleted.nextSetBit(slot + 1)) {
+                deleted.set(base + slot);
+            }
+            base += rows[i];
+        }
+
+        Map<String, ColumnVector> vectors = new LinkedHashMap<>();
+        for (int column = 0; column < header.columns.size(); column++) {
+            List<ColumnVector> parts = new ArrayList<>(segments.size());
+            for (SegmentData segment : segments) {
+                parts.add(segment.vectors.get(column));
+            }
+            String name = header.columns.get(column).getName();
+            vectors.put(name, parts.isEmpty() ? ColumnVector.forType(header.columns.get(column).getType())
+                    : ColumnVector.concat(parts, rows));
+        }
+
+        ZoneMap zones = null;
+        if (storageType == StorageType.COLUMNAR && segments.stream().allMatch(segment -> segment.zones != null)) {
+            zones = ZoneMap.empty(vectors, segments.size());
+            for (int zone = 0; zone < segments.size() && zones != null; zone++) {
+                ByteBuffer buffer = segments.get(zone).zones;
+                for (Column column : header.columns) {
+                    if (!zones.readZone(buffer, column.getName(), zone)) {
+                        zones = null;
+                        break;
+                    }
+                }
+            }
+        }
+        table.loadColumns(vectors, header.slotCount, deleted.isEmpty() ? null : deleted, zones);
+    }
+}
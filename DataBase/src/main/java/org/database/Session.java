@@ -0,0 +1,77 @@
+package org.database;
+
+import org.command.ConsoleResultSink;
+import org.command.ResultSink;
+import org.parser.PreparedStatement;
+import org.transaction.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Сеанс работы с базой (один SQLParser). Хранит открытую транзакцию и подготовленные командой PREPARE
+ * команды; на время выполнения
+ * команды сеанс привязывается к потоку, чтобы DatabaseManager знал, от чьего имени она идёт.
+ */
+public class Session {
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private static final ResultSink CONSOLE = new ConsoleResultSink();
+
+    private final ResultSink resultSink;
+    private final Map<String, PreparedStatement> prepared = new HashMap<>();
+    private Transaction transaction;
+
+    public Session() {
+        this(CONSOLE);
+    }
+
+    public Session(ResultSink resultSink) {
+        this.resultSink = resultSink;
+    }
+
+    public ResultSink getResultSink() {return resultSink;}
+
+    public Transaction getTransaction() {return transaction;}
+
+    void setTransaction(Transaction transaction) {this.transaction = transaction;}
+
+    public void prepare(String name, PreparedStatement statement) {
+        prepared.put(name, statement);
+    }
+
+    public PreparedStatement getPrepared(String name) {
+        PreparedStatement statement = prepared.get(name);
+        if (statement == null) {
+            throw new IllegalArgumentException("Ошибка: подготовленная команда " + name + " не найдена.");
+        }
+        return statement;
+    }
+
+    public void deallocate(String name) {
+        if (prepared.remove(name) == null) {
+            throw new IllegalArgumentException("Ошибка: подготовленная команда " + name + " не найдена.");
+        }
+    }
+
+    public static Session current() {
+        return CURRENT.get();
+    }
+
+    /** Вывод текущего сеанса; вне сеанса — консоль. */
+    public static ResultSink currentSink() {
+        Session session = CURRENT.get();
+        return session == null ? CONSOLE : session.resultSink;
+    }
+
+    /** Привязывает сеанс к текущему потоку и возвращает прежний, чтобы его можно было вернуть. */
+    public static Session bind(Session session) {
+        Session previous = CURRENT.get();
+        if (session == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(session);
+        }
+        return previous;
+    }
+}
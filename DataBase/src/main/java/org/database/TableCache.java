@@ -0,0 +1,141 @@
+package org.database;
+
+import org.model.Table;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+/**
+ * Таблицы, находящиеся в памяти. При превышении бюджета вытесняются наименее недавно
+ * (LRU) или наименее часто (LFU) используемые таблицы; перед вытеснением вызывается
+ * beforeEvict, который сохраняет изменённую таблицу, — если он вернул false, таблица остаётся. Чтение из кэша не блокирует
+ * другие потоки: время и число обращений хранятся в самой записи.
+ */
+public class TableCache {
+    public enum Policy {
+        LRU, LFU
+    }
+
+    private final long budgetBytes;
+    private final Policy policy;
+    private final Predicate<Table> beforeEvict;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public TableCache(long budgetBytes, Policy policy, Predicate<Table> beforeEvict) {
+        this.budgetBytes = budgetBytes;
+        this.policy = policy;
+        this.beforeEvict = beforeEvict;
+    }
+
+    public Table get(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        entry.touch();
+        return entry.table;
+    }
+
+    /** Проверяет, что table — текущий экземпляр таблицы name, а не вытесненный или удалённый. */
+    public boolean isResident(String name, Table table) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.table == table;
+    }
+
+    public void put(String name, Table table) {
+        entries.put(name, new Entry(table));
+    }
+
+    public Table remove(String name) {
+        Entry entry = entries.remove(name);
+        return entry == null ? null : entry.table;
+    }
+
+    public List<Table> values() {
+        List<Table> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            result.add(entry.table);
+        }
+        return result;
+    }
+
+    public long residentBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.table.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Вытесняет таблицы, пока их объём больше бюджета (0 - без ограничения); keep не вытесняется.
+     * Таблицы, заблокированные другими потоками, с незавершёнными версиями строк или открытыми
+     * курсорами пропускаются.
+     */
+    public synchronized List<String> enforceBudget(String keep) {
+        List<String> evicted = new ArrayList<>();
+        if (budgetBytes <= 0) {
+            return evicted;
+        }
+
+        long bytes = residentBytes();
+        for (Candidate candidate : candidates()) {
+            if (bytes <= budgetBytes) {
+                break;
+            }
+            if (candidate.name().equals(keep)) {
+                continue;
+            }
+
+            Table table = candidate.entry().table;
+            Lock lock = table.getLock().writeLock();
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (table.hasPendingVersions() || table.isPinned() || !beforeEvict.test(table)) {
+                    continue;
+                }
+                entries.remove(candidate.name(), candidate.entry());
+            } finally {
+                lock.unlock();
+            }
+            bytes -= table.estimateBytes();
+            evicted.add(candidate.name());
+        }
+        return evicted;
+    }
+
+    /** Кандидаты на вытеснение, начиная с первого; счётчики снимаются один раз, пока их меняют другие потоки. */
+    private List<Candidate> candidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry value = entry.getValue();
+            long rank = policy == Policy.LRU ? value.lastAccess : value.hits.sum();
+            candidates.add(new Candidate(entry.getKey(), value, rank));
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::rank));
+        return candidates;
+    }
+
+    private record Candidate(String name, Entry entry, long rank) {
+    }
+
+    private static class Entry {
+        private final Table table;
+        private final LongAdder hits = new LongAdder();
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(Table table) {
+            this.table = table;
+        }
+
+        private void touch() {
+            hits.increment();
+            lastAccess = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.database;
+
+/** Формат, в котором сохраняются файлы таблиц; читаются файлы любого формата. */
+public enum TableFileFormat {
+    PAGED, BINARY, JSON
+}
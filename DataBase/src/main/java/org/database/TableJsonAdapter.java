@@ -0,0 +1,171 @@
+package org.database;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import org.index.Index;
+import org.index.IndexType;
+import org.model.Column;
+import org.model.Table;
+import org.storage.StorageType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-представление таблицы: {"name", "columns", "rows", "indexes"}. Индексы хранятся
+ * только определениями и перестраиваются после загрузки строк. Значения строк приводятся
+ * к типу столбца сразу при чтении, поэтому хранилище получает уже типизированные данные.
+ */
+public class TableJsonAdapter implements JsonSerializer<Table>, JsonDeserializer<Table> {
+    private final StorageType storageType;
+
+    public TableJsonAdapter(StorageType storageType) {
+        this.storageType = storageType;
+    }
+
+    @Override
+    public JsonElement serialize(Table table, Type typeOfSrc, JsonSerializationContext context) {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", table.getName());
+        json.addProperty("lsn", table.getLsn());
+        json.add("columns", context.serialize(table.getColumns()));
+
+        JsonArray rows = new JsonArray();
+        for (Map<String, Object> row : table.getRows()) {
+            JsonObject jsonRow = new JsonObject();
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                if (entry.getValue() != null) {
+                    jsonRow.add(entry.getKey(), context.serialize(entry.getValue()));
+                }
+            }
+            rows.add(jsonRow);
+        }
+        json.add("rows", rows);
+
+        JsonArray indexes = new JsonArray();
+        for (Index index : table.getIndexes().values()) {
+            JsonObject jsonIndex = new JsonObject();
+            jsonIndex.addProperty("name", index.getName());
+            jsonIndex.addProperty("column", index.getColumn());
+            jsonIndex.addProperty("type", index.getType().name());
+            indexes.add(jsonIndex);
+        }
+        json.add("indexes", indexes);
+        return json;
+    }
+
+    @Override
+    public Table deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+            throws JsonParseException {
+        JsonObject object = json.getAsJsonObject();
+        Table table = new Table(object.get("name").getAsString(), storageType);
+        if (object.has("lsn")) {
+            table.setLsn(object.get("lsn").getAsLong());
+        }
+
+        for (Map.Entry<String, JsonElement> entry : object.getAsJsonObject("columns").entrySet()) {
+            Column column = context.deserialize(entry.getValue(), Column.class);
+            table.addColumn(column.getName(), column.getType(), column.getIsUnique(), column.getIsNotNull());
+        }
+
+        JsonArray rows = object.has("rows") ? object.getAsJsonArray("rows") : new JsonArray();
+        for (JsonElement rowElement : rows) {
+            JsonObject jsonRow = rowElement.getAsJsonObject();
+            Map<String, Object> row = new HashMap<>();
+            for (Column column : table.getColumns().values()) {
+                row.put(column.getName(), readValue(jsonRow.get(column.getName()), column.getType()));
+            }
+            try {
+                table.insertRow(row);
+            } catch (Exception e) {
+                throw new JsonParseException("Ошибка загрузки строки таблицы " + table.getName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (object.has("indexes")) {
+            for (JsonElement indexElement : object.getAsJsonArray("indexes")) {
+                JsonObject jsonIndex = indexElement.getAsJsonObject();
+                table.createIndex(jsonIndex.get("name").getAsString(), jsonIndex.get("column").getAsString(),
+                        IndexType.valueOf(jsonIndex.get("type").getAsString()));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Читает из JSON-файла таблицы только имя, LSN и столбцы. Строки пишутся после столбцов,
+     * поэтому чтение останавливается, не разбирая их.
+     */
+    static CatalogEntry readCatalogEntry(Reader source, Gson gson) throws IOException {
+        JsonReader reader = new JsonReader(source);
+        String name = null;
+        long lsn = 0;
+        List<Column> columns = null;
+
+        reader.beginObject();
+        while (reader.hasNext() && (name == null || columns == null)) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "lsn" -> lsn = reader.nextLong();
+                case "columns" -> {
+                    columns = new ArrayList<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        reader.nextName();
+                        columns.add(gson.fromJson(reader, Column.class));
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+
+        if (name == null || columns == null) {
+            throw new IOException("В файле таблицы нет имени или списка столбцов");
+        }
+        return new CatalogEntry(name, columns, lsn);
+    }
+
+    static Object readValue(JsonElement element, String type) {
+        if (element == null || element.isJsonNull()) {
+            return "";
+        }
+
+        String typeKey = type.toLowerCase();
+        if (element.isJsonArray()) {
+            String elementType = typeKey.startsWith("[]") ? elementType(typeKey) : typeKey;
+            List<Object> array = new ArrayList<>();
+            for (JsonElement item : element.getAsJsonArray()) {
+                array.add(readValue(item, elementType));
+            }
+            return array;
+        }
+
+        if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() && element.getAsString().isEmpty()) {
+            return "";
+        }
+
+        return switch (typeKey) {
+            case "int" -> element.getAsInt();
+            case "boolean" -> element.getAsBoolean();
+            case "date" -> ZonedDateTime.parse(element.getAsString(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            default -> element.getAsString();
+        };
+    }
+
+    private static String elementType(String arrayType) {
+        return switch (arrayType.substring(2)) {
+            case "ints" -> "int";
+            case "booleans" -> "boolean";
+            case "dates" -> "date";
+            default -> "string";
+        };
+    }
+}
@@ -0,0 +1,249 @@
+package org.database;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.app.LoggerManager;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений базы: записи [длина][crc32][json] дописываются в конец файла.
+ * Групповая фиксация: первый ждущий поток становится лидером, выжидает окно
+ * groupCommitMillis, пока другие потоки добавят свои записи, и одним force()
+ * делает долговечными все накопленные записи.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerManager.getLogger(WriteAheadLog.class);
+    private static final int MAX_RECORD_SIZE = 1 << 30;
+
+    private final Path path;
+    private final long groupCommitMillis;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private FileChannel channel;
+    private long lastLsn;
+    private long durableLsn;
+    private int recordsSinceCheckpoint;
+    private boolean syncInProgress;
+    /** Ошибка, после которой конец файла журнала неизвестен и дописывать в него нельзя. */
+    private IOException failure;
+
+    public WriteAheadLog(Path path, long groupCommitMillis) {
+        this.path = path;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    /** Читает журнал, передаёт записи в handler и открывает файл на дозапись после последней целой записи. */
+    public synchronized void open(Consumer<JsonObject> handler) throws IOException {
+        long validLength = 0;
+
+        if (Files.exists(path)) {
+            long fileSize = Files.size(path);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    Entry entry = readEntry(in, fileSize - validLength - 8);
+                    if (entry == null) {
+                        break;
+                    }
+                    validLength += 8 + entry.size();
+                    lastLsn = Math.max(lastLsn, entry.record().get("lsn").getAsLong());
+                    handler.accept(entry.record());
+                }
+            }
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            logger.warning("Журнал " + path + " обрезан до последней целой записи (" + validLength + " байт)");
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        durableLsn = lastLsn;
+    }
+
+    /** Длина, не помещающаяся в оставшиеся available байт файла, — оборванный или испорченный хвост журнала. */
+    private Entry readEntry(DataInputStream in, long available) throws IOException {
+        int size;
+        long checksum;
+        byte[] data;
+        try {
+            size = in.readInt();
+            checksum = in.readInt() & 0xFFFFFFFFL;
+            if (size < 0 || size > available || size > MAX_RECORD_SIZE) {
+                logger.warning("Некорректная длина записи в журнале " + path + ": " + size + ", восстановление остановлено");
+                return null;
+            }
+            data = new byte[size];
+            in.readFully(data);
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != checksum) {
+            logger.warning("Повреждённая запись в журнале " + path + ", восстановление остановлено");
+            return null;
+        }
+
+        try {
+            return new Entry(JsonParser.parseString(new String(data, StandardCharsets.UTF_8)).getAsJsonObject(), size);
+        } catch (JsonSyntaxException | IllegalStateException e) {
+            logger.warning("Некорректная запись в журнале " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Добавляет запись в буфер журнала и возвращает её LSN; на диск она попадёт при sync. */
+    public synchronized long append(JsonObject record) {
+        long lsn = ++lastLsn;
+        record.addProperty("lsn", lsn);
+        byte[] data = record.toString().getBytes(StandardCharsets.UTF_8);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        try {
+            pendingOut.writeInt(data.length);
+            pendingOut.writeInt((int) crc.getValue());
+            pendingOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordsSinceCheckpoint++;
+        return lsn;
+    }
+
+    public synchronized long getLastLsn() {return lastLsn;}
+
+    public synchronized void advanceLsn(long lsn) {
+        lastLsn = Math.max(lastLsn, lsn);
+        durableLsn = Math.max(durableLsn, lsn);
+    }
+
+    public synchronized int getRecordsSinceCheckpoint() {return recordsSinceCheckpoint;}
+
+    /** Ждёт, пока записи до lsn включительно не будут сброшены на диск; при ошибке записи они остаются в буфере. */
+    public void sync(long lsn) throws IOException {
+        synchronized (this) {
+            while (durableLsn < lsn && syncInProgress) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Ожидание записи журнала прервано");
+                }
+            }
+            if (durableLsn >= lsn) {
+                return;
+            }
+            if (failure != null) {
+                throw new IOException("Журнал " + path + " не удалось вернуть к последней целой записи", failure);
+            }
+            syncInProgress = true;
+        }
+
+        byte[] batch = null;
+        long start = -1;
+        try {
+            if (groupCommitMillis > 0) {
+                try {
+                    Thread.sleep(groupCommitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            long batchLsn;
+            synchronized (this) {
+                batch = pending.toByteArray();
+                pending.reset();
+                batchLsn = lastLsn;
+            }
+
+            start = channel.position();
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            synchronized (this) {
+                durableLsn = Math.max(durableLsn, batchLsn);
+            }
+        } catch (IOException | RuntimeException e) {
+            restore(batch, start);
+            throw e;
+        } finally {
+            synchronized (this) {
+                syncInProgress = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Возвращает несохранённый пакет в начало буфера и обрезает файл до начала пакета, чтобы следующий
+     * sync записал его заново. Если файл обрезать не удалось, журнал переходит в состояние ошибки.
+     */
+    private synchronized void restore(byte[] batch, long start) {
+        if (batch == null) {
+            return;
+        }
+        byte[] later = pending.toByteArray();
+        pending.reset();
+        pending.write(batch, 0, batch.length);
+        pending.write(later, 0, later.length);
+        if (start >= 0) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Snapshot {
+        void run() throws IOException;
+    }
+
+    /**
+     * Контрольная точка: snapshot сохраняет все изменённые таблицы, после чего журнал
+     * очищается. Вызывается под монитором журнала, поэтому новые записи в это время не появляются.
+     * Если snapshot завершился ошибкой, журнал остаётся как есть.
+     */
+    public synchronized void checkpoint(Snapshot snapshot) throws IOException {
+        sync(lastLsn);
+        snapshot.run();
+
+        channel.truncate(0);
+        channel.position(0);
+        JsonObject marker = new JsonObject();
+        marker.addProperty("op", "CHECKPOINT");
+        append(marker);
+        sync(lastLsn);
+        recordsSinceCheckpoint = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            sync(lastLsn);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private record Entry(JsonObject record, int size) {
+    }
+}
@@ -0,0 +1,57 @@
+package org.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class HashIndex implements Index {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final String name;
+    private final String column;
+    private final Map<Object, RowIdList> entries = new HashMap<>();
+
+    public HashIndex(String name, String column) {
+        this.name = name;
+        this.column = column;
+    }
+
+    @Override
+    public String getName() {return name;}
+
+    @Override
+    public String getColumn() {return column;}
+
+    @Override
+    public IndexType getType() {return IndexType.HASH;}
+
+    @Override
+    public void insert(Object key, int rowId) {
+        entries.computeIfAbsent(Index.key(key), k -> new RowIdList()).add(rowId);
+    }
+
+    @Override
+    public void remove(Object key, int rowId) {
+        Object indexKey = Index.key(key);
+        RowIdList rowIds = entries.get(indexKey);
+        if (rowIds != null) {
+            rowIds.remove(rowId);
+            if (rowIds.isEmpty()) {
+                entries.remove(indexKey);
+            }
+        }
+    }
+
+    @Override
+    public int[] lookup(Object key) {
+        RowIdList rowIds = entries.get(Index.key(key));
+        return rowIds == null ? NO_ROWS : rowIds.toArray();
+    }
+
+    @Override
+    public int keyCount() {return entries.size();}
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package org.index;
+
+import java.time.ZonedDateTime;
+
+public interface Index {
+    /** Ключ индекса для значения: даты равны при совпадении момента времени, как в условиях WHERE. */
+    static Object key(Object value) {
+        return value instanceof ZonedDateTime date ? date.toInstant() : value;
+    }
+
+    String getName();
+
+    String getColumn();
+
+    IndexType getType();
+
+    void insert(Object key, int rowId);
+
+    void remove(Object key, int rowId);
+
+    /** rowId строк со значением key в порядке возрастания. */
+    int[] lookup(Object key);
+
+    int keyCount();
+
+    void clear();
+}
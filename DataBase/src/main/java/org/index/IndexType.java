@@ -0,0 +1,12 @@
+package org.index;
+
+public enum IndexType {
+    HASH, TREE;
+
+    public Index create(String name, String column) {
+        return switch (this) {
+            case HASH -> new HashIndex(name, column);
+            case TREE -> new TreeIndex(name, column);
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package org.index;
+
+import java.util.Arrays;
+
+/**
+ * Упорядоченный по возрастанию список rowId без упаковки в Integer.
+ */
+public class RowIdList {
+    private int[] ids = new int[2];
+    private int size;
+
+    public void add(int rowId) {
+        if (size > 0 && ids[size - 1] == rowId) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int position = size;
+        if (size > 0 && ids[size - 1] > rowId) {
+            position = Arrays.binarySearch(ids, 0, size, rowId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+        }
+        ids[position] = rowId;
+        size++;
+    }
+
+    public void remove(int rowId) {
+        int position = Arrays.binarySearch(ids, 0, size, rowId);
+        if (position >= 0) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int get(int i) {return ids[i];}
+
+    public int size() {return size;}
+
+    public boolean isEmpty() {return size == 0;}
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
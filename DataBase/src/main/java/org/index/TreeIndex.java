@@ -0,0 +1,132 @@
+package org.index;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Упорядоченный индекс для диапазонов и SORT. Пустые значения не сравнимы с остальными
+ * ключами, поэтому хранятся отдельно и при обходе идут первыми.
+ */
+public class TreeIndex implements Index {
+    private final String name;
+    private final String column;
+    private final TreeMap<Comparable<Object>, RowIdList> entries = new TreeMap<>();
+    private final RowIdList empty = new RowIdList();
+
+    public TreeIndex(String name, String column) {
+        this.name = name;
+        this.column = column;
+    }
+
+    @Override
+    public String getName() {return name;}
+
+    @Override
+    public String getColumn() {return column;}
+
+    @Override
+    public IndexType getType() {return IndexType.TREE;}
+
+    @Override
+    public void insert(Object key, int rowId) {
+        if (isEmpty(key)) {
+            empty.add(rowId);
+            return;
+        }
+        entries.computeIfAbsent(asKey(key), k -> new RowIdList()).add(rowId);
+    }
+
+    @Override
+    public void remove(Object key, int rowId) {
+        if (isEmpty(key)) {
+            empty.remove(rowId);
+            return;
+        }
+        Comparable<Object> treeKey = asKey(key);
+        RowIdList rowIds = entries.get(treeKey);
+        if (rowIds != null) {
+            rowIds.remove(rowId);
+            if (rowIds.isEmpty()) {
+                entries.remove(treeKey);
+            }
+        }
+    }
+
+    @Override
+    public int[] lookup(Object key) {
+        if (isEmpty(key)) {
+            return empty.toArray();
+        }
+        RowIdList rowIds = entries.get(asKey(key));
+        return rowIds == null ? new int[0] : rowIds.toArray();
+    }
+
+    /** rowId строк с ключом в диапазоне; null вместо границы — диапазон не ограничен. */
+    public int[] range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        NavigableMap<Comparable<Object>, RowIdList> range = entries;
+        if (from != null) {
+            range = range.tailMap(asKey(from), fromInclusive);
+        }
+        if (to != null) {
+            range = range.headMap(asKey(to), toInclusive);
+        }
+
+        int count = 0;
+        for (RowIdList rowIds : range.values()) {
+            count += rowIds.size();
+        }
+        int[] result = new int[count];
+        int position = 0;
+        for (RowIdList rowIds : range.values()) {
+            for (int i = 0; i < rowIds.size(); i++) {
+                result[position++] = rowIds.get(i);
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Обход в порядке ключа; строки с одинаковым ключом идут в порядке rowId, как при стабильной сортировке. */
+    public void forEachOrdered(boolean descending, IntConsumer action) {
+        if (!descending) {
+            forEach(empty, action);
+        }
+        NavigableMap<Comparable<Object>, RowIdList> ordered = descending ? entries.descendingMap() : entries;
+        for (RowIdList rowIds : ordered.values()) {
+            forEach(rowIds, action);
+        }
+        if (descending) {
+            forEach(empty, action);
+        }
+    }
+
+    private static void forEach(RowIdList rowIds, IntConsumer action) {
+        for (int i = 0; i < rowIds.size(); i++) {
+            action.accept(rowIds.get(i));
+        }
+    }
+
+    @Override
+    public int keyCount() {return entries.size() + (empty.isEmpty() ? 0 : 1);}
+
+    @Override
+    public void clear() {
+        entries.clear();
+        empty.clear();
+    }
+
+    private static boolean isEmpty(Object key) {
+        return key == null || "".equals(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> asKey(Object value) {
+        Object key = Index.key(value);
+        if (!(key instanceof Comparable)) {
+            throw new IllegalArgumentException("Значение " + key + " нельзя использовать в упорядоченном индексе");
+        }
+        return (Comparable<Object>) key;
+    }
+}
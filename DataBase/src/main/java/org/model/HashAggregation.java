@@ -0,0 +1,348 @@
+package org.model;
+
+import org.planner.Aggregate;
+import org.storage.ColumnVector;
+import org.storage.ColumnarStorage;
+import org.storage.DateColumnVector;
+import org.storage.IntColumnVector;
+import org.storage.StringColumnVector;
+import org.storage.TableStorage;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Хеш-агрегация для SELECT с агрегатами и GROUP BY. Группа находится по ключу в хеш-таблице и получает номер,
+ * состояние агрегатов хранится в примитивных массивах по номеру группы: счётчики и суммы — long[],
+ * MIN/MAX — номер лучшей строки, который сравнивается напрямую в колонке хранилища. При параллельном
+ * просмотре каждая часть слотов агрегируется в свою частичную таблицу групп, затем части сливаются
+ * в порядке слотов, поэтому группы выводятся в порядке первой встреченной строки.
+ */
+final class HashAggregation {
+    private final TableStorage storage;
+    private final List<String> groupBy;
+    private final List<Aggregate> items;
+    private final List<Aggregate> functions = new ArrayList<>();
+
+    HashAggregation(Table table, List<String> groupBy, List<Aggregate> items) {
+        this.storage = table.getStorage();
+        this.groupBy = groupBy;
+        this.items = items;
+        for (String column : groupBy) {
+            table.getColumn(column);
+        }
+        for (Aggregate item : items) {
+            if (item.function() == null) {
+                if (!groupBy.contains(item.column())) {
+                    throw new IllegalArgumentException("Ошибка: столбец " + item.column()
+                            + " должен быть в GROUP BY или внутри агрегатной функции.");
+                }
+                continue;
+            }
+            if (item.column() != null) {
+                String type = table.getColumn(item.column()).getType().toLowerCase();
+                boolean numeric = item.function() == Aggregate.Function.SUM || item.function() == Aggregate.Function.AVG;
+                if (numeric && !type.equals("int") || type.startsWith("[]") && item.function() != Aggregate.Function.COUNT) {
+                    throw new IllegalArgumentException("Ошибка: функция " + item.function()
+                            + " не применима к столбцу " + item.column() + " (" + type + ").");
+                }
+            }
+            functions.add(item);
+        }
+    }
+
+    /** Пустая частичная таблица групп; заполняется add, сливается в итоговую merge. */
+    Groups newGroups() {
+        Accumulator[] accumulators = new Accumulator[functions.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = accumulator(functions.get(i));
+        }
+        return new Groups(accumulators);
+    }
+
+    /**
+     * Строки результата в порядке элементов SELECT. Без GROUP BY результат — одна строка, даже если
+     * подходящих строк нет (COUNT = 0, остальные функции — пусто).
+     */
+    List<List<Object>> result(Groups groups) {
+        if (groupBy.isEmpty() && groups.keys.isEmpty()) {
+            groups.group(List.of());
+        }
+        List<List<Object>> rows = new ArrayList<>(groups.keys.size());
+        for (int group = 0; group < groups.keys.size(); group++) {
+            Object key = groups.keys.get(group);
+            List<Object> row = new ArrayList<>(items.size());
+            int function = 0;
+            for (Aggregate item : items) {
+                if (item.function() == null) {
+                    int index = groupBy.indexOf(item.column());
+                    row.add(groupBy.size() == 1 ? key : ((List<?>) key).get(index));
+                } else {
+                    row.add(groups.accumulators[function++].result(group));
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Ключ группы: значение столбца GROUP BY или список значений; пустые значения образуют одну группу. */
+    private Object key(int rowId) {
+        if (groupBy.isEmpty()) {
+            return List.of();
+        }
+        if (groupBy.size() == 1) {
+            return keyValue(rowId, groupBy.get(0));
+        }
+        Object[] values = new Object[groupBy.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = keyValue(rowId, groupBy.get(i));
+        }
+        return Arrays.asList(values);
+    }
+
+    private Object keyValue(int rowId, String column) {
+        Object value = storage.getValue(rowId, column);
+        return value == null ? "" : value;
+    }
+
+    /** Таблица групп: ключ -> номер группы, ключи в порядке появления, состояние агрегатов по номеру. */
+    final class Groups {
+        private final Map<Object, Integer> numbers = new HashMap<>();
+        private final List<Object> keys = new ArrayList<>();
+        private final Accumulator[] accumulators;
+
+        private Groups(Accumulator[] accumulators) {
+            this.accumulators = accumulators;
+        }
+
+        void add(int rowId) {
+            int group = group(key(rowId));
+            for (Accumulator accumulator : accumulators) {
+                accumulator.add(group, rowId);
+            }
+        }
+
+        /** Добавляет группы другой частичной таблицы (части слотов, следующей за уже слитыми). */
+        void merge(Groups other) {
+            for (int otherGroup = 0; otherGroup < other.keys.size(); otherGroup++) {
+                int group = group(other.keys.get(otherGroup));
+                for (int i = 0; i < accumulators.length; i++) {
+                    accumulators[i].merge(group, other.accumulators[i], otherGroup);
+                }
+            }
+        }
+
+        private int group(Object key) {
+            Integer group = numbers.get(key);
+            if (group == null) {
+                group = keys.size();
+                numbers.put(key, group);
+                keys.add(key);
+                for (Accumulator accumulator : accumulators) {
+                    accumulator.grow(keys.size());
+                }
+            }
+            return group;
+        }
+    }
+
+    private Accumulator accumulator(Aggregate aggregate) {
+        if (aggregate.column() == null) {
+            return new Count(rowId -> false);
+        }
+        String column = aggregate.column();
+        ColumnVector vector = storage instanceof ColumnarStorage columnar ? columnar.getVector(column) : null;
+        IntPredicate isNull = vector != null ? vector::isNull : rowId -> isEmpty(storage.getValue(rowId, column));
+        return switch (aggregate.function()) {
+            case COUNT -> new Count(isNull);
+            case SUM, AVG -> new Sum(isNull, intReader(column, vector), aggregate.function() == Aggregate.Function.AVG);
+            case MIN, MAX -> new Best(column, isNull, rowComparator(column, vector), aggregate.function() == Aggregate.Function.MAX);
+        };
+    }
+
+    private IntReader intReader(String column, ColumnVector vector) {
+        if (vector instanceof IntColumnVector ints) {
+            return ints::getInt;
+        }
+        return rowId -> (Integer) storage.getValue(rowId, column);
+    }
+
+    /** Сравнение значений столбца в двух строках без создания объектов для int, date и string колонок. */
+    private RowComparator rowComparator(String column, ColumnVector vector) {
+        if (vector instanceof IntColumnVector ints) {
+            return (row1, row2) -> Integer.compare(ints.getInt(row1), ints.getInt(row2));
+        }
+        if (vector instanceof DateColumnVector dates) {
+            return (row1, row2) -> {
+                int result = Long.compare(dates.getEpochSecond(row1), dates.getEpochSecond(row2));
+                return result != 0 ? result : Integer.compare(dates.getNano(row1), dates.getNano(row2));
+            };
+        }
+        if (vector instanceof StringColumnVector strings) {
+            return (row1, row2) -> {
+                int code1 = strings.getCode(row1);
+                int code2 = strings.getCode(row2);
+                return code1 == code2 ? 0 : strings.decode(code1).compareTo(strings.decode(code2));
+            };
+        }
+        return (row1, row2) -> compareValues(storage.getValue(row1, column), storage.getValue(row2, column));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object value1, Object value2) {
+        if (value1 instanceof ZonedDateTime date1 && value2 instanceof ZonedDateTime date2) {
+            return date1.toInstant().compareTo(date2.toInstant());
+        }
+        return ((Comparable) value1).compareTo(value2);
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || "".equals(value);
+    }
+
+    private interface RowComparator {
+        int compare(int row1, int row2);
+    }
+
+    private interface IntReader {
+        int get(int rowId);
+    }
+
+    /** Состояние одной агрегатной функции для всех групп частичной таблицы. */
+    private abstract static class Accumulator {
+        abstract void grow(int groups);
+
+        abstract void add(int group, int rowId);
+
+        abstract void merge(int group, Accumulator other, int otherGroup);
+
+        abstract Object result(int group);
+
+        static long[] grow(long[] array, int groups) {
+            return groups <= array.length ? array : Arrays.copyOf(array, Math.max(groups, array.length * 2));
+        }
+    }
+
+    /** COUNT(*) (isNull всегда ложно) и COUNT(столбец) — число непустых значений. */
+    private static final class Count extends Accumulator {
+        private final IntPredicate isNull;
+        private long[] counts = new long[16];
+
+        Count(IntPredicate isNull) {
+            this.isNull = isNull;
+        }
+
+        void grow(int groups) {
+            counts = grow(counts, groups);
+        }
+
+        void add(int group, int rowId) {
+            if (!isNull.test(rowId)) {
+                counts[group]++;
+            }
+        }
+
+        void merge(int group, Accumulator other, int otherGroup) {
+            counts[group] += ((Count) other).counts[otherGroup];
+        }
+
+        Object result(int group) {
+            return counts[group];
+        }
+    }
+
+    /** SUM и AVG по int-столбцу: сумма в long и число непустых значений; без значений результат пуст. */
+    private static final class Sum extends Accumulator {
+        private final IntPredicate isNull;
+        private final IntReader values;
+        private final boolean average;
+        private long[] sums = new long[16];
+        private long[] counts = new long[16];
+
+        Sum(IntPredicate isNull, IntReader values, boolean average) {
+            this.isNull = isNull;
+            this.values = values;
+            this.average = average;
+        }
+
+        void grow(int groups) {
+            sums = grow(sums, groups);
+            counts = grow(counts, groups);
+        }
+
+        void add(int group, int rowId) {
+            if (!isNull.test(rowId)) {
+                sums[group] += values.get(rowId);
+                counts[group]++;
+            }
+        }
+
+        void merge(int group, Accumulator other, int otherGroup) {
+            Sum sum = (Sum) other;
+            sums[group] += sum.sums[otherGroup];
+            counts[group] += sum.counts[otherGroup];
+        }
+
+        Object result(int group) {
+            if (counts[group] == 0) {
+                return "";
+            }
+            return average ? (double) sums[group] / counts[group] : (Object) sums[group];
+        }
+    }
+
+    /** MIN и MAX: номер строки с лучшим значением (-1 — значений нет); при равных остаётся более ранняя строка. */
+    private final class Best extends Accumulator {
+        private final String column;
+        private final IntPredicate isNull;
+        private final RowComparator comparator;
+        private final boolean max;
+        private int[] rows = new int[0];
+
+        Best(String column, IntPredicate isNull, RowComparator comparator, boolean max) {
+            this.column = column;
+            this.isNull = isNull;
+            this.comparator = comparator;
+            this.max = max;
+        }
+
+        void grow(int groups) {
+            if (groups > rows.length) {
+                int oldLength = rows.length;
+                rows = Arrays.copyOf(rows, Math.max(groups, Math.max(16, oldLength * 2)));
+                Arrays.fill(rows, oldLength, rows.length, -1);
+            }
+        }
+
+        void add(int group, int rowId) {
+            if (!isNull.test(rowId)) {
+                offer(group, rowId);
+            }
+        }
+
+        void merge(int group, Accumulator other, int otherGroup) {
+            int rowId = ((Best) other).rows[otherGroup];
+            if (rowId != -1) {
+                offer(group, rowId);
+            }
+        }
+
+        private void offer(int group, int rowId) {
+            int best = rows[group];
+            if (best == -1) {
+                rows[group] = rowId;
+                return;
+            }
+            int result = comparator.compare(rowId, best);
+            if (max ? result > 0 : result < 0) {
+                rows[group] = rowId;
+            }
+        }
+
+        Object result(int group) {
+            return rows[group] == -1 ? "" : storage.getValue(rows[group], column);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.model;
+
+import org.planner.JoinPlan;
+import org.planner.QueryPlan;
+import org.storage.TableStorage;
+import org.storage.ValueRange;
+import org.transaction.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Выполнение соединения по {@link JoinPlan}. Строки обеих таблиц отбираются планами сторон с одним снимком,
+ * пустые значения столбца соединения ни с чем не совпадают. Для HASH номера строк inner собираются в массив,
+ * а строки с одинаковым ключом связываются в цепочку через next, голова которой хранится в HashMap, —
+ * по одному int на строку вместо списка на каждый ключ. Совпадения строки outer выдаются в порядке строк inner.
+ * Вызывается под блокировками на чтение обеих таблиц.
+ */
+public final class HashJoin {
+    private final JoinPlan plan;
+    private final Table left;
+    private final Table right;
+    private final Snapshot snapshot;
+
+    public HashJoin(JoinPlan plan, Table left, Table right, Snapshot snapshot) {
+        this.plan = plan;
+        this.left = left;
+        this.right = right;
+        this.snapshot = snapshot;
+    }
+
+    /** Значения columns для найденных пар строк; после maxRows пар остальные пропускаются. */
+    public List<List<Object>> rows(List<JoinPlan.ColumnRef> columns, long maxRows) {
+        TableStorage leftStorage = left.getStorage();
+        TableStorage rightStorage = right.getStorage();
+        List<List<Object>> rows = new ArrayList<>();
+        forEachPair((leftRow, rightRow) -> {
+            if (rows.size() >= maxRows) {
+                return;
+            }
+            List<Object> row = new ArrayList<>(columns.size());
+            for (JoinPlan.ColumnRef column : columns) {
+                row.add(column.right()
+                        ? rightStorage.getValue(rightRow, column.column())
+                        : leftStorage.getValue(leftRow, column.column()));
+            }
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    private void forEachPair(PairConsumer action) {
+        boolean innerRight = plan.isInnerRight();
+        Table inner = innerRight ? right : left;
+        Table outer = innerRight ? left : right;
+        String innerColumn = innerRight ? plan.getRightColumn() : plan.getLeftColumn();
+        String outerColumn = innerRight ? plan.getLeftColumn() : plan.getRightColumn();
+        QueryPlan innerPlan = innerRight ? plan.getRightPlan() : plan.getLeftPlan();
+        QueryPlan outerPlan = innerRight ? plan.getLeftPlan() : plan.getRightPlan();
+        TableStorage innerStorage = inner.getStorage();
+        TableStorage outerStorage = outer.getStorage();
+        PairConsumer emit = innerRight ? action : (outerRow, innerRow) -> action.accept(innerRow, outerRow);
+
+        if (plan.getStrategy() == JoinPlan.Strategy.INDEX_NESTED_LOOP) {
+            IntPredicate innerMatcher = inner.matcher(plan.getInnerWhere(), snapshot);
+            outer.forEachMatch(outerPlan, snapshot, outerRow -> {
+                Object key = outerStorage.getValue(outerRow, outerColumn);
+                if (isEmpty(key)) {
+                    return;
+                }
+                for (int innerRow : plan.getIndex().lookup(key)) {
+                    if (innerMatcher.test(innerRow)) {
+                        emit.accept(outerRow, innerRow);
+                    }
+                }
+            });
+            return;
+        }
+
+        int[][] built = {new int[64]};
+        int[] count = {0};
+        inner.forEachMatch(innerPlan, snapshot, innerRow -> {
+            if (count[0] == built[0].length) {
+                built[0] = Arrays.copyOf(built[0], count[0] * 2);
+            }
+            built[0][count[0]++] = innerRow;
+        });
+        int[] innerRows = built[0];
+        int size = count[0];
+
+        Map<Object, Integer> heads = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+        int[] next = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            Object key = innerStorage.getValue(innerRows[i], innerColumn);
+            if (isEmpty(key)) {
+                continue;
+            }
+            Integer head = heads.put(ValueRange.equalityKey(key), i);
+            next[i] = head == null ? -1 : head;
+        }
+
+        outer.forEachMatch(outerPlan, snapshot, outerRow -> {
+            Object key = outerStorage.getValue(outerRow, outerColumn);
+            if (isEmpty(key)) {
+                return;
+            }
+            Integer head = heads.get(ValueRange.equalityKey(key));
+            for (int i = head == null ? -1 : head; i != -1; i = next[i]) {
+                emit.accept(outerRow, innerRows[i]);
+            }
+        });
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || "".equals(value);
+    }
+
+    /** Пара строк (таблица из FROM, таблица из JOIN). */
+    private interface PairConsumer {
+        void accept(int leftRow, int rightRow);
+    }
+}
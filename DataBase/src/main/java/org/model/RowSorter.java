@@ -0,0 +1,264 @@
+package org.model;
+
+import org.storage.TableStorage;
+import org.storage.ValueCodec;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Сортировка строк для SELECT ... SORT. Способ сравнения выбирается один раз по типу столбца,
+ * ключ каждой строки читается из хранилища один раз. Пустые значения идут первыми при сортировке
+ * по возрастанию и последними по убыванию, при равных ключах сохраняется порядок строк в таблице.
+ */
+final class RowSorter {
+    private final TableStorage storage;
+    private final String column;
+    private final boolean intKeys;
+    private final boolean descending;
+    private final Comparator<Object> comparator;
+
+    RowSorter(TableStorage storage, Column column, boolean descending) {
+        this.storage = storage;
+        this.column = column.getName();
+        this.intKeys = column.getType().equalsIgnoreCase("int");
+        this.descending = descending;
+
+        Comparator<Object> ascending = withEmptiesFirst(valueComparator(column.getType()));
+        this.comparator = descending ? ascending.reversed() : ascending;
+    }
+
+    private static Comparator<Object> valueComparator(String type) {
+        return switch (type.toLowerCase()) {
+            case "int" -> (v1, v2) -> Integer.compare((Integer) v1, (Integer) v2);
+            case "boolean" -> (v1, v2) -> Boolean.compare((Boolean) v1, (Boolean) v2);
+            case "date" -> (v1, v2) -> ((ZonedDateTime) v1).compareTo((ZonedDateTime) v2);
+            case "string" -> (v1, v2) -> ((String) v1).compareTo((String) v2);
+            default -> (v1, v2) -> 0;
+        };
+    }
+
+    private static Comparator<Object> withEmptiesFirst(Comparator<Object> values) {
+        return (v1, v2) -> {
+            boolean empty1 = v1 == null || "".equals(v1);
+            boolean empty2 = v2 == null || "".equals(v2);
+            if (empty1 || empty2) {
+                return Boolean.compare(!empty1, !empty2);
+            }
+            return values.compare(v1, v2);
+        };
+    }
+
+    /** Сортирует все строки в памяти. */
+    int[] sort(int[] rowIds) {
+        if (intKeys) {
+            return sortInts(rowIds);
+        }
+
+        Object[] keys = new Object[rowIds.length];
+        Integer[] order = new Integer[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            keys[i] = storage.getValue(rowIds[i], column);
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> comparator.compare(keys[i1], keys[i2]));
+
+        int[] result = new int[rowIds.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = rowIds[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Для int-столбца ключ и позиция строки упаковываются в long (ключ в старших 32 битах),
+     * и сортируется примитивный массив без упаковки значений в объекты.
+     */
+    private int[] sortInts(int[] rowIds) {
+        long[] packed = new long[rowIds.length];
+        int[] empties = new int[rowIds.length];
+        int count = 0;
+        int emptyCount = 0;
+        for (int i = 0; i < rowIds.length; i++) {
+            Object value = storage.getValue(rowIds[i], column);
+            if (value instanceof Integer key) {
+                packed[count++] = ((long) (descending ? ~key : key) << 32) | i;
+            } else {
+                empties[emptyCount++] = rowIds[i];
+            }
+        }
+        Arrays.sort(packed, 0, count);
+
+        int[] result = new int[rowIds.length];
+        int position = descending ? 0 : emptyCount;
+        for (int i = 0; i < count; i++) {
+            result[position++] = rowIds[(int) packed[i]];
+        }
+        System.arraycopy(empties, 0, result, descending ? count : 0, emptyCount);
+        return result;
+    }
+
+    /** Первые n строк порядка сортировки: в куче держится не больше n строк, худшая — на вершине. */
+    int[] top(int[] rowIds, int n) {
+        if (n >= rowIds.length) {
+            return sort(rowIds);
+        }
+        if (n == 0) {
+            return new int[0];
+        }
+
+        Comparator<Entry> order = (e1, e2) -> {
+            int result = comparator.compare(e1.key(), e2.key());
+            return result != 0 ? result : Integer.compare(e1.position(), e2.position());
+        };
+        PriorityQueue<Entry> heap = new PriorityQueue<>(n + 1, order.reversed());
+        for (int i = 0; i < rowIds.length; i++) {
+            Entry entry = new Entry(storage.getValue(rowIds[i], column), i);
+            if (heap.size() < n) {
+                heap.add(entry);
+            } else if (order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = rowIds[heap.poll().position()];
+        }
+        return result;
+    }
+
+    private record Entry(Object key, int position) {
+    }
+
+    /**
+     * Внешняя сортировка: строки сортируются порциями по memoryRows, каждая порция вместе
+     * с проекцией на columns записывается во временный файл, затем файлы сливаются.
+     */
+    MergedRows spill(int[] rowIds, List<String> columns, int memoryRows) throws IOException {
+        List<Run> runs = new ArrayList<>();
+        try {
+            for (int from = 0; from < rowIds.length; from += memoryRows) {
+                int[] chunk = sort(Arrays.copyOfRange(rowIds, from, Math.min(rowIds.length, from + memoryRows)));
+                runs.add(writeRun(chunk, columns, runs.size()));
+            }
+            return new MergedRows(runs, comparator);
+        } catch (IOException | RuntimeException e) {
+            for (Run run : runs) {
+                run.close();
+            }
+            throw e;
+        }
+    }
+
+    private Run writeRun(int[] rowIds, List<String> columns, int index) throws IOException {
+        Path file = Files.createTempFile("sort-", ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            List<Object> row = new ArrayList<>(columns.size());
+            for (int rowId : rowIds) {
+                row.clear();
+                for (String name : columns) {
+                    row.add(storage.getValue(rowId, name));
+                }
+                ValueCodec.writeValue(out, storage.getValue(rowId, column));
+                ValueCodec.writeValues(out, row);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new Run(file, rowIds.length, index);
+    }
+
+    /** Слияние отсортированных файлов; при равных ключах раньше идёт строка из более ранней порции. */
+    static final class MergedRows implements Iterator<List<Object>>, Closeable {
+        private final List<Run> runs;
+        private final PriorityQueue<Run> heads;
+
+        private MergedRows(List<Run> runs, Comparator<Object> comparator) throws IOException {
+            this.runs = runs;
+            this.heads = new PriorityQueue<>(Math.max(1, runs.size()), (r1, r2) -> {
+                int result = comparator.compare(r1.key, r2.key);
+                return result != 0 ? result : Integer.compare(r1.index, r2.index);
+            });
+            for (Run run : runs) {
+                if (run.advance()) {
+                    heads.add(run);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public List<Object> next() {
+            Run run = heads.poll();
+            if (run == null) {
+                throw new NoSuchElementException();
+            }
+            List<Object> row = run.row;
+            try {
+                if (run.advance()) {
+                    heads.add(run);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() {
+            heads.clear();
+            for (Run run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    private static final class Run {
+        private final Path file;
+        private final int index;
+        private int remaining;
+        private DataInputStream in;
+        private Object key;
+        private List<Object> row;
+
+        private Run(Path file, int size, int index) {
+            this.file = file;
+            this.remaining = size;
+            this.index = index;
+        }
+
+        private boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            }
+            key = ValueCodec.readValue(in);
+            row = ValueCodec.readValues(in);
+            remaining--;
+            return true;
+        }
+
+        private void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // временный файл удалится вместе с каталогом временных файлов
+            }
+        }
+    }
+}
@@ -3,11 +3,32 @@ package org.model;
 
 
 import org.app.LoggerManager;
+import org.index.Index;
+import org.index.IndexType;
+import org.index.TreeIndex;
+import org.planner.AccessPath;
+import org.planner.Aggregate;
+import org.planner.Condition;
+import org.planner.QueryPlan;
+import org.planner.QueryPlanner;
+import org.planner.TableStatistics;
+import org.storage.ColumnVector;
+import org.storage.ColumnarStorage;
+import org.storage.ParallelScan;
+import org.storage.RowVersions;
+import org.storage.StorageType;
+import org.storage.TableStorage;
+import org.storage.ValueRange;
+import org.storage.ZoneMap;
+import org.transaction.Snapshot;
+import org.transaction.Transaction;
 
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 import java.util.logging.Logger;
 
 
@@ -15,25 +36,139 @@ public class Table {
     private static final Logger logger = LoggerManager.getLogger(Table.class);
     private final String name;
     private final LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
-    private final List<Map<String, Object>> rows = new ArrayList<>();
-    private final Map<String, Set<Object>> uniqueValues = new HashMap<>();
+    private final TableStorage storage;
+    /** Значения UNIQUE-столбцов с числом версий строк, которые их содержат (старая и новая версия при UPDATE). */
+    private final Map<String, Map<Object, Integer>> uniqueValues = new HashMap<>();
+    private final Map<String, Index> indexes = new LinkedHashMap<>();
+    private volatile TableStatistics statistics;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RowVersions versions = new RowVersions();
+    private final AtomicInteger openCursors = new AtomicInteger();
+    private long version;
+    private long schemaVersion;
+    private long lsn;
 
     public Table(String name) {
+        this(name, StorageType.ROW);
+    }
+
+    public Table(String name, StorageType storageType) {
         this.name = name;
+        this.storage = TableStorage.create(storageType);
     }
 
     public String getName() {return name;}
 
     public LinkedHashMap<String, Column> getColumns() {return columns;}
 
-    public List<Map<String, Object>> getRows() {return rows;}
+    public TableStorage getStorage() {return storage;}
 
-    public void addNewColumn(String columnName, String type, boolean isUnique, boolean isNotNull) {
-        addColumn(columnName, type, isUnique, isNotNull);
+    public int getRowCount() {return storage.size();}
+
+    /** Статистика создаётся при первом обращении, чтобы конструктор не передавал наружу недостроенную таблицу. */
+    public TableStatistics getStatistics() {
+        TableStatistics result = statistics;
+        if (result == null) {
+            synchronized (this) {
+                result = statistics;
+                if (result == null) {
+                    result = new TableStatistics(this);
+                    statistics = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Блокировка таблицы: запросы берут её на чтение, изменения данных и схемы — на запись. */
+    public ReentrantReadWriteLock getLock() {return lock;}
+
+    /** Увеличивается при каждом изменении данных или схемы. */
+    public long getVersion() {return version;}
 
-        for (Map<String, Object> row : rows) {
-            row.put(columnName, null);
+    /** Увеличивается при изменении столбцов или индексов: по нему кэш планов понимает, что план устарел. */
+    public long getSchemaVersion() {return schemaVersion;}
+
+    /** LSN последней записи журнала, применённой к таблице. */
+    public long getLsn() {return lsn;}
+
+    public void setLsn(long lsn) {this.lsn = lsn;}
+
+    /** Приблизительный объём таблицы в памяти вместе с uniqueValues и индексами, байт. */
+    public long estimateBytes() {
+        long bytes = storage.estimateBytes();
+        for (Map<Object, Integer> values : uniqueValues.values()) {
+            bytes += values.size() * 48L;
         }
+        return bytes + indexes.size() * (long) storage.size() * 40;
+    }
+
+    /** Есть строки, которые видны не всем транзакциям: незафиксированные или ещё не убранные очисткой. */
+    public boolean hasPendingVersions() {
+        return versions.hasPending();
+    }
+
+    /** Открыт курсор по таблице: её нельзя уплотнять и вытеснять из памяти. */
+    public boolean isPinned() {
+        return openCursors.get() > 0;
+    }
+
+    void pin() {
+        openCursors.incrementAndGet();
+    }
+
+    void unpin() {
+        openCursors.decrementAndGet();
+    }
+
+    boolean isVisible(int rowId, Snapshot snapshot) {
+        return versions.isVisible(rowId, snapshot);
+    }
+
+    public int getUniqueValueCount(String columnName) {
+        Map<Object, Integer> values = uniqueValues.get(columnName);
+        return values == null ? 0 : values.size();
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return getRows(null);
+    }
+
+    /** Строки, видимые снимку; null — все строки хранилища, включая незафиксированные версии. */
+    public List<Map<String, Object>> getRows(Snapshot snapshot) {
+        List<Map<String, Object>> result = new ArrayList<>(storage.size());
+        for (int rowId = storage.nextRowId(0); rowId != -1; rowId = storage.nextRowId(rowId + 1)) {
+            if (versions.isVisible(rowId, snapshot)) {
+                result.add(storage.getRow(rowId));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Копия таблицы только со строками, видимыми снимку, без версий. Используется при
+     * сохранении, чтобы в файл не попали незафиксированные изменения.
+     */
+    public Table copyVisible(Snapshot snapshot, StorageType storageType) {
+        Table copy = new Table(name, storageType);
+        copy.lsn = lsn;
+        for (Column column : columns.values()) {
+            copy.addColumn(column.getName(), column.getType(), column.getIsUnique(), column.getIsNotNull());
+        }
+        for (Map<String, Object> row : getRows(snapshot)) {
+            int rowId = copy.storage.add(row);
+            for (String columnName : copy.uniqueValues.keySet()) {
+                copy.addUnique(columnName, copy.storage.getValue(rowId, columnName));
+            }
+        }
+        for (Index index : indexes.values()) {
+            copy.createIndex(index.getName(), index.getColumn(), index.getType());
+        }
+        return copy;
+    }
+
+    public void addNewColumn(String columnName, String type, boolean isUnique, boolean isNotNull) {
+        addColumn(columnName, type, isUnique, isNotNull);
     }
 
 
@@ -44,9 +179,12 @@ public class Table {
 
         Column column = new Column(name, type, isUnique, isNotNull);
         columns.put(name, column);
+        storage.addColumn(column);
+        version++;
+        schemaVersion++;
 
         if (isUnique) {
-            uniqueValues.put(name, new HashSet<>());
+            uniqueValues.put(name, new HashMap<>());
         }
     }
 
@@ -61,14 +199,45 @@ public class Table {
         }
 
         uniqueValues.remove(columnName);
+        indexes.values().removeIf(index -> index.getColumn().equals(columnName));
 
         columns.remove(columnName);
-        for (Map<String, Object> row : rows) {
-            row.remove(columnName);
+        storage.dropColumn(columnName);
+        version++;
+        schemaVersion++;
+    }
+
+
+
+    public Map<String, Index> getIndexes() {return indexes;}
+
+    public void createIndex(String indexName, String columnName, IndexType type) {
+        if (indexes.containsKey(indexName)) {
+            throw new IllegalArgumentException("Индекс уже существует: " + indexName);
         }
+        getColumn(columnName);
+
+        Index index = type.create(indexName, columnName);
+        fillIndex(index);
+        indexes.put(indexName, index);
+        version++;
+        schemaVersion++;
     }
 
+    public Index findIndex(String columnName, boolean ordered) {
+        for (Index index : indexes.values()) {
+            if (index.getColumn().equals(columnName) && (!ordered || index instanceof TreeIndex)) {
+                return index;
+            }
+        }
+        return null;
+    }
 
+    private void fillIndex(Index index) {
+        for (int rowId = storage.nextRowId(0); rowId != -1; rowId = storage.nextRowId(rowId + 1)) {
+            index.insert(storage.getValue(rowId, index.getColumn()), rowId);
+        }
+    }
 
     public Column getColumn(String name) {
         Column column = columns.get(name);
@@ -80,6 +249,15 @@ public class Table {
 
 
     public void insertRow(Map<String, Object> row) throws Exception {
+        insertRow(row, null);
+    }
+
+    /**
+     * Добавляет строку от имени транзакции: до фиксации она видна только ей. Без транзакции
+     * (восстановление из журнала) строка сразу видна всем. Уникальность проверяется по всем
+     * версиям, в том числе незафиксированным.
+     */
+    public void insertRow(Map<String, Object> row, Transaction transaction) throws Exception {
         for (Column column : columns.values()) {
             String columnName = column.getName();
             Object valueRow = row.get(columnName);
@@ -95,143 +273,566 @@ public class Table {
 
 
             if (column.getIsUnique()) {
-                Set<Object> existingValues = uniqueValues.get(columnName);
+                Map<Object, Integer> existingValues = uniqueValues.get(columnName);
 
-                if (existingValues.contains(valueRow)) {
+                if (existingValues.containsKey(valueRow)) {
                     throw new Exception("Ошибка: Столбец '" + columnName + "' должен быть уникальным.");
                 }
             }
         }
-        rows.add(row);
+        int rowId = storage.add(row);
+        version++;
+        if (transaction != null) {
+            versions.setCreatedBy(rowId, transaction.getId());
+            transaction.recordInsert(this, rowId);
+        }
+        for (Index index : indexes.values()) {
+            index.insert(storage.getValue(rowId, index.getColumn()), rowId);
+        }
 
         for (String columnName : uniqueValues.keySet()) {
-            Object value = row.get(columnName);
-            if (!Objects.equals(value, "")) {
-                uniqueValues.get(columnName).add(value);
-            }
+            addUnique(columnName, row.get(columnName));
         }
 
     }
 
-    public void deleteRows(Map<String, Object> conditions) {
-        Iterator<Map<String, Object>> iterator = rows.iterator();
-
-        while (iterator.hasNext()) {
-            Map<String, Object> row = iterator.next();
-            if (matchesConditions(row, conditions)) {
-                for (String columnName : uniqueValues.keySet()) {
+    /**
+     * Добавляет пачку строк (COPY) от имени транзакции. NOT-NULL и UNIQUE проверяются по столбцам для всей
+     * пачки, включая повторы внутри неё, до добавления первой строки: при ошибке пачка не добавляется.
+     */
+    public void insertRows(List<Map<String, Object>> rows, Transaction transaction) {
+        for (Column column : columns.values()) {
+            String columnName = column.getName();
+            if (column.getIsNotNull()) {
+                for (Map<String, Object> row : rows) {
+                    Object value = row.get(columnName);
+                    if (value == null || "".equals(value)) {
+                        throw new IllegalArgumentException("Ошибка: Поле '" + columnName + "' не может быть NULL.");
+                    }
+                }
+            }
+            if (column.getIsUnique()) {
+                Map<Object, Integer> existingValues = uniqueValues.get(columnName);
+                Set<Object> batchValues = new HashSet<>(rows.size() * 2);
+                for (Map<String, Object> row : rows) {
                     Object value = row.get(columnName);
-                    if (!Objects.equals(value, "")) {
-                        uniqueValues.get(columnName).remove(value);
+                    if (!"".equals(value) && (existingValues.containsKey(value) || !batchValues.add(value))) {
+                        throw new IllegalArgumentException("Ошибка: Столбец '" + columnName
+                                + "' должен быть уникальным, значение " + value + " повторяется.");
                     }
                 }
+            }
+        }
+
+        int[] rowIds = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            int rowId = storage.add(row);
+            rowIds[i] = rowId;
+            versions.setCreatedBy(rowId, transaction.getId());
+            for (Index index : indexes.values()) {
+                index.insert(storage.getValue(rowId, index.getColumn()), rowId);
+            }
+            for (String columnName : uniqueValues.keySet()) {
+                addUnique(columnName, row.get(columnName));
+            }
+        }
+        version++;
+        transaction.recordInserts(this, rowIds);
+    }
+
+    public void deleteRows(Condition where) {
+        deleteRows(where, null);
+    }
 
-                iterator.remove();
+    /**
+     * Удаляет видимые транзакции строки. Строка остаётся в хранилище с отметкой удалившей
+     * транзакции, пока её могут видеть другие снимки; физически её убирает vacuum.
+     * Если строку уже удалила другая транзакция, ничего не меняется и бросается исключение.
+     * Возвращает удалённые строки целиком — по ним оператор доигрывается из журнала.
+     */
+    public List<Map<String, Object>> deleteRows(Condition where, Transaction transaction) {
+        Snapshot snapshot = transaction == null ? null : transaction.getSnapshot();
+        List<Integer> matched = new ArrayList<>();
+        forEachMatch(QueryPlanner.plan(this, where, null), snapshot, matched::add);
+        List<Map<String, Object>> deleted = new ArrayList<>();
+
+        if (transaction == null) {
+            for (int rowId : matched) {
+                deleted.add(new HashMap<>(storage.getRow(rowId)));
+                removeRow(rowId);
                 logger.info("Удалена строка из таблицы " + this.name);
             }
+            compactIfSparse();
+            return deleted;
         }
+
+        for (int rowId : matched) {
+            long deletedBy = versions.getDeletedBy(rowId);
+            if (deletedBy != 0 && deletedBy != transaction.getId()) {
+                throw new IllegalStateException("Ошибка: строка таблицы " + name + " изменена другой транзакцией.");
+            }
+        }
+        for (int rowId : matched) {
+            if (versions.getDeletedBy(rowId) == 0) {
+                deleted.add(new HashMap<>(storage.getRow(rowId)));
+                versions.setDeletedBy(rowId, transaction.getId());
+                transaction.recordDelete(this, rowId);
+                version++;
+            }
+        }
+        return deleted;
     }
 
+    /**
+     * Меняет значения столбцов у подходящих под where строк, видимых транзакции, за один проход.
+     * Строка меняется на месте — только изменённые ячейки, их индексы и uniqueValues, старые значения
+     * уходят в журнал отката, — если её прежние значения никто, кроме транзакции, не увидит: inPlace
+     * (других транзакций и снимков нет) или строку добавила сама транзакция. Иначе, как DELETE + INSERT,
+     * старая версия помечается удалённой и добавляется новая. Без транзакции (восстановление из журнала)
+     * все строки меняются на месте. Ограничения проверяются до первого изменения. Возвращает прежние
+     * значения изменённых строк целиком.
+     */
+    public List<Map<String, Object>> updateRows(Condition where, Map<String, Object> values, Transaction transaction,
+                                                boolean inPlace) {
+        Snapshot snapshot = transaction == null ? null : transaction.getSnapshot();
+        List<Integer> matched = new ArrayList<>();
+        forEachMatch(QueryPlanner.plan(this, where, null), snapshot, matched::add);
+        List<Map<String, Object>> updated = new ArrayList<>(matched.size());
+        if (matched.isEmpty()) {
+            return updated;
+        }
+        checkUpdate(values, matched);
+        for (int rowId : matched) {
+            updated.add(new HashMap<>(storage.getRow(rowId)));
+        }
 
+        if (transaction == null) {
+            for (int rowId : matched) {
+                setValues(rowId, values);
+            }
+            version++;
+            return updated;
+        }
 
-    public List<Map<String, Object>> selectRows(Map<String, Object> conditions) {
-        List<Map<String, Object>> result = new ArrayList<>();
+        for (int rowId : matched) {
+            long deletedBy = versions.getDeletedBy(rowId);
+            if (deletedBy != 0 && deletedBy != transaction.getId()) {
+                throw new IllegalStateException("Ошибка: строка таблицы " + name + " изменена другой транзакцией.");
+            }
+        }
+        List<Integer> updatedInPlace = new ArrayList<>();
+        List<Map<String, Object>> oldValues = new ArrayList<>();
+        for (int rowId : matched) {
+            long createdBy = versions.getCreatedBy(rowId);
+            if (createdBy == transaction.getId() || (inPlace && createdBy == 0)) {
+                Map<String, Object> old = new HashMap<>();
+                for (String columnName : values.keySet()) {
+                    old.put(columnName, storage.getValue(rowId, columnName));
+                }
+                setValues(rowId, values);
+                updatedInPlace.add(rowId);
+                oldValues.add(old);
+            } else {
+                Map<String, Object> row = new HashMap<>(storage.getRow(rowId));
+                row.putAll(values);
+                versions.setDeletedBy(rowId, transaction.getId());
+                transaction.recordDelete(this, rowId);
+
+                int newRowId = storage.add(row);
+                versions.setCreatedBy(newRowId, transaction.getId());
+                transaction.recordInsert(this, newRowId);
+                for (Index index : indexes.values()) {
+                    index.insert(storage.getValue(newRowId, index.getColumn()), newRowId);
+                }
+                for (String columnName : uniqueValues.keySet()) {
+                    addUnique(columnName, row.get(columnName));
+                }
+            }
+        }
+        if (!updatedInPlace.isEmpty()) {
+            transaction.recordUpdate(this, updatedInPlace.stream().mapToInt(Integer::intValue).toArray(), oldValues);
+        }
+        version++;
+        return updated;
+    }
+
+    /** Восстановление из журнала: удаляет строки, совпадающие с images, по одной на каждый образ. */
+    public void replayDelete(List<Map<String, Object>> images) {
+        for (int rowId : findRows(images)) {
+            removeRow(rowId);
+        }
+        compactIfSparse();
+    }
+
+    /** Восстановление из журнала: присваивает values строкам, совпадающим с images, по одной на каждый образ. */
+    public void replayUpdate(List<Map<String, Object>> images, Map<String, Object> values) {
+        for (int rowId : findRows(images)) {
+            setValues(rowId, values);
+        }
+        version++;
+    }
 
-        for (Map<String, Object> row : rows) {
-            if (matchesConditions(row, conditions)) {
-                result.add(row);
+    /**
+     * Находит для каждого образа строки (значений всех столбцов) свою строку таблицы. Одинаковые строки
+     * неразличимы, поэтому подходит любая ещё не занятая. Кандидаты берутся из индекса, если он есть,
+     * остальные образы ищутся одним проходом по таблице.
+     */
+    private int[] findRows(List<Map<String, Object>> images) {
+        int[] found = new int[images.size()];
+        Set<Integer> taken = new HashSet<>();
+        Map<List<Object>, Deque<Integer>> missing = new HashMap<>();
+        Index index = indexes.isEmpty() ? null : indexes.values().iterator().next();
+
+        for (int i = 0; i < images.size(); i++) {
+            List<Object> key = rowKey(images.get(i)::get);
+            found[i] = -1;
+            if (index != null) {
+                for (int rowId : index.lookup(images.get(i).get(index.getColumn()))) {
+                    if (!taken.contains(rowId) && key.equals(rowKey(column -> storage.getValue(rowId, column)))) {
+                        found[i] = rowId;
+                        taken.add(rowId);
+                        break;
+                    }
+                }
             }
+            if (found[i] == -1) {
+                missing.computeIfAbsent(key, k -> new ArrayDeque<>()).add(i);
+            }
+        }
 
+        for (int rowId = storage.nextRowId(0); rowId != -1 && !missing.isEmpty(); rowId = storage.nextRowId(rowId + 1)) {
+            if (taken.contains(rowId)) {
+                continue;
+            }
+            int row = rowId;
+            List<Object> key = rowKey(column -> storage.getValue(row, column));
+            Deque<Integer> waiting = missing.get(key);
+            if (waiting != null) {
+                found[waiting.poll()] = rowId;
+                if (waiting.isEmpty()) {
+                    missing.remove(key);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("в таблице " + name + " нет строк " + missing.keySet());
         }
+        return found;
+    }
 
-        return result;
+    /** Значения столбцов в порядке таблицы; пустые значения и даты приводятся к виду, в котором их сравнивает WHERE. */
+    private List<Object> rowKey(Function<String, Object> values) {
+        List<Object> key = new ArrayList<>(columns.size());
+        for (String column : columns.keySet()) {
+            Object value = values.apply(column);
+            key.add(value == null ? "" : ValueRange.equalityKey(value));
+        }
+        return key;
     }
 
-    private boolean matchesConditions(Map<String, Object> row, Map<String, Object> conditions) {
-        for (Map.Entry<String, Object> condition : conditions.entrySet()) {
-            String column = condition.getKey();
-            Object value = condition.getValue();
+    /** NOT-NULL и UNIQUE для новых значений; одно значение UNIQUE-столбца нельзя присвоить нескольким строкам. */
+    private void checkUpdate(Map<String, Object> values, List<Integer> matched) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Column column = getColumn(entry.getKey());
+            Object value = entry.getValue();
+            boolean empty = value == null || "".equals(value);
+            if (column.getIsNotNull() && empty) {
+                throw new IllegalArgumentException("Ошибка: Поле '" + column.getName() + "' не может быть NULL.");
+            }
+            if (!column.getIsUnique() || empty) {
+                continue;
+            }
+            int rowId = matched.get(0);
+            boolean taken = uniqueValues.get(column.getName()).containsKey(value)
+                    && !Objects.equals(storage.getValue(rowId, column.getName()), value);
+            if (matched.size() > 1 || taken) {
+                throw new IllegalArgumentException("Ошибка: Столбец '" + column.getName()
+                        + "' должен быть уникальным, значение " + value + " повторяется.");
+            }
+        }
+    }
 
-            if (!row.containsKey(column) || !row.get(column).equals(value)) {
-                return false;
+    private void setValues(int rowId, Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String columnName = entry.getKey();
+            Object oldValue = storage.getValue(rowId, columnName);
+            Object newValue = entry.getValue() == null ? "" : entry.getValue();
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            for (Index index : indexes.values()) {
+                if (index.getColumn().equals(columnName)) {
+                    index.remove(oldValue, rowId);
+                }
+            }
+            storage.setValue(rowId, columnName, newValue);
+            for (Index index : indexes.values()) {
+                if (index.getColumn().equals(columnName)) {
+                    index.insert(storage.getValue(rowId, columnName), rowId);
+                }
+            }
+            if (uniqueValues.containsKey(columnName)) {
+                removeUnique(columnName, oldValue);
+                addUnique(columnName, newValue);
             }
         }
-        return true;
     }
 
-    public void printResults(List<Map<String, Object>> result, List<String> colNames) {
-        if (result.isEmpty()) {
-            System.out.println("Запрос не вернул результатов.");
-            return;
+    public void undoUpdate(int rowId, Map<String, Object> oldValues) {
+        setValues(rowId, oldValues);
+        version++;
+    }
+
+    private void addUnique(String columnName, Object value) {
+        if (!Objects.equals(value, "")) {
+            uniqueValues.get(columnName).merge(value, 1, Integer::sum);
         }
+    }
+
+    private void removeUnique(String columnName, Object value) {
+        if (!Objects.equals(value, "")) {
+            uniqueValues.get(columnName).computeIfPresent(value, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
 
-        System.out.println("Результаты запроса:");
+    public void undoInsert(int rowId) {
+        removeRow(rowId);
+    }
 
-        System.out.println("────────────────────────────────────────────────────");
+    public void undoDelete(int rowId) {
+        versions.setDeletedBy(rowId, 0);
+        version++;
+    }
 
-        for (String colName : colNames) {
-            System.out.print(colName + "\t");
+    /**
+     * Очистка версий: строки транзакций с id меньше horizon видны всем снимкам, поэтому
+     * созданные ими строки становятся общими, а удалённые убираются из хранилища.
+     */
+    public void vacuum(long horizon) {
+        int removed = 0;
+        for (int rowId = versions.nextPending(0); rowId != -1; rowId = versions.nextPending(rowId + 1)) {
+            long deletedBy = versions.getDeletedBy(rowId);
+            if (deletedBy != 0 && deletedBy < horizon) {
+                removeRow(rowId);
+                removed++;
+            } else if (versions.getCreatedBy(rowId) != 0 && versions.getCreatedBy(rowId) < horizon) {
+                versions.freeze(rowId);
+            }
+        }
+        if (removed > 0) {
+            logger.info("Удалено строк из таблицы " + name + ": " + removed);
+            compactIfSparse();
         }
-        System.out.println("\n────────────────────────────────────────────────────");
+    }
 
-        for (Map<String, Object> row : result) {
-            for (String colName : colNames) {
-                System.out.print(row.getOrDefault(colName, "NULL") + "\t");
+    private void removeRow(int rowId) {
+        for (String columnName : uniqueValues.keySet()) {
+            removeUnique(columnName, storage.getValue(rowId, columnName));
+        }
+        for (Index index : indexes.values()) {
+            index.remove(storage.getValue(rowId, index.getColumn()), rowId);
+        }
+
+        storage.remove(rowId);
+        versions.clear(rowId);
+        version++;
+    }
+
+    /**
+     * Уплотняет хранилище, когда удалённых слотов больше, чем живых строк, а на номера строк
+     * не ссылаются ни транзакции, ни открытые курсоры.
+     */
+    private void compactIfSparse() {
+        if (storage.slotCount() - storage.size() > storage.size() && !versions.hasPending() && !isPinned()) {
+            storage.compact();
+            rebuildIndexes();
+        }
+    }
+
+    /**
+     * Загружает строки из готовых колонок (порядок ключей — как у столбцов таблицы) без слотов deleted
+     * (null — все) со статистикой зон из файла (null — пересчитать). Ограничения не проверяются: данные
+     * уже прошли проверку при записи файла.
+     */
+    public void loadColumns(Map<String, ColumnVector> vectors, int rowCount, BitSet deleted, ZoneMap zones) {
+        if (storage instanceof ColumnarStorage columnar) {
+            columnar.load(vectors, rowCount, deleted, zones);
+        } else {
+            for (int rowId = 0; rowId < rowCount; rowId++) {
+                if (deleted != null && deleted.get(rowId)) {
+                    continue;
+                }
+                Map<String, Object> row = new HashMap<>();
+                for (Map.Entry<String, ColumnVector> entry : vectors.entrySet()) {
+                    row.put(entry.getKey(), entry.getValue().get(rowId));
+                }
+                storage.add(row);
             }
-            System.out.println();
         }
-        System.out.println("────────────────────────────────────────────────────");
 
+        for (Map.Entry<String, Map<Object, Integer>> entry : uniqueValues.entrySet()) {
+            entry.getValue().clear();
+            for (int rowId = storage.nextRowId(0); rowId != -1; rowId = storage.nextRowId(rowId + 1)) {
+                addUnique(entry.getKey(), storage.getValue(rowId, entry.getKey()));
+            }
+        }
+        rebuildIndexes();
+        version++;
     }
 
-    public void normalizeRowTypes() {
-        for (Map<String, Object> row : rows) {
-            for (Map.Entry<String, Object> entry : row.entrySet()) {
+    private void rebuildIndexes() {
+        for (Index index : indexes.values()) {
+            index.clear();
+            fillIndex(index);
+        }
+    }
 
-                String columnName = entry.getKey();
-                Column column = columns.get(columnName);
-                String type = columns.get(columnName).getType().toLowerCase();
 
-                Object value = entry.getValue();
 
-                if (entry.getValue() instanceof Double) {
-                    double d = (Double) value;
-                    if (d == (int) d) {
-                        Object oldValue = entry.getValue();
-                        Object newValue = (int) d;
+    public List<Map<String, Object>> selectRows(Condition where) {
+        return selectRows(QueryPlanner.plan(this, where, null));
+    }
 
-                        entry.setValue((int) d);
+    public List<Map<String, Object>> selectRows(QueryPlan plan) {
+        return selectRows(plan, null);
+    }
 
+    /**
+     * Открывает курсор по строкам плана, видимым снимку, с проекцией на columns; сортировка
+     * больше sortMemoryRows строк выполняется через временные файлы. Вызывается под блокировкой
+     * на чтение; onClose выполняется при закрытии курсора.
+     */
+    public TableCursor openCursor(QueryPlan plan, Snapshot snapshot, List<String> columns, long offset, long limit,
+                                  int sortMemoryRows, Runnable onClose) {
+        return new TableCursor(this, plan, snapshot, columns, offset, limit, sortMemoryRows, onClose);
+    }
 
-                        if (column.getIsUnique()) {
-                            updateUniqueValue(columnName, oldValue, newValue);
-                        }
-                    }
-                } else if (value instanceof String && type.equals("date")) {
-                    try {
-                        ZonedDateTime zdt = ZonedDateTime.parse((String) value, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-                        Object oldValue = entry.getValue();
-                        entry.setValue(zdt);
-
-                        if (column.getIsUnique()) {
-                            updateUniqueValue(columnName, oldValue, zdt);
+    public List<Map<String, Object>> selectRows(QueryPlan plan, Snapshot snapshot) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        forEachMatch(plan, snapshot, rowId -> result.add(storage.getRow(rowId)));
+        return result;
+    }
+
+    public void forEachMatch(QueryPlan plan, IntConsumer action) {
+        forEachMatch(plan, null, action);
+    }
+
+    /**
+     * Агрегаты по строкам плана, видимым снимку, с группировкой по groupBy (хеш-агрегация). Полный
+     * просмотр большой таблицы агрегируется по частям в пуле потоков, части затем сливаются.
+     */
+    public List<List<Object>> aggregate(QueryPlan plan, Snapshot snapshot, List<String> groupBy, List<Aggregate> items) {
+        HashAggregation aggregation = new HashAggregation(this, groupBy, items);
+        HashAggregation.Groups groups;
+        if (plan.getAccessPath() == AccessPath.FULL_SCAN) {
+            IntPredicate matcher = matcher(plan, snapshot);
+            BitSet skipped = skippedZones(plan);
+            List<HashAggregation.Groups> parts = ParallelScan.mapMorsels(storage.slotCount(), plan.isParallel(),
+                    (from, to) -> {
+                        HashAggregation.Groups part = aggregation.newGroups();
+                        for (int rowId = storage.nextRowId(from, skipped); rowId != -1 && rowId < to;
+                             rowId = storage.nextRowId(rowId + 1, skipped)) {
+                            if (matcher.test(rowId)) {
+                                part.add(rowId);
+                            }
                         }
+                        return part;
+                    });
+            groups = parts.get(0);
+            for (int i = 1; i < parts.size(); i++) {
+                groups.merge(parts.get(i));
+            }
+        } else {
+            groups = aggregation.newGroups();
+            forEachMatch(plan, snapshot, groups::add);
+        }
+        return aggregation.result(groups);
+    }
+
+    /** Перебирает строки плана, видимые снимку (null — все версии). */
+    public void forEachMatch(QueryPlan plan, Snapshot snapshot, IntConsumer action) {
+        IntPredicate matcher = matcher(plan, snapshot);
 
-                    } catch (DateTimeParseException e) {
-                        logger.severe("Ошибка преобразования даты в колонке " + columnName + ": " + e.getMessage());
+        switch (plan.getAccessPath()) {
+            case INDEX_LOOKUP -> {
+                for (int rowId : plan.getIndex().lookup(plan.getLookupValue())) {
+                    if (matcher.test(rowId)) {
+                        action.accept(rowId);
+                    }
+                }
+            }
+            case INDEX_RANGE_SCAN -> {
+                ValueRange range = plan.getRange();
+                for (int rowId : ((TreeIndex) plan.getIndex()).range(range.low(), range.lowInclusive(),
+                        range.high(), range.highInclusive())) {
+                    if (matcher.test(rowId)) {
+                        action.accept(rowId);
                     }
                 }
             }
+            case INDEX_ORDERED_SCAN -> ((TreeIndex) plan.getIndex()).forEachOrdered(false, rowId -> {
+                if (matcher.test(rowId)) {
+                    action.accept(rowId);
+                }
+            });
+            case FULL_SCAN -> {
+                BitSet skipped = skippedZones(plan);
+                if (plan.isParallel()) {
+                    for (int rowId : ParallelScan.matches(storage, matcher, skipped, true)) {
+                        action.accept(rowId);
+                    }
+                    return;
+                }
+                for (int rowId = storage.nextRowId(0, skipped); rowId != -1;
+                     rowId = storage.nextRowId(rowId + 1, skipped)) {
+                    if (matcher.test(rowId)) {
+                        action.accept(rowId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Зоны columnar-хранилища, где фильтры плана заведомо ложны, — полный просмотр их пропускает
+     * (null — пропускать нечего). Новые строки попадают в последнюю зону, которая не пропускается.
+     */
+    public BitSet skippedZones(QueryPlan plan) {
+        if (!(storage instanceof ColumnarStorage columnar) || plan.getFilters().isEmpty()) {
+            return null;
+        }
+        ZoneMap zoneMap = columnar.getZoneMap();
+        List<IntPredicate> zones = new ArrayList<>();
+        for (Condition condition : plan.getFilters()) {
+            zones.add(condition.zones(zoneMap));
         }
+        BitSet skipped = columnar.skippedZones(Condition.all(zones));
+        return skipped.isEmpty() ? null : skipped;
+    }
+
+    private IntPredicate matcher(QueryPlan plan, Snapshot snapshot) {
+        return visible(bindConditions(plan.getFilters()), snapshot);
+    }
+
+    /** Проверка where (null — без условий) и видимости снимку для строк, найденных не по плану таблицы. */
+    IntPredicate matcher(Condition where, Snapshot snapshot) {
+        return visible(where == null ? rowId -> true : where.bind(storage), snapshot);
+    }
 
+    private IntPredicate visible(IntPredicate conditions, Snapshot snapshot) {
+        return snapshot != null && versions.hasPending()
+                ? conditions.and(rowId -> versions.isVisible(rowId, snapshot))
+                : conditions;
     }
 
-    private void updateUniqueValue(String columnName, Object oldValue, Object newValue) {
-        Set<Object> valuesSet = uniqueValues.get(columnName);
-        if (valuesSet != null) {
-            valuesSet.remove(oldValue);
-            valuesSet.add(newValue);
+    /** Условия привязываются к хранилищу один раз на запрос и проверяются в порядке плана. */
+    IntPredicate bindConditions(List<Condition> conditions) {
+        List<IntPredicate> bound = new ArrayList<>(conditions.size());
+        for (Condition condition : conditions) {
+            bound.add(condition.bind(storage));
         }
+        return Condition.all(bound);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package org.model;
+
+import org.index.TreeIndex;
+import org.planner.AccessPath;
+import org.planner.QueryPlan;
+import org.storage.ParallelScan;
+import org.storage.TableStorage;
+import org.storage.ValueRange;
+import org.transaction.Snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Курсор по результату запроса: строки читаются порциями по BATCH_SIZE под блокировкой
+ * таблицы на чтение, между порциями блокировка отпускается. Пока курсор открыт, таблица
+ * не уплотняется, поэтому номера строк остаются прежними. Для доступа по индексу и
+ * сортировки заранее запоминаются только номера строк, а не сами строки. Если сортируется
+ * больше sortMemoryRows строк, результат сортируется внешним слиянием и читается из временных файлов.
+ * При параллельном плане без LIMIT подходящие строки отбираются сразу, по частям в пуле потоков.
+ */
+public class TableCursor implements Iterator<List<Object>>, AutoCloseable {
+    static final int BATCH_SIZE = 1024;
+
+    private final Table table;
+    private final TableStorage storage;
+    private final Snapshot snapshot;
+    private final List<String> columns;
+    private final IntPredicate matcher;
+    private final BitSet skippedZones;
+    private final Runnable onClose;
+    private final int[] rowIds;
+    private final RowSorter.MergedRows merged;
+    private final ArrayDeque<List<Object>> batch = new ArrayDeque<>();
+    private int position;
+    private long skip;
+    private long remaining;
+    private boolean exhausted;
+    private boolean closed;
+
+    /** Создаётся под блокировкой таблицы на чтение. limit < 0 — без ограничения. */
+    TableCursor(Table table, QueryPlan plan, Snapshot snapshot, List<String> columns, long offset, long limit,
+                int sortMemoryRows, Runnable onClose) {
+        this.table = table;
+        this.storage = table.getStorage();
+        this.snapshot = snapshot;
+        this.columns = List.copyOf(columns);
+        this.matcher = table.bindConditions(plan.getFilters());
+        this.skippedZones = plan.getAccessPath() == AccessPath.FULL_SCAN ? table.skippedZones(plan) : null;
+        this.onClose = onClose;
+        this.skip = offset;
+        this.remaining = limit < 0 ? Long.MAX_VALUE : limit;
+
+        RowSorter.MergedRows spilled = null;
+        if (plan.isSortRequired()) {
+            RowSorter sorter = new RowSorter(storage, table.getColumn(plan.getSortColumn()), plan.isDescending());
+            int[] matched = plan.getAccessPath() == AccessPath.FULL_SCAN
+                    ? matchingRowIds(plan.isParallel()) : indexedRowIds(plan);
+            long wanted = limit < 0 ? -1 : offset + limit;
+            if (wanted >= 0 && wanted <= sortMemoryRows) {
+                rowIds = sorter.top(matched, (int) wanted);
+            } else if (matched.length <= sortMemoryRows) {
+                rowIds = sorter.sort(matched);
+            } else {
+                try {
+                    spilled = sorter.spill(matched, this.columns, sortMemoryRows);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Ошибка внешней сортировки таблицы " + table.getName(), e);
+                }
+                rowIds = null;
+            }
+        } else if (plan.getAccessPath() == AccessPath.INDEX_LOOKUP) {
+            rowIds = plan.getIndex().lookup(plan.getLookupValue());
+        } else if (plan.getAccessPath() == AccessPath.INDEX_RANGE_SCAN) {
+            ValueRange range = plan.getRange();
+            rowIds = ((TreeIndex) plan.getIndex()).range(range.low(), range.lowInclusive(),
+                    range.high(), range.highInclusive());
+        } else if (plan.getAccessPath() == AccessPath.INDEX_ORDERED_SCAN) {
+            IntStream.Builder ordered = IntStream.builder();
+            ((TreeIndex) plan.getIndex()).forEachOrdered(plan.isDescending(), ordered);
+            rowIds = ordered.build().toArray();
+        } else if (plan.isParallel() && limit < 0) {
+            rowIds = matchingRowIds(true);
+        } else {
+            rowIds = null;
+        }
+        this.merged = spilled;
+        table.pin();
+    }
+
+    public List<String> getColumns() {return columns;}
+
+    @Override
+    public boolean hasNext() {
+        if (batch.isEmpty() && !exhausted && !closed) {
+            fetch();
+        }
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.poll();
+    }
+
+    private void fetch() {
+        if (merged != null) {
+            fetchMerged();
+            return;
+        }
+
+        table.getLock().readLock().lock();
+        try {
+            while (batch.size() < BATCH_SIZE && remaining > 0) {
+                int rowId = nextCandidate();
+                if (rowId == -1) {
+                    break;
+                }
+                if (!matches(rowId)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+
+                List<Object> row = new ArrayList<>(columns.size());
+                for (String column : columns) {
+                    row.add(storage.getValue(rowId, column));
+                }
+                batch.add(row);
+                remaining--;
+            }
+        } finally {
+            table.getLock().readLock().unlock();
+        }
+
+        finishBatch();
+    }
+
+    /** Строки уже отобраны по снимку и записаны в файлы, блокировка таблицы не нужна. */
+    private void fetchMerged() {
+        while (batch.size() < BATCH_SIZE && remaining > 0 && merged.hasNext()) {
+            List<Object> row = merged.next();
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            batch.add(row);
+            remaining--;
+        }
+        finishBatch();
+    }
+
+    private void finishBatch() {
+        if (batch.isEmpty()) {
+            exhausted = true;
+            close();
+        }
+    }
+
+    private int nextCandidate() {
+        if (rowIds == null) {
+            int rowId = storage.nextRowId(position, skippedZones);
+            position = rowId == -1 ? storage.slotCount() : rowId + 1;
+            return rowId;
+        }
+        return position < rowIds.length ? rowIds[position++] : -1;
+    }
+
+    /** Строка могла быть удалена между порциями, поэтому проверяется, что слот ещё занят. */
+    private boolean matches(int rowId) {
+        return storage.nextRowId(rowId) == rowId && table.isVisible(rowId, snapshot) && matcher.test(rowId);
+    }
+
+    private int[] matchingRowIds(boolean parallel) {
+        return ParallelScan.matches(storage, rowId -> table.isVisible(rowId, snapshot) && matcher.test(rowId),
+                skippedZones, parallel);
+    }
+
+    /** Строки, найденные по индексу плана и прошедшие фильтры, — для сортировки в памяти. */
+    private int[] indexedRowIds(QueryPlan plan) {
+        IntStream.Builder matched = IntStream.builder();
+        table.forEachMatch(plan, snapshot, matched);
+        return matched.build().toArray();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            batch.clear();
+            if (merged != null) {
+                merged.close();
+            }
+            table.unpin();
+            onClose.run();
+        }
+    }
+}
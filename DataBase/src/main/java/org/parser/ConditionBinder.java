@@ -0,0 +1,85 @@
+package org.parser;
+
+import org.model.Column;
+import org.model.Table;
+import org.planner.Condition;
+import org.storage.ValueRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Привязка условия WHERE к таблице: проверяет столбцы и приводит значения к их типам, как в INSERT.
+ * Пропущенное значение (id=) означает пустое; границы диапазона пустыми быть не могут.
+ */
+public final class ConditionBinder {
+
+    private ConditionBinder() {
+    }
+
+    public static Condition bind(ConditionNode node, Table table) {
+        return switch (node) {
+            case ConditionNode.And and -> new Condition.And(bindAll(and.terms(), table));
+            case ConditionNode.Or or -> new Condition.Or(bindAll(or.terms(), table));
+            case ConditionNode.Compare compare -> {
+                Column column = column(table, compare.column(), compare.position());
+                String name = column.getName();
+                yield switch (compare.operator()) {
+                    case "=" -> new Condition.Equals(name, compare.value().toValue(column.getType()));
+                    case "!=", "<>" -> new Condition.NotEquals(name, compare.value().toValue(column.getType()));
+                    case "<" -> new Condition.Range(name, new ValueRange(null, false, bound(column, compare.value()), false));
+                    case "<=" -> new Condition.Range(name, new ValueRange(null, false, bound(column, compare.value()), true));
+                    case ">" -> new Condition.Range(name, new ValueRange(bound(column, compare.value()), false, null, false));
+                    case ">=" -> new Condition.Range(name, new ValueRange(bound(column, compare.value()), true, null, false));
+                    default -> throw new ParseException(compare.position(), "неизвестная операция " + compare.operator());
+                };
+            }
+            case ConditionNode.Between between -> {
+                Column column = column(table, between.column(), between.position());
+                yield new Condition.Range(column.getName(),
+                        new ValueRange(bound(column, between.low()), true, bound(column, between.high()), true));
+            }
+            case ConditionNode.In in -> {
+                Column column = column(table, in.column(), in.position());
+                List<Object> values = new ArrayList<>();
+                for (Literal value : in.values()) {
+                    values.add(value.toValue(column.getType()));
+                }
+                yield new Condition.In(column.getName(), values);
+            }
+            case ConditionNode.Like like -> {
+                Column column = column(table, like.column(), like.position());
+                if (!column.getType().equalsIgnoreCase("string")) {
+                    throw new ParseException(like.position(), "LIKE применим только к строковому столбцу " + column.getName());
+                }
+                yield new Condition.Like(column.getName(), (String) like.pattern().toValue("string"));
+            }
+        };
+    }
+
+    private static List<Condition> bindAll(List<ConditionNode> nodes, Table table) {
+        List<Condition> terms = new ArrayList<>();
+        for (ConditionNode node : nodes) {
+            terms.add(bind(node, table));
+        }
+        return terms;
+    }
+
+    private static Column column(Table table, String name, int position) {
+        if (!table.getColumns().containsKey(name)) {
+            throw new ParseException(position, "в таблице " + table.getName() + " нет поля " + name);
+        }
+        return table.getColumn(name);
+    }
+
+    /** Граница диапазона: значение сравнимого типа, не пустое. */
+    private static Object bound(Column column, Literal literal) {
+        if (column.getType().startsWith("[]")) {
+            throw new ParseException(literal.position(), "столбец " + column.getName() + " нельзя сравнивать на больше/меньше");
+        }
+        if (literal.isEmpty()) {
+            throw new ParseException(literal.position(), "не указано значение для " + column.getName());
+        }
+        return literal.toValue(column.getType());
+    }
+}
@@ -0,0 +1,53 @@
+package org.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Условие WHERE в том виде, в каком оно записано в команде. Значения ещё не приведены к типам
+ * столбцов — это делает {@link ConditionBinder} при выполнении, когда таблица известна.
+ */
+public sealed interface ConditionNode {
+
+    /** operator: = != &lt;&gt; &lt; &lt;= &gt; &gt;= */
+    record Compare(String column, String operator, Literal value, int position) implements ConditionNode {
+    }
+
+    record Between(String column, Literal low, Literal high, int position) implements ConditionNode {
+    }
+
+    record In(String column, List<Literal> values, int position) implements ConditionNode {
+    }
+
+    record Like(String column, Literal pattern, int position) implements ConditionNode {
+    }
+
+    record And(List<ConditionNode> terms) implements ConditionNode {
+    }
+
+    record Or(List<ConditionNode> terms) implements ConditionNode {
+    }
+
+    /** То же условие с именами столбцов, заменёнными через names (например, без префикса таблицы). */
+    static ConditionNode renameColumns(ConditionNode node, UnaryOperator<String> names) {
+        return switch (node) {
+            case Compare compare -> new Compare(names.apply(compare.column()), compare.operator(), compare.value(),
+                    compare.position());
+            case Between between -> new Between(names.apply(between.column()), between.low(), between.high(),
+                    between.position());
+            case In in -> new In(names.apply(in.column()), in.values(), in.position());
+            case Like like -> new Like(names.apply(like.column()), like.pattern(), like.position());
+            case And and -> new And(renameAll(and.terms(), names));
+            case Or or -> new Or(renameAll(or.terms(), names));
+        };
+    }
+
+    private static List<ConditionNode> renameAll(List<ConditionNode> nodes, UnaryOperator<String> names) {
+        List<ConditionNode> result = new ArrayList<>(nodes.size());
+        for (ConditionNode node : nodes) {
+            result.add(renameColumns(node, names));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package org.parser;
+
+import org.model.Table;
+import org.planner.Condition;
+import org.planner.JoinPlan;
+import org.planner.QueryPlanner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Привязка SELECT с JOIN к двум таблицам. Столбец записывается как ТАБЛИЦА.СТОЛБЕЦ или просто СТОЛБЕЦ,
+ * если он есть только в одной из таблиц. Условие WHERE делится по таблицам: каждое слагаемое верхнего AND
+ * должно относиться к одной таблице и проверяется при её просмотре.
+ */
+public final class JoinBinder {
+    private final Table left;
+    private final Table right;
+
+    public JoinBinder(Table left, Table right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    public JoinPlan.ColumnRef column(String name) {
+        int dot = name.indexOf('.');
+        if (dot != -1) {
+            String tableName = name.substring(0, dot);
+            String column = name.substring(dot + 1);
+            Table table = tableName.equals(left.getName()) ? left : tableName.equals(right.getName()) ? right : null;
+            if (table == null) {
+                throw new IllegalArgumentException("Ошибка: таблица " + tableName + " не участвует в запросе.");
+            }
+            if (!table.getColumns().containsKey(column)) {
+                throw new IllegalArgumentException("В таблице " + tableName + " нет поля " + column);
+            }
+            return new JoinPlan.ColumnRef(table == right, column);
+        }
+
+        boolean inLeft = left.getColumns().containsKey(name);
+        boolean inRight = right.getColumns().containsKey(name);
+        if (inLeft && inRight) {
+            throw new IllegalArgumentException("Ошибка: столбец " + name + " есть в обеих таблицах, укажите таблицу: "
+                    + left.getName() + "." + name + " или " + right.getName() + "." + name + ".");
+        }
+        if (!inLeft && !inRight) {
+            throw new IllegalArgumentException("Ни в таблице " + left.getName() + ", ни в таблице " + right.getName()
+                    + " нет поля " + name);
+        }
+        return new JoinPlan.ColumnRef(inRight, name);
+    }
+
+    /** Столбцы SELECT *: сначала таблицы из FROM, затем из JOIN. */
+    public List<JoinPlan.ColumnRef> allColumns() {
+        List<JoinPlan.ColumnRef> columns = new ArrayList<>();
+        for (String column : left.getColumnNames()) {
+            columns.add(new JoinPlan.ColumnRef(false, column));
+        }
+        for (String column : right.getColumnNames()) {
+            columns.add(new JoinPlan.ColumnRef(true, column));
+        }
+        return columns;
+    }
+
+    /** Имя столбца результата для SELECT *. */
+    public String qualifiedName(JoinPlan.ColumnRef column) {
+        return (column.right() ? right : left).getName() + "." + column.column();
+    }
+
+    public JoinPlan plan(Statement.Select select) {
+        List<ConditionNode> leftTerms = new ArrayList<>();
+        List<ConditionNode> rightTerms = new ArrayList<>();
+        if (select.where() != null) {
+            List<ConditionNode> terms = select.where() instanceof ConditionNode.And and
+                    ? and.terms() : List.of(select.where());
+            for (ConditionNode term : terms) {
+                Set<Boolean> sides = new HashSet<>();
+                ConditionNode unqualified = ConditionNode.renameColumns(term, name -> {
+                    JoinPlan.ColumnRef column = column(name);
+                    sides.add(column.right());
+                    return column.column();
+                });
+                if (sides.size() > 1) {
+                    throw new IllegalArgumentException("Ошибка: в запросе с JOIN условие OR не может относиться"
+                            + " к обеим таблицам; условия разных таблиц соединяются через AND.");
+                }
+                (sides.contains(true) ? rightTerms : leftTerms).add(unqualified);
+            }
+        }
+        Statement.Join join = select.join();
+        return QueryPlanner.planJoin(left, right, join.leftColumn(), join.rightColumn(),
+                bind(leftTerms, left), bind(rightTerms, right));
+    }
+
+    private static Condition bind(List<ConditionNode> terms, Table table) {
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return ConditionBinder.bind(terms.size() == 1 ? terms.get(0) : new ConditionNode.And(terms), table);
+    }
+}
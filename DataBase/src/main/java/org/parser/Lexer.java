@@ -0,0 +1,68 @@
+package org.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Лексер за один проход: строки в кавычках, скобки и знаки препинания, операции сравнения и слова.
+ * Слово — всё до пробела или разделителя, поэтому даты (2024-01-01T00:00:00+03:00),
+ * отрицательные числа и not-null остаются одной лексемой. Регистр текста не меняется.
+ */
+public final class Lexer {
+    private static final String DELIMITERS = "\"()[],;*?=<>!";
+
+    private Lexer() {
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int position = i + 1;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= text.length()) {
+                        throw new ParseException(position, "не закрыта строка");
+                    }
+                    char ch = text.charAt(i++);
+                    if (ch == '"') {
+                        break;
+                    }
+                    if (ch == '\\' && i < text.length() && (text.charAt(i) == '"' || text.charAt(i) == '\\')) {
+                        ch = text.charAt(i++);
+                    }
+                    value.append(ch);
+                }
+                tokens.add(new Token(Token.Kind.STRING, value.toString(), position));
+            } else if (c == '<' || c == '>' || c == '!') {
+                String two = i + 1 < text.length() ? text.substring(i, i + 2) : "";
+                if (two.equals("<=") || two.equals(">=") || two.equals("!=") || two.equals("<>")) {
+                    tokens.add(new Token(Token.Kind.SYMBOL, two, position));
+                    i += 2;
+                } else if (c == '!') {
+                    throw new ParseException(position, "неизвестная операция '!'");
+                } else {
+                    tokens.add(new Token(Token.Kind.SYMBOL, String.valueOf(c), position));
+                    i++;
+                }
+            } else if (DELIMITERS.indexOf(c) != -1) {
+                tokens.add(new Token(Token.Kind.SYMBOL, String.valueOf(c), position));
+                i++;
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && DELIMITERS.indexOf(text.charAt(i)) == -1) {
+                    i++;
+                }
+                tokens.add(new Token(Token.Kind.WORD, text.substring(start, i), position));
+            }
+        }
+        tokens.add(new Token(Token.Kind.END, "", text.length() + 1));
+        return tokens;
+    }
+}
@@ -0,0 +1,182 @@
+package org.parser;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Значение в тексте команды до привязки к типу столбца: строка в кавычках, слово (число, логическое
+ * значение, дата), массив [a b c], пропущенное значение или параметр ?. Тип проверяется в {@link #toValue(String)}.
+ * PARAMETER хранит в value номер параметра с 0, VALUE — значение, подставленное из Java вместо параметра.
+ */
+public record Literal(Kind kind, String text, List<Literal> elements, Object value, int position) {
+
+    public enum Kind {STRING, WORD, ARRAY, EMPTY, PARAMETER, VALUE}
+
+    private static final Map<String, String> ARRAY_TYPES = Map.of(
+            "strings", "string", "ints", "int", "booleans", "boolean", "dates", "date");
+
+    public static Literal empty(int position) {
+        return new Literal(Kind.EMPTY, "", List.of(), null, position);
+    }
+
+    public static Literal parameter(int index, int position) {
+        return new Literal(Kind.PARAMETER, "?", List.of(), index, position);
+    }
+
+    /** Значение из Java вместо параметра; null — пустое значение. */
+    public static Literal value(Object value, int position) {
+        return value == null ? empty(position) : new Literal(Kind.VALUE, "", List.of(), value, position);
+    }
+
+    /** Номер параметра с 0. */
+    public int parameterIndex() {return (Integer) value;}
+
+    public boolean isEmpty() {return kind == Kind.EMPTY;}
+
+    /** Значение для столбца типа type; пустое значение — "". */
+    public Object toValue(String type) {
+        if (kind == Kind.EMPTY) {
+            return "";
+        }
+        if (kind == Kind.PARAMETER) {
+            throw error("не задано значение параметра ?" + (parameterIndex() + 1));
+        }
+        if (kind == Kind.VALUE) {
+            return checkValue(value, type);
+        }
+        if (type.startsWith("[]")) {
+            if (kind != Kind.ARRAY) {
+                throw error("значение " + this + " не является массивом");
+            }
+            String elementType = ARRAY_TYPES.get(type.substring(2).trim().toLowerCase());
+            if (elementType == null) {
+                throw error("неверно указан тип после [] – " + type);
+            }
+            List<Object> array = new ArrayList<>();
+            for (Literal element : elements) {
+                array.add(element.toScalar(elementType));
+            }
+            return array;
+        }
+        return toScalar(type.toLowerCase());
+    }
+
+    /** Проверяет, что значение из Java подходит столбцу: Integer, String, Boolean, ZonedDateTime или List из них. */
+    private Object checkValue(Object value, String type) {
+        if (type.startsWith("[]")) {
+            String elementType = ARRAY_TYPES.get(type.substring(2).trim().toLowerCase());
+            if (elementType == null) {
+                throw error("неверно указан тип после [] – " + type);
+            }
+            if (!(value instanceof List<?> list)) {
+                throw wrongType(value, type);
+            }
+            List<Object> array = new ArrayList<>(list.size());
+            for (Object element : list) {
+                if (element == null) {
+                    throw error("null в массиве для столбца типа " + type);
+                }
+                array.add(checkValue(element, elementType));
+            }
+            return array;
+        }
+        return switch (type.toLowerCase()) {
+            case "string" -> {
+                if (value instanceof String string) {
+                    yield string.trim();
+                }
+                throw wrongType(value, type);
+            }
+            case "int" -> {
+                if (value instanceof Integer) {
+                    yield value;
+                }
+                if ((value instanceof Long || value instanceof Short || value instanceof Byte)
+                        && ((Number) value).longValue() == ((Number) value).intValue()) {
+                    yield ((Number) value).intValue();
+                }
+                throw wrongType(value, type);
+            }
+            case "boolean" -> {
+                if (value instanceof Boolean) {
+                    yield value;
+                }
+                throw wrongType(value, type);
+            }
+            case "date" -> {
+                if (value instanceof ZonedDateTime) {
+                    yield value;
+                }
+                throw wrongType(value, type);
+            }
+            default -> throw error("неизвестный тип: " + type);
+        };
+    }
+
+    private ParseException wrongType(Object value, String type) {
+        return error("значение " + value + " (" + value.getClass().getSimpleName()
+                + ") не подходит столбцу типа " + type.toUpperCase());
+    }
+
+    private Object toScalar(String type) {
+        switch (type) {
+            case "string" -> {
+                if (kind == Kind.STRING) {
+                    return text.trim();
+                }
+                throw error("строка должна быть в кавычках: " + this);
+            }
+            case "int" -> {
+                if (kind == Kind.WORD) {
+                    try {
+                        return Integer.parseInt(text);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                throw error("неверное целочисленное значение: " + this);
+            }
+            case "boolean" -> {
+                if (kind == Kind.WORD && (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false"))) {
+                    return Boolean.parseBoolean(text);
+                }
+                throw error("неверное логическое значение: " + this);
+            }
+            case "date" -> {
+                if (kind == Kind.WORD || kind == Kind.STRING) {
+                    try {
+                        return ZonedDateTime.parse(text.trim(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+                    } catch (DateTimeParseException ignored) {
+                    }
+                }
+                throw error("неверный формат даты " + this + ". Используй ISO, например: 2025-02-19T21:43:15+00:00");
+            }
+            default -> throw error("неизвестный тип: " + type);
+        }
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(position, message);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case STRING -> "\"" + text + "\"";
+            case WORD -> text;
+            case EMPTY -> "<пусто>";
+            case PARAMETER -> "?";
+            case VALUE -> String.valueOf(value);
+            case ARRAY -> {
+                StringBuilder result = new StringBuilder("[");
+                for (Literal element : elements) {
+                    result.append(result.length() > 1 ? " " : "").append(element);
+                }
+                yield result.append("]").toString();
+            }
+        };
+    }
+}
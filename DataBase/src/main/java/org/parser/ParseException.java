@@ -0,0 +1,19 @@
+package org.parser;
+
+/** Ошибка разбора SQL-команды с позицией (с 1) символа, на котором разбор остановился. */
+public class ParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    public ParseException(int position, String message) {
+        super("Ошибка в позиции " + position + ": " + message);
+        this.position = position;
+    }
+
+    public static ParseException expected(String expected, Token found) {
+        return new ParseException(found.position(), "ожидалось " + expected + ", а не " + found.describe());
+    }
+
+    public int getPosition() {return position;}
+}
@@ -0,0 +1,113 @@
+package org.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Разобранная команда с параметрами ?. Разбирается один раз (PREPARE, SQLParser.prepare или кэш команд),
+ * при каждом выполнении в копию дерева подставляются значения параметров. Неизменяема, поэтому одну
+ * команду можно выполнять из нескольких сеансов одновременно.
+ */
+public final class PreparedStatement {
+    private final Statement statement;
+    private final int parameterCount;
+
+    PreparedStatement(Statement statement, int parameterCount) {
+        this.statement = statement;
+        this.parameterCount = parameterCount;
+    }
+
+    public Statement getStatement() {return statement;}
+
+    public int getParameterCount() {return parameterCount;}
+
+    /**
+     * Подставляет значения из Java: Integer, String, Boolean, ZonedDateTime или List из них, null — пустое
+     * значение. Тип проверяется по столбцу при выполнении.
+     */
+    public Statement bind(Object... parameters) {
+        checkCount(parameters.length);
+        if (parameterCount == 0) {
+            return statement;
+        }
+        return bind(statement, parameter -> Literal.value(parameters[parameter.parameterIndex()], parameter.position()));
+    }
+
+    /** Подставляет значения из EXECUTE имя (значение, ...). */
+    public Statement bind(List<Literal> values) {
+        checkCount(values.size());
+        if (parameterCount == 0) {
+            return statement;
+        }
+        return bind(statement, parameter -> values.get(parameter.parameterIndex()));
+    }
+
+    private void checkCount(int count) {
+        if (count != parameterCount) {
+            throw new IllegalArgumentException("Ошибка: команда ожидает параметров: " + parameterCount + ", передано: " + count);
+        }
+    }
+
+    private static Statement bind(Statement statement, UnaryOperator<Literal> values) {
+        return switch (statement) {
+            case Statement.Insert insert -> {
+                List<List<Literal>> rows = new ArrayList<>(insert.rows().size());
+                for (List<Literal> row : insert.rows()) {
+                    rows.add(bind(row, values));
+                }
+                yield new Statement.Insert(insert.table(), rows);
+            }
+            case Statement.Select select -> bind(select, values);
+            case Statement.Explain explain -> new Statement.Explain(bind(explain.select(), values));
+            case Statement.Delete delete -> new Statement.Delete(delete.table(), bind(delete.where(), values));
+            case Statement.Update update -> {
+                Map<String, Literal> bound = new LinkedHashMap<>();
+                update.values().forEach((column, literal) -> bound.put(column, bind(literal, values)));
+                yield new Statement.Update(update.table(), bound, bind(update.where(), values));
+            }
+            default -> statement;
+        };
+    }
+
+    private static Statement.Select bind(Statement.Select select, UnaryOperator<Literal> values) {
+        return new Statement.Select(select.columns(), select.aggregates(), select.groupBy(), select.table(),
+                select.join(), select.where() == null ? null : bind(select.where(), values), select.sortColumn(),
+                select.descending(), select.limit(), select.offset(), select.planCache());
+    }
+
+    private static ConditionNode bind(ConditionNode node, UnaryOperator<Literal> values) {
+        return switch (node) {
+            case ConditionNode.Compare compare -> new ConditionNode.Compare(compare.column(), compare.operator(),
+                    bind(compare.value(), values), compare.position());
+            case ConditionNode.Between between -> new ConditionNode.Between(between.column(),
+                    bind(between.low(), values), bind(between.high(), values), between.position());
+            case ConditionNode.In in -> new ConditionNode.In(in.column(), bind(in.values(), values), in.position());
+            case ConditionNode.Like like -> new ConditionNode.Like(like.column(), bind(like.pattern(), values), like.position());
+            case ConditionNode.And and -> new ConditionNode.And(bindNodes(and.terms(), values));
+            case ConditionNode.Or or -> new ConditionNode.Or(bindNodes(or.terms(), values));
+        };
+    }
+
+    private static List<ConditionNode> bindNodes(List<ConditionNode> nodes, UnaryOperator<Literal> values) {
+        List<ConditionNode> result = new ArrayList<>(nodes.size());
+        for (ConditionNode node : nodes) {
+            result.add(bind(node, values));
+        }
+        return result;
+    }
+
+    private static List<Literal> bind(List<Literal> literals, UnaryOperator<Literal> values) {
+        List<Literal> result = new ArrayList<>(literals.size());
+        for (Literal literal : literals) {
+            result.add(bind(literal, values));
+        }
+        return result;
+    }
+
+    private static Literal bind(Literal literal, UnaryOperator<Literal> values) {
+        return literal.kind() == Literal.Kind.PARAMETER ? values.apply(literal) : literal;
+    }
+}
@@ -37,6 +37,10 @@ public class SQLCommandFactory {
         }
     }
 
+    public static boolean hasCommand(String command) {
+        return commands.containsKey(command);
+    }
+
     public static SQLCommand getCommand(String command) {
         if (!commands.containsKey(command)) {
             throw new IllegalArgumentException("Команда " + command + " не поддерживается");
@@ -0,0 +1,95 @@
+package org.parser;
+
+import org.database.BulkLoader;
+import org.index.IndexType;
+import org.model.Column;
+import org.planner.Aggregate;
+import org.planner.PlanCache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разобранная SQL-команда. command() — ключ команды в sqlcommands.properties.
+ * Имена таблиц, столбцов и типов приводятся к верхнему регистру, значения остаются как в тексте.
+ */
+public sealed interface Statement {
+
+    String command();
+
+    record CreateTable(String table, List<Column> columns) implements Statement {
+        public String command() {return "CREATE";}
+    }
+
+    record DropTable(String table) implements Statement {
+        public String command() {return "DROP";}
+    }
+
+    record CreateIndex(String name, String table, String column, IndexType type) implements Statement {
+        public String command() {return "CREATE_INDEX";}
+    }
+
+    record Insert(String table, List<List<Literal>> rows) implements Statement {
+        public String command() {return "INSERT";}
+    }
+
+    /**
+     * columns пуст для SELECT *; where == null — без условий; limit == -1 — без ограничения.
+     * aggregates не пуст в запросе с агрегатами или GROUP BY: это элементы SELECT по порядку, columns тогда пуст,
+     * а sortColumn — имя столбца результата (AGE, COUNT(*)). planCache общий для всех выполнений одной команды.
+     * join != null — FROM table JOIN join.table(); столбцы тогда могут быть записаны как ТАБЛИЦА.СТОЛБЕЦ.
+     */
+    record Select(List<String> columns, List<Aggregate> aggregates, List<String> groupBy, String table, Join join,
+                  ConditionNode where, String sortColumn, boolean descending, long limit, long offset,
+                  PlanCache planCache) implements Statement {
+        public String command() {return "SELECT";}
+
+        public boolean isAggregate() {return !aggregates.isEmpty();}
+    }
+
+    /** FROM ... JOIN table ON ...: leftColumn — столбец таблицы из FROM, rightColumn — столбец table. */
+    record Join(String table, String leftColumn, String rightColumn) {
+    }
+
+    record Delete(String table, ConditionNode where) implements Statement {
+        public String command() {return "DELETE";}
+    }
+
+    /** values — новые значения столбцов в порядке SET. */
+    record Update(String table, Map<String, Literal> values, ConditionNode where) implements Statement {
+        public String command() {return "UPDATE";}
+    }
+
+    /** format == null — по расширению файла. */
+    record Copy(String table, String path, BulkLoader.Format format, boolean header) implements Statement {
+        public String command() {return "COPY";}
+    }
+
+    record Explain(Select select) implements Statement {
+        public String command() {return "EXPLAIN";}
+    }
+
+    record Prepare(String name, PreparedStatement prepared) implements Statement {
+        public String command() {return "PREPARE";}
+    }
+
+    record Execute(String name, List<Literal> values) implements Statement {
+        public String command() {return "EXECUTE";}
+    }
+
+    record Deallocate(String name) implements Statement {
+        public String command() {return "DEALLOCATE";}
+    }
+
+    record Begin() implements Statement {
+        public String command() {return "BEGIN";}
+    }
+
+    record Commit() implements Statement {
+        public String command() {return "COMMIT";}
+    }
+
+    record Rollback() implements Statement {
+        public String command() {return "ROLLBACK";}
+    }
+}
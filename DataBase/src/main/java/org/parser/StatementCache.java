@@ -0,0 +1,68 @@
+package org.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU-кэш разобранных команд, общий для всех сеансов. Ключ — текст команды, в котором пробелы вне строк
+ * сведены к одному, поэтому команды, отличающиеся только отступами, разбираются один раз.
+ * Длинные команды (многострочные INSERT) не кэшируются, чтобы не держать их в памяти.
+ */
+final class StatementCache {
+    private static final int MAX_TEXT_LENGTH = 4096;
+
+    private final int capacity;
+    private final Map<String, PreparedStatement> entries;
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                return size() > StatementCache.this.capacity;
+            }
+        };
+    }
+
+    PreparedStatement get(String text) {
+        if (capacity == 0 || text.length() > MAX_TEXT_LENGTH) {
+            return StatementParser.prepare(text);
+        }
+        String key = normalize(text);
+        PreparedStatement statement;
+        synchronized (entries) {
+            statement = entries.get(key);
+        }
+        if (statement == null) {
+            statement = StatementParser.prepare(text);
+            synchronized (entries) {
+                entries.put(key, statement);
+            }
+        }
+        return statement;
+    }
+
+    static String normalize(String text) {
+        StringBuilder key = new StringBuilder(text.length());
+        boolean inString = false;
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!inString && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && !key.isEmpty()) {
+                key.append(' ');
+            }
+            space = false;
+            key.append(c);
+            if (c == '"') {
+                inString = !inString;
+            } else if (c == '\\' && inString && i + 1 < text.length()) {
+                key.append(text.charAt(++i));
+            }
+        }
+        return key.toString();
+    }
+}
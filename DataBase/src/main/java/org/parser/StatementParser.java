@@ -0,0 +1,532 @@
+package org.parser;
+
+import org.database.BulkLoader;
+import org.index.IndexType;
+import org.model.Column;
+import org.planner.Aggregate;
+import org.planner.PlanCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Разбор SQL-команды рекурсивным спуском по лексемам {@link Lexer}:
+ * <pre>
+ * команда  := CREATE TABLE имя ( столбец [; столбец]* [;] ) ;
+ *           | CREATE INDEX имя ON имя ( имя ) [USING HASH | TREE] ;
+ *           | DROP TABLE имя ;
+ *           | INSERT INTO имя ( строка ) ; | INSERT INTO имя ( ( строка ) [, ( строка )]* ) ;
+ *           | SELECT * | элемент [, элемент]* FROM имя [WHERE условие] [GROUP BY имя [, имя]*]
+ *             [SORT элемент [ASC | DESC]] [LIMIT n] [OFFSET n] ;
+ *           | DELETE FROM имя WHERE условие ;
+ *           | UPDATE имя SET имя = значение [, имя = значение]* WHERE условие ;
+ *           | COPY имя FROM "файл" [FORMAT CSV | JSON] [HEADER] ;
+ *           | EXPLAIN SELECT ... ;
+ *           | BEGIN [TRANSACTION] ; | COMMIT ; | ROLLBACK ;
+ *           | PREPARE имя AS команда ; | EXECUTE имя [( строка )] ; | DEALLOCATE имя ;
+ * столбец  := имя тип [UNIQUE | NOT-NULL]*
+ * элемент  := имя | COUNT ( * ) | COUNT | SUM | MIN | MAX | AVG ( имя )
+ * строка   := значение [, значение]*
+ * значение := "строка" | слово | [ значение* ] | ? | пусто
+ * условие  := и (OR и)*
+ * и        := простое (AND простое)*
+ * простое  := ( условие ) | имя операция значение | имя BETWEEN значение AND значение
+ *           | имя IN ( значение [, значение]* ) | имя LIKE "шаблон" | имя LIKE ?
+ * операция := = | != | &lt;&gt; | &lt; | &lt;= | &gt; | &gt;=
+ * </pre>
+ * Ключевые слова и имена не зависят от регистра, значения сохраняют регистр.
+ * Параметры ? нумеруются по порядку в тексте; значения для них подставляет {@link PreparedStatement}.
+ */
+public class StatementParser {
+    private static final Set<String> OPERATORS = Set.of("=", "!=", "<>", "<", "<=", ">", ">=");
+    /** Слова, на которых заканчивается пропущенное значение в условии (id= SORT id). */
+    private static final Set<String> CLAUSE_WORDS = Set.of("AND", "OR", "GROUP", "SORT", "LIMIT", "OFFSET");
+
+    private final List<Token> tokens;
+    private int position;
+    private int parameterCount;
+
+    private StatementParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    public static Statement parse(String text) {
+        return prepare(text).getStatement();
+    }
+
+    public static PreparedStatement prepare(String text) {
+        StatementParser parser = new StatementParser(Lexer.tokenize(text));
+        Statement statement = parser.statement();
+        parser.expect(";");
+        if (parser.peek().kind() != Token.Kind.END) {
+            throw new ParseException(parser.peek().position(), "лишний текст после ';'");
+        }
+        return new PreparedStatement(statement, parser.parameterCount);
+    }
+
+    private Statement statement() {
+        Token first = next();
+        if (first.kind() != Token.Kind.WORD) {
+            throw ParseException.expected("команда", first);
+        }
+        return switch (first.text().toUpperCase()) {
+            case "CREATE" -> {
+                if (acceptKeyword("TABLE")) {
+                    yield createTable();
+                }
+                if (acceptKeyword("INDEX")) {
+                    yield createIndex();
+                }
+                throw ParseException.expected("TABLE или INDEX", peek());
+            }
+            case "DROP" -> {
+                expectKeyword("TABLE");
+                yield new Statement.DropTable(identifier());
+            }
+            case "INSERT" -> insert();
+            case "SELECT" -> select();
+            case "DELETE" -> {
+                expectKeyword("FROM");
+                String table = identifier();
+                expectKeyword("WHERE");
+                yield new Statement.Delete(table, where(table));
+            }
+            case "UPDATE" -> update();
+            case "COPY" -> copy();
+            case "EXPLAIN" -> {
+                expectKeyword("SELECT");
+                yield new Statement.Explain(select());
+            }
+            case "BEGIN" -> {
+                acceptKeyword("TRANSACTION");
+                yield new Statement.Begin();
+            }
+            case "PREPARE" -> {
+                String name = identifier();
+                expectKeyword("AS");
+                Token start = peek();
+                Statement statement = statement();
+                if (statement instanceof Statement.Prepare || statement instanceof Statement.Execute
+                        || statement instanceof Statement.Deallocate) {
+                    throw new ParseException(start.position(), "команду " + start.text().toUpperCase() + " нельзя подготовить");
+                }
+                int count = parameterCount;
+                parameterCount = 0;
+                yield new Statement.Prepare(name, new PreparedStatement(statement, count));
+            }
+            case "EXECUTE" -> {
+                String name = identifier();
+                List<Literal> values = List.of();
+                if (accept("(")) {
+                    values = peek().is(")") ? List.of() : row();
+                    expect(")");
+                }
+                yield new Statement.Execute(name, values);
+            }
+            case "DEALLOCATE" -> new Statement.Deallocate(identifier());
+            case "COMMIT" -> new Statement.Commit();
+            case "ROLLBACK" -> new Statement.Rollback();
+            default -> throw new ParseException(first.position(), "неизвестная команда " + first.describe());
+        };
+    }
+
+    private Statement createTable() {
+        String table = identifier();
+        expect("(");
+        List<Column> columns = new ArrayList<>();
+        while (!peek().is(")")) {
+            columns.add(column());
+            if (!accept(";")) {
+                break;
+            }
+        }
+        expect(")");
+        return new Statement.CreateTable(table, columns);
+    }
+
+    private Column column() {
+        String name = identifier();
+        Token typeToken = peek();
+        String type;
+        if (accept("[")) {
+            expect("]");
+            type = "[]" + next().text();
+        } else {
+            type = next().text();
+        }
+        if (typeToken.kind() == Token.Kind.STRING || !type.matches("(\\[])?\\w+")) {
+            throw ParseException.expected("тип столбца", typeToken);
+        }
+
+        boolean unique = false;
+        boolean notNull = false;
+        while (peek().kind() == Token.Kind.WORD) {
+            Token modifier = next();
+            switch (modifier.text().toUpperCase()) {
+                case "UNIQUE" -> unique = true;
+                case "NOT-NULL" -> notNull = true;
+                default -> throw ParseException.expected("UNIQUE или NOT-NULL", modifier);
+            }
+        }
+        return new Column(name, type.toUpperCase(), unique, notNull);
+    }
+
+    private Statement createIndex() {
+        String name = identifier();
+        expectKeyword("ON");
+        String table = identifier();
+        expect("(");
+        String column = identifier();
+        expect(")");
+        IndexType type = IndexType.HASH;
+        if (acceptKeyword("USING")) {
+            Token typeToken = next();
+            if (typeToken.is("HASH") || typeToken.is("TREE")) {
+                type = IndexType.valueOf(typeToken.text().toUpperCase());
+            } else {
+                throw ParseException.expected("HASH или TREE", typeToken);
+            }
+        }
+        return new Statement.CreateIndex(name, table, column, type);
+    }
+
+    private Statement update() {
+        String table = identifier();
+        expectKeyword("SET");
+        Map<String, Literal> values = new LinkedHashMap<>();
+        do {
+            Token start = peek();
+            String column = identifier();
+            expect("=");
+            Literal value = peek().is("WHERE") ? Literal.empty(peek().position()) : value();
+            if (values.put(column, value) != null) {
+                throw new ParseException(start.position(), "столбец " + column + " указан в SET дважды");
+            }
+        } while (accept(","));
+        expectKeyword("WHERE");
+        return new Statement.Update(table, values, where(table));
+    }
+
+    private Statement copy() {
+        String table = identifier();
+        expectKeyword("FROM");
+        Token path = next();
+        if (path.kind() != Token.Kind.STRING) {
+            throw ParseException.expected("имя файла в кавычках", path);
+        }
+        BulkLoader.Format format = null;
+        if (acceptKeyword("FORMAT")) {
+            Token formatToken = next();
+            if (formatToken.is("CSV") || formatToken.is("JSON")) {
+                format = BulkLoader.Format.valueOf(formatToken.text().toUpperCase());
+            } else {
+                throw ParseException.expected("CSV или JSON", formatToken);
+            }
+        }
+        boolean header = acceptKeyword("HEADER");
+        return new Statement.Copy(table, path.text(), format, header);
+    }
+
+    private Statement insert() {
+        expectKeyword("INTO");
+        String table = identifier();
+        expect("(");
+        List<List<Literal>> rows = new ArrayList<>();
+        if (peek().is("(")) {
+            do {
+                expect("(");
+                rows.add(row());
+                expect(")");
+            } while (accept(","));
+        } else {
+            rows.add(row());
+        }
+        expect(")");
+        return new Statement.Insert(table, rows);
+    }
+
+    private List<Literal> row() {
+        List<Literal> values = new ArrayList<>();
+        do {
+            values.add(value());
+        } while (accept(","));
+        return values;
+    }
+
+    private Statement.Select select() {
+        Token start = peek();
+        boolean star = accept("*");
+        List<Aggregate> items = new ArrayList<>();
+        if (!star) {
+            do {
+                items.add(selectItem());
+            } while (accept(","));
+        }
+        expectKeyword("FROM");
+        Token tableToken = peek();
+        String table = identifier();
+        Statement.Join join = peek().is("INNER") || peek().is("JOIN") ? join(table) : null;
+
+        ConditionNode where = !acceptKeyword("WHERE") ? null : join == null ? where(table) : or();
+        List<String> groupBy = new ArrayList<>();
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            do {
+                groupBy.add(columnName());
+            } while (accept(","));
+        }
+        String sortColumn = null;
+        boolean descending = false;
+        if (acceptKeyword("SORT")) {
+            sortColumn = selectItem().toString();
+            descending = acceptKeyword("DESC");
+            if (!descending) {
+                acceptKeyword("ASC");
+            }
+        }
+        long limit = acceptKeyword("LIMIT") ? number() : -1;
+        long offset = acceptKeyword("OFFSET") ? number() : 0;
+
+        boolean aggregated = !groupBy.isEmpty() || items.stream().anyMatch(item -> item.function() != null);
+        if (aggregated && star) {
+            throw new ParseException(start.position(), "SELECT * нельзя использовать с агрегатами и GROUP BY");
+        }
+        if (aggregated && join != null) {
+            throw new ParseException(start.position(), "агрегаты и GROUP BY в запросе с JOIN не поддерживаются");
+        }
+        if (join == null) {
+            UnaryOperator<String> names = name -> unqualified(name, table, tableToken.position());
+            items.replaceAll(item -> item.column() == null ? item : new Aggregate(item.function(), names.apply(item.column())));
+            groupBy.replaceAll(names);
+            sortColumn = sortColumn == null || aggregated ? sortColumn : names.apply(sortColumn);
+        }
+        List<String> columns = aggregated ? List.of() : items.stream().map(Aggregate::column).toList();
+        return new Statement.Select(columns, aggregated ? items : List.of(), groupBy, table, join, where, sortColumn,
+                descending, limit, offset, new PlanCache());
+    }
+
+    /** [INNER] JOIN таблица ON таблица.столбец = таблица.столбец; равенство можно записать в любом порядке. */
+    private Statement.Join join(String table) {
+        acceptKeyword("INNER");
+        expectKeyword("JOIN");
+        Token joinToken = peek();
+        String other = identifier();
+        if (other.equals(table)) {
+            throw new ParseException(joinToken.position(),
+                    "соединение таблицы " + table + " с самой собой не поддерживается");
+        }
+        expectKeyword("ON");
+        Token condition = peek();
+        String first = columnName();
+        expect("=");
+        String second = columnName();
+        if (first.startsWith(other + ".") && second.startsWith(table + ".")) {
+            String swap = first;
+            first = second;
+            second = swap;
+        }
+        if (!first.startsWith(table + ".") || !second.startsWith(other + ".")) {
+            throw new ParseException(condition.position(),
+                    "в ON нужно равенство столбцов двух таблиц: " + table + ".столбец = " + other + ".столбец");
+        }
+        return new Statement.Join(other, first.substring(table.length() + 1), second.substring(other.length() + 1));
+    }
+
+    /** WHERE запроса к одной таблице: столбцы можно записать с её именем (USERS.AGE). */
+    private ConditionNode where(String table) {
+        int position = peek().position();
+        return ConditionNode.renameColumns(or(), name -> unqualified(name, table, position));
+    }
+
+    /** Имя столбца без префикса таблицы в запросе к одной таблице. */
+    private static String unqualified(String name, String table, int position) {
+        int dot = name.indexOf('.');
+        if (dot == -1) {
+            return name;
+        }
+        if (!name.substring(0, dot).equals(table)) {
+            throw new ParseException(position, "столбец " + name + " не относится к таблице " + table);
+        }
+        return name.substring(dot + 1);
+    }
+
+    /** Столбец или агрегатная функция над столбцом; имя функции без скобок — обычный столбец. */
+    private Aggregate selectItem() {
+        Token functionToken = peek();
+        String name = columnName();
+        if (!peek().is("(")) {
+            return new Aggregate(null, name);
+        }
+        Aggregate.Function function;
+        try {
+            function = Aggregate.Function.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(functionToken.position(), "неизвестная агрегатная функция " + name);
+        }
+        expect("(");
+        String column = function == Aggregate.Function.COUNT && accept("*") ? null : columnName();
+        expect(")");
+        return new Aggregate(function, column);
+    }
+
+    private ConditionNode or() {
+        List<ConditionNode> terms = new ArrayList<>();
+        terms.add(and());
+        while (acceptKeyword("OR")) {
+            terms.add(and());
+        }
+        return terms.size() == 1 ? terms.get(0) : new ConditionNode.Or(terms);
+    }
+
+    private ConditionNode and() {
+        List<ConditionNode> terms = new ArrayList<>();
+        terms.add(primary());
+        while (acceptKeyword("AND")) {
+            terms.add(primary());
+        }
+        return terms.size() == 1 ? terms.get(0) : new ConditionNode.And(terms);
+    }
+
+    private ConditionNode primary() {
+        if (accept("(")) {
+            ConditionNode condition = or();
+            expect(")");
+            return condition;
+        }
+
+        int start = peek().position();
+        String column = columnName();
+        Token operation = next();
+        if (operation.kind() == Token.Kind.SYMBOL && OPERATORS.contains(operation.text())) {
+            return new ConditionNode.Compare(column, operation.text(), value(), start);
+        }
+        if (operation.is("BETWEEN")) {
+            Literal low = value();
+            expectKeyword("AND");
+            return new ConditionNode.Between(column, low, value(), start);
+        }
+        if (operation.is("IN")) {
+            expect("(");
+            List<Literal> values = row();
+            expect(")");
+            return new ConditionNode.In(column, values, start);
+        }
+        if (operation.is("LIKE")) {
+            if (peek().is("?")) {
+                return new ConditionNode.Like(column, value(), start);
+            }
+            Token pattern = next();
+            if (pattern.kind() != Token.Kind.STRING) {
+                throw ParseException.expected("шаблон в кавычках", pattern);
+            }
+            return new ConditionNode.Like(column, literal(pattern), start);
+        }
+        throw ParseException.expected("операция сравнения", operation);
+    }
+
+    /** Значение; перед ',', ')', ';' и словами AND/OR/SORT/LIMIT/OFFSET значение считается пропущенным. */
+    private Literal value() {
+        Token token = peek();
+        if (accept("?")) {
+            return Literal.parameter(parameterCount++, token.position());
+        }
+        if (token.kind() == Token.Kind.STRING
+                || token.kind() == Token.Kind.WORD && !CLAUSE_WORDS.contains(token.text().toUpperCase())) {
+            return literal(next());
+        }
+        if (accept("[")) {
+            List<Literal> elements = new ArrayList<>();
+            while (!accept("]")) {
+                Token element = next();
+                if (element.kind() != Token.Kind.STRING && element.kind() != Token.Kind.WORD) {
+                    throw ParseException.expected("элемент массива или ']'", element);
+                }
+                elements.add(literal(element));
+                accept(",");
+            }
+            return new Literal(Literal.Kind.ARRAY, "", elements, null, token.position());
+        }
+        if (token.is(",") || token.is(")") || token.is(";") || token.kind() == Token.Kind.WORD) {
+            return Literal.empty(token.position());
+        }
+        throw ParseException.expected("значение", token);
+    }
+
+    private static Literal literal(Token token) {
+        Literal.Kind kind = token.kind() == Token.Kind.STRING ? Literal.Kind.STRING : Literal.Kind.WORD;
+        return new Literal(kind, token.text(), List.of(), null, token.position());
+    }
+
+    private long number() {
+        Token token = next();
+        if (token.kind() == Token.Kind.WORD && token.text().matches("\\d+")) {
+            try {
+                return Long.parseLong(token.text());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw ParseException.expected("неотрицательное число", token);
+    }
+
+    private String identifier() {
+        Token token = next();
+        if (token.kind() != Token.Kind.WORD || !token.text().matches("\\w+")) {
+            throw ParseException.expected("имя", token);
+        }
+        return token.text().toUpperCase();
+    }
+
+    /** Имя столбца, возможно с таблицей: AGE или USERS.AGE. */
+    private String columnName() {
+        Token token = next();
+        if (token.kind() != Token.Kind.WORD || !token.text().matches("\\w+(\\.\\w+)?")) {
+            throw ParseException.expected("имя столбца", token);
+        }
+        return token.text().toUpperCase();
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.kind() == Token.Kind.END) {
+            throw new ParseException(token.position(), "неожиданный конец команды");
+        }
+        position++;
+        return token;
+    }
+
+    private boolean accept(String symbol) {
+        if (peek().kind() == Token.Kind.SYMBOL && peek().text().equals(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peek().kind() == Token.Kind.WORD && peek().is(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol)) {
+            throw ParseException.expected("'" + symbol + "'", peek());
+        }
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw ParseException.expected(keyword, peek());
+        }
+    }
+}
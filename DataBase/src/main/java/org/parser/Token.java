@@ -0,0 +1,22 @@
+package org.parser;
+
+/**
+ * Лексема SQL-команды. position — номер символа в тексте команды, начиная с 1.
+ * Для STRING text — содержимое строки без кавычек, с раскрытыми \" и \\.
+ */
+public record Token(Kind kind, String text, int position) {
+
+    public enum Kind {WORD, STRING, SYMBOL, END}
+
+    public boolean is(String symbol) {
+        return kind != Kind.STRING && kind != Kind.END && text.equalsIgnoreCase(symbol);
+    }
+
+    public String describe() {
+        return switch (kind) {
+            case END -> "конец команды";
+            case STRING -> "\"" + text + "\"";
+            default -> "'" + text + "'";
+        };
+    }
+}
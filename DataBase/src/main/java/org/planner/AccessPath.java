@@ -0,0 +1,5 @@
+package org.planner;
+
+public enum AccessPath {
+    FULL_SCAN, INDEX_LOOKUP, INDEX_RANGE_SCAN, INDEX_ORDERED_SCAN
+}
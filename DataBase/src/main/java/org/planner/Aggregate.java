@@ -0,0 +1,19 @@
+package org.planner;
+
+/**
+ * Элемент списка SELECT в запросе с агрегатами или GROUP BY: функция над столбцом или, при function == null,
+ * сам столбец группировки. column == null — COUNT(*).
+ */
+public record Aggregate(Function function, String column) {
+
+    public enum Function {COUNT, SUM, MIN, MAX, AVG}
+
+    /** Имя столбца результата: AGE, COUNT(*), SUM(AGE). */
+    @Override
+    public String toString() {
+        if (function == null) {
+            return column;
+        }
+        return function + "(" + (column == null ? "*" : column) + ")";
+    }
+}
@@ -0,0 +1,226 @@
+package org.planner;
+
+import org.storage.TableStorage;
+import org.storage.ValueRange;
+import org.storage.ZoneMap;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Условие WHERE, разобранное один раз в дерево. bind превращает дерево в IntPredicate,
+ * привязанный к столбцам хранилища: листья берут специализированные проверки у хранилища
+ * (сравнение int[] в колонке, проверку по словарю строк), узлы AND/OR только вызывают их.
+ * zones проверяет то же условие по статистике зон хранилища: ложь — в зоне нет подходящих строк.
+ */
+public sealed interface Condition {
+
+    IntPredicate bind(TableStorage storage);
+
+    /** Зоны, в которых могут быть подходящие строки; по умолчанию — все. */
+    default IntPredicate zones(ZoneMap zoneMap) {
+        return zone -> true;
+    }
+
+    /** Условия, соединённые верхним AND. */
+    default List<Condition> conjuncts() {
+        return List.of(this);
+    }
+
+    /** Все условия равенства из карты, соединённые AND; пустая карта — без условий (null). */
+    static Condition equalities(Map<String, Object> values) {
+        List<Condition> terms = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            terms.add(new Equals(entry.getKey(), entry.getValue()));
+        }
+        return terms.isEmpty() ? null : terms.size() == 1 ? terms.get(0) : new And(terms);
+    }
+
+    record Equals(String column, Object value) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            return storage.equalsMatcher(column, value);
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return value == null || "".equals(value) ? zoneMap.emptyZones(column)
+                    : zoneMap.rangeZones(column, new ValueRange(value, true, value, true));
+        }
+
+        @Override
+        public String toString() {return column + " = " + value;}
+    }
+
+    /** Пустые значения, как и в диапазонах, не подходят. */
+    record NotEquals(String column, Object value) implements Condition {
+        private static final ValueRange NOT_EMPTY = new ValueRange(null, false, null, false);
+
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            return storage.rangeMatcher(column, NOT_EMPTY).and(storage.equalsMatcher(column, value).negate());
+        }
+
+        @Override
+        public String toString() {return column + " != " + value;}
+    }
+
+    record Range(String column, ValueRange range) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            return storage.rangeMatcher(column, range);
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return zoneMap.rangeZones(column, range);
+        }
+
+        @Override
+        public String toString() {return range.describe(column);}
+    }
+
+    record In(String column, List<Object> values) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            Set<Object> set = new HashSet<>();
+            for (Object value : values) {
+                set.add(ValueRange.equalityKey(value));
+            }
+            return storage.valueMatcher(column, value -> set.contains(ValueRange.equalityKey(value)));
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return any(values.stream().map(value -> new Equals(column, value).zones(zoneMap)).toList());
+        }
+
+        @Override
+        public String toString() {
+            return column + " IN (" + values.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ")";
+        }
+    }
+
+    /** % — любая последовательность символов, _ — один символ. */
+    record Like(String column, String pattern) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            Pattern regex = toRegex(pattern);
+            return storage.valueMatcher(column, value -> value instanceof String text
+                    && !text.isEmpty() && regex.matcher(text).matches());
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return zoneMap.valueZones(column);
+        }
+
+        private static Pattern toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : pattern.toCharArray()) {
+                if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else if (Character.isLetterOrDigit(c)) {
+                    regex.append(c);
+                } else {
+                    regex.append('\\').append(c);
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        @Override
+        public String toString() {return column + " LIKE \"" + pattern + "\"";}
+    }
+
+    record And(List<Condition> terms) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            return all(terms.stream().map(term -> term.bind(storage)).toList());
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return all(terms.stream().map(term -> term.zones(zoneMap)).toList());
+        }
+
+        @Override
+        public List<Condition> conjuncts() {
+            List<Condition> result = new ArrayList<>();
+            for (Condition term : terms) {
+                result.addAll(term.conjuncts());
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return terms.stream().map(term -> term instanceof Or ? "(" + term + ")" : term.toString())
+                    .collect(Collectors.joining(" AND "));
+        }
+    }
+
+    record Or(List<Condition> terms) implements Condition {
+        @Override
+        public IntPredicate bind(TableStorage storage) {
+            return any(terms.stream().map(term -> term.bind(storage)).toList());
+        }
+
+        @Override
+        public IntPredicate zones(ZoneMap zoneMap) {
+            return any(terms.stream().map(term -> term.zones(zoneMap)).toList());
+        }
+
+        @Override
+        public String toString() {
+            return terms.stream().map(term -> term instanceof And ? "(" + term + ")" : term.toString())
+                    .collect(Collectors.joining(" OR "));
+        }
+    }
+
+    /** Проверки выполняются по порядку списка, до первой ложной. */
+    static IntPredicate all(List<IntPredicate> terms) {
+        return switch (terms.size()) {
+            case 0 -> rowId -> true;
+            case 1 -> terms.get(0);
+            case 2 -> {
+                IntPredicate first = terms.get(0);
+                IntPredicate second = terms.get(1);
+                yield rowId -> first.test(rowId) && second.test(rowId);
+            }
+            default -> {
+                IntPredicate[] bound = terms.toArray(IntPredicate[]::new);
+                yield rowId -> {
+                    for (IntPredicate term : bound) {
+                        if (!term.test(rowId)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+        };
+    }
+
+    /** Проверки выполняются по порядку списка, до первой истинной. */
+    static IntPredicate any(List<IntPredicate> terms) {
+        IntPredicate[] bound = terms.toArray(IntPredicate[]::new);
+        if (bound.length == 2) {
+            IntPredicate first = bound[0];
+            IntPredicate second = bound[1];
+            return rowId -> first.test(rowId) || second.test(rowId);
+        }
+        return rowId -> {
+            for (IntPredicate term : bound) {
+                if (term.test(rowId)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
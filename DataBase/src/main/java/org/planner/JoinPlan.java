@@ -0,0 +1,97 @@
+package org.planner;
+
+import org.index.Index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * План соединения двух таблиц по равенству столбцов. Условия WHERE разнесены по таблицам и вошли в планы
+ * сторон. HASH — хеш-таблица строится по стороне с меньшей оценкой строк (inner), другая сторона (outer)
+ * просматривается потоком и ищет совпадения в хеш-таблице. INDEX_NESTED_LOOP — для каждой строки outer
+ * совпадения ищутся по индексу на столбце соединения inner, условия inner проверяются для найденных строк.
+ */
+public class JoinPlan {
+
+    public enum Strategy {HASH, INDEX_NESTED_LOOP}
+
+    /** Столбец результата: right — столбец таблицы из JOIN, иначе из FROM. */
+    public record ColumnRef(boolean right, String column) {
+    }
+
+    private final Strategy strategy;
+    private final String leftTable;
+    private final String rightTable;
+    private final String leftColumn;
+    private final String rightColumn;
+    private final QueryPlan leftPlan;
+    private final QueryPlan rightPlan;
+    private final boolean innerRight;
+    private final Index index;
+    private final Condition innerWhere;
+    private final double cost;
+
+    JoinPlan(Strategy strategy, String leftTable, String rightTable, String leftColumn, String rightColumn,
+             QueryPlan leftPlan, QueryPlan rightPlan, boolean innerRight, Index index, Condition innerWhere,
+             double cost) {
+        this.strategy = strategy;
+        this.leftTable = leftTable;
+        this.rightTable = rightTable;
+        this.leftColumn = leftColumn;
+        this.rightColumn = rightColumn;
+        this.leftPlan = leftPlan;
+        this.rightPlan = rightPlan;
+        this.innerRight = innerRight;
+        this.index = index;
+        this.innerWhere = innerWhere;
+        this.cost = cost;
+    }
+
+    public Strategy getStrategy() {return strategy;}
+
+    public String getLeftColumn() {return leftColumn;}
+
+    public String getRightColumn() {return rightColumn;}
+
+    public QueryPlan getLeftPlan() {return leftPlan;}
+
+    public QueryPlan getRightPlan() {return rightPlan;}
+
+    /** Хеш-таблица строится (или поиск по индексу идёт) по таблице из JOIN. */
+    public boolean isInnerRight() {return innerRight;}
+
+    /** Индекс на столбце соединения inner для INDEX_NESTED_LOOP. */
+    public Index getIndex() {return index;}
+
+    /** Все условия WHERE таблицы inner для INDEX_NESTED_LOOP (null — без условий). */
+    public Condition getInnerWhere() {return innerWhere;}
+
+    public double getCost() {return cost;}
+
+    public List<String> explain() {
+        String inner = innerRight ? rightTable : leftTable;
+        String outer = innerRight ? leftTable : rightTable;
+        String innerColumn = inner + "." + (innerRight ? rightColumn : leftColumn);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("План соединения " + leftTable + " JOIN " + rightTable
+                + " ON " + leftTable + "." + leftColumn + " = " + rightTable + "." + rightColumn + ":");
+        switch (strategy) {
+            case HASH -> lines.add("  Соединение: хеш-таблица по " + innerColumn + " (меньшая сторона), просмотр " + outer);
+            case INDEX_NESTED_LOOP -> lines.add("  Соединение: для каждой строки " + outer
+                    + " поиск по индексу " + index.getName() + " (" + innerColumn + ")");
+        }
+        List<QueryPlan> scanned = strategy == Strategy.HASH ? List.of(leftPlan, rightPlan)
+                : List.of(innerRight ? leftPlan : rightPlan);
+        for (QueryPlan plan : scanned) {
+            for (String line : plan.explain()) {
+                lines.add("  " + line);
+            }
+        }
+        if (strategy == Strategy.INDEX_NESTED_LOOP && innerWhere != null) {
+            lines.add("  Фильтр найденных строк " + inner + ": " + innerWhere);
+        }
+        lines.add(String.format("  Стоимость соединения: %.1f", cost));
+        return lines;
+    }
+}
@@ -0,0 +1,96 @@
+package org.planner;
+
+import org.model.Table;
+import org.storage.ValueRange;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * План одного SELECT, общий для всех его выполнений. Запоминается, какие из условий WHERE (по номеру
+ * в списке conjuncts) использует доступ через индекс и в каком порядке проверяются остальные, поэтому при
+ * следующем выполнении с другими значениями условия подставляются в готовый план без оценки селективности.
+ * План строится заново, если таблица заменена, изменились её столбцы или индексы
+ * или число строк изменилось больше чем вдвое.
+ */
+public final class PlanCache {
+    private volatile Entry entry;
+
+    private record Entry(WeakReference<Table> table, long schemaVersion, int rowCount, int conjunctCount,
+                         QueryPlan plan, int[] accessTerms, int[] filterTerms) {
+    }
+
+    QueryPlan lookup(Table table, List<Condition> conjuncts) {
+        Entry cached = entry;
+        if (cached == null || cached.table.get() != table || cached.schemaVersion != table.getSchemaVersion()
+                || cached.conjunctCount != conjuncts.size()) {
+            return null;
+        }
+        int rowCount = table.getRowCount();
+        if (rowCount > cached.rowCount * 2L + 1 || cached.rowCount > rowCount * 2L + 1) {
+            return null;
+        }
+
+        Condition access = null;
+        QueryPlan plan = cached.plan;
+        if (plan.getAccessPath() == AccessPath.INDEX_LOOKUP) {
+            access = conjuncts.get(cached.accessTerms[0]);
+            if (!(access instanceof Condition.Equals)) {
+                return null;
+            }
+        } else if (plan.getAccessPath() == AccessPath.INDEX_RANGE_SCAN) {
+            ValueRange range = null;
+            String column = null;
+            for (int term : cached.accessTerms) {
+                if (!(conjuncts.get(term) instanceof Condition.Range next)) {
+                    return null;
+                }
+                column = next.column();
+                range = range == null ? next.range() : range.intersect(next.range());
+            }
+            access = new Condition.Range(column, range);
+        }
+
+        List<Condition> filters = new ArrayList<>(cached.filterTerms.length);
+        for (int term : cached.filterTerms) {
+            filters.add(conjuncts.get(term));
+        }
+        return plan.withConditions(access, filters);
+    }
+
+    void store(Table table, QueryPlan plan, List<Condition> conjuncts) {
+        List<Condition> filters = plan.getFilters();
+        int[] filterTerms = new int[filters.size()];
+        boolean[] filtered = new boolean[conjuncts.size()];
+        for (int i = 0; i < filters.size(); i++) {
+            filterTerms[i] = indexOf(conjuncts, filters.get(i), filtered);
+            if (filterTerms[i] == -1) {
+                return;
+            }
+            filtered[filterTerms[i]] = true;
+        }
+
+        List<Integer> access = new ArrayList<>();
+        if (plan.getAccessPath() == AccessPath.INDEX_LOOKUP || plan.getAccessPath() == AccessPath.INDEX_RANGE_SCAN) {
+            for (int i = 0; i < conjuncts.size(); i++) {
+                if (!filtered[i]) {
+                    access.add(i);
+                }
+            }
+        }
+        int[] accessTerms = access.stream().mapToInt(Integer::intValue).toArray();
+        entry = new Entry(new WeakReference<>(table), table.getSchemaVersion(), table.getRowCount(),
+                conjuncts.size(), plan, accessTerms, filterTerms);
+    }
+
+    /** Номер условия в списке по ссылке, пропуская уже занятые (одинаковые условия могут повторяться). */
+    private static int indexOf(List<Condition> conjuncts, Condition condition, boolean[] used) {
+        for (int i = 0; i < conjuncts.size(); i++) {
+            if (!used[i] && conjuncts.get(i) == condition) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,95 @@
+package org.planner;
+
+import org.index.Index;
+import org.storage.ValueRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryPlan {
+    private final String tableName;
+    private final AccessPath accessPath;
+    private final Index index;
+    private final Condition access;
+    private final List<Condition> filters;
+    private final List<Double> filterSelectivities;
+    private final String sortColumn;
+    private final boolean descending;
+    private final boolean sortRequired;
+    private final boolean parallel;
+    private final double estimatedRows;
+    private final double cost;
+
+    QueryPlan(String tableName, AccessPath accessPath, Index index, Condition access,
+              List<Condition> filters, List<Double> filterSelectivities,
+              String sortColumn, boolean descending, boolean sortRequired, boolean parallel,
+              double estimatedRows, double cost) {
+        this.tableName = tableName;
+        this.accessPath = accessPath;
+        this.index = index;
+        this.access = access;
+        this.filters = filters;
+        this.filterSelectivities = filterSelectivities;
+        this.sortColumn = sortColumn;
+        this.descending = descending;
+        this.sortRequired = sortRequired;
+        this.parallel = parallel;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+    }
+
+    /** Тот же план с условиями, в которые подставлены новые значения параметров. */
+    QueryPlan withConditions(Condition access, List<Condition> filters) {
+        return new QueryPlan(tableName, accessPath, index, access, filters, filterSelectivities,
+                sortColumn, descending, sortRequired, parallel, estimatedRows, cost);
+    }
+
+    public AccessPath getAccessPath() {return accessPath;}
+
+    public Index getIndex() {return index;}
+
+    public Object getLookupValue() {return access instanceof Condition.Equals equals ? equals.value() : null;}
+
+    /** Диапазон ключей для INDEX_RANGE_SCAN. */
+    public ValueRange getRange() {return access instanceof Condition.Range range ? range.range() : null;}
+
+    /** Условия, проверяемые для каждой строки, от самого селективного к наименее. */
+    public List<Condition> getFilters() {return filters;}
+
+    public String getSortColumn() {return sortColumn;}
+
+    public boolean isDescending() {return descending;}
+
+    public boolean isSortRequired() {return sortRequired;}
+
+    /** Полный просмотр выполняется по частям в пуле потоков (ParallelScan). */
+    public boolean isParallel() {return parallel;}
+
+    public double getEstimatedRows() {return estimatedRows;}
+
+    public double getCost() {return cost;}
+
+    public List<String> explain() {
+        List<String> lines = new ArrayList<>();
+        lines.add("План запроса для таблицы " + tableName + ":");
+
+        switch (accessPath) {
+            case FULL_SCAN -> lines.add("  Доступ: полный просмотр таблицы" + (parallel ? " (параллельно)" : ""));
+            case INDEX_LOOKUP -> lines.add("  Доступ: поиск по индексу " + index.getName() + " (" + access + ")");
+            case INDEX_RANGE_SCAN -> lines.add("  Доступ: просмотр диапазона индекса " + index.getName() + " (" + access + ")");
+            case INDEX_ORDERED_SCAN -> lines.add("  Доступ: упорядоченный обход индекса " + index.getName());
+        }
+
+        for (int i = 0; i < filters.size(); i++) {
+            lines.add(String.format("  Фильтр: %s (селективность %.4f)", filters.get(i), filterSelectivities.get(i)));
+        }
+
+        if (sortColumn != null) {
+            lines.add("  Сортировка: " + sortColumn + (descending ? " по убыванию" : "")
+                    + (sortRequired ? " (в памяти)" : " (порядок индекса)"));
+        }
+
+        lines.add(String.format("  Оценка строк: %.0f, стоимость: %.1f", estimatedRows, cost));
+        return lines;
+    }
+}
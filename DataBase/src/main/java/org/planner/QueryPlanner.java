@@ -0,0 +1,196 @@
+package org.planner;
+
+import org.index.Index;
+import org.index.TreeIndex;
+import org.model.Table;
+import org.storage.ParallelScan;
+import org.storage.ValueRange;
+
+import java.util.*;
+
+/**
+ * Выбирает путь доступа к строкам по оценке стоимости: полный просмотр, поиск по индексу,
+ * просмотр диапазона TREE-индекса или упорядоченный обход TREE-индекса, если он избавляет
+ * от сортировки. Полный просмотр больших таблиц выполняется параллельно.
+ */
+public class QueryPlanner {
+    private static final double ROW_COST = 1.0;
+    private static final double RANDOM_ROW_COST = 1.5;
+    private static final double HASH_PROBE_COST = 1.0;
+    private static final double HASH_BUILD_COST = 1.5;
+
+    public static QueryPlan plan(Table table, Condition where, String sortColumn) {
+        return plan(table, where, sortColumn, false);
+    }
+
+    /**
+     * План из кэша, если он построен для той же таблицы и её схема и размер не изменились,
+     * иначе новый план, который сохраняется в кэш.
+     */
+    public static QueryPlan plan(Table table, Condition where, String sortColumn, boolean descending, PlanCache cache) {
+        List<Condition> conjuncts = where == null ? List.of() : where.conjuncts();
+        QueryPlan cached = cache.lookup(table, conjuncts);
+        if (cached != null) {
+            return cached;
+        }
+        QueryPlan plan = plan(table, where, sortColumn, descending);
+        cache.store(table, plan, conjuncts);
+        return plan;
+    }
+
+    /** where == null — без условий. */
+    public static QueryPlan plan(Table table, Condition where, String sortColumn, boolean descending) {
+        TableStatistics statistics = table.getStatistics();
+        double rowCount = table.getRowCount();
+
+        List<Condition> predicates = new ArrayList<>(where == null ? List.of() : where.conjuncts());
+        Map<Condition, Double> selectivities = new HashMap<>();
+        for (Condition predicate : predicates) {
+            selectivities.put(predicate, statistics.selectivity(predicate));
+        }
+        predicates.sort(Comparator.comparingDouble(selectivities::get));
+
+        double selectivity = 1.0;
+        for (Condition predicate : predicates) {
+            selectivity *= selectivities.get(predicate);
+        }
+        double estimatedRows = rowCount * selectivity;
+        double sortCost = sortColumn == null ? 0 : sortCost(estimatedRows);
+
+        Candidate best = new Candidate(AccessPath.FULL_SCAN, null, null, List.of(),
+                rowCount * ROW_COST * (1 + predicates.size() * 0.1) + sortCost, sortColumn != null);
+
+        for (Condition predicate : predicates) {
+            if (!(predicate instanceof Condition.Equals equals)) {
+                continue;
+            }
+            Index index = bestIndex(table, equals.column());
+            if (index == null) {
+                continue;
+            }
+            double matched = rowCount * selectivities.get(predicate);
+            double probe = index instanceof TreeIndex ? log2(index.keyCount()) : HASH_PROBE_COST;
+            double cost = probe + matched * RANDOM_ROW_COST + sortCost;
+            if (cost < best.cost) {
+                best = new Candidate(AccessPath.INDEX_LOOKUP, index, predicate, List.of(predicate), cost, sortColumn != null);
+            }
+        }
+
+        for (Map.Entry<String, List<Condition>> ranges : rangesByColumn(predicates).entrySet()) {
+            Index index = table.findIndex(ranges.getKey(), true);
+            if (index == null) {
+                continue;
+            }
+            ValueRange range = null;
+            double matchedSelectivity = 1.0;
+            for (Condition predicate : ranges.getValue()) {
+                ValueRange next = ((Condition.Range) predicate).range();
+                range = range == null ? next : range.intersect(next);
+                matchedSelectivity = Math.min(matchedSelectivity, selectivities.get(predicate));
+            }
+            double cost = log2(index.keyCount()) + rowCount * matchedSelectivity * RANDOM_ROW_COST + sortCost;
+            if (cost < best.cost) {
+                best = new Candidate(AccessPath.INDEX_RANGE_SCAN, index, new Condition.Range(ranges.getKey(), range),
+                        ranges.getValue(), cost, sortColumn != null);
+            }
+        }
+
+        if (sortColumn != null) {
+            Index ordered = table.findIndex(sortColumn, true);
+            if (ordered != null) {
+                double cost = rowCount * RANDOM_ROW_COST;
+                if (cost < best.cost) {
+                    best = new Candidate(AccessPath.INDEX_ORDERED_SCAN, ordered, null, List.of(), cost, false);
+                }
+            }
+        }
+
+        List<Condition> filters = new ArrayList<>(predicates);
+        filters.removeAll(best.consumed);
+        List<Double> filterSelectivities = new ArrayList<>();
+        for (Condition filter : filters) {
+            filterSelectivities.add(selectivities.get(filter));
+        }
+
+        boolean parallel = best.accessPath == AccessPath.FULL_SCAN && ParallelScan.isParallel(rowCount);
+        return new QueryPlan(table.getName(), best.accessPath, best.index, best.access, filters,
+                filterSelectivities, sortColumn, descending, best.sortRequired, parallel, estimatedRows, best.cost);
+    }
+
+    /**
+     * План соединения left JOIN right ON left.leftColumn = right.rightColumn; leftWhere и rightWhere — условия
+     * WHERE каждой из таблиц (null — без условий). Хеш-соединение стоит просмотра обеих сторон и построения
+     * хеш-таблицы по меньшей из них, соединение через индекс — просмотра outer и поиска по индексу
+     * для каждой найденной строки; выбирается более дешёвое.
+     */
+    public static JoinPlan planJoin(Table left, Table right, String leftColumn, String rightColumn,
+                                    Condition leftWhere, Condition rightWhere) {
+        String leftType = left.getColumn(leftColumn).getType();
+        String rightType = right.getColumn(rightColumn).getType();
+        if (!leftType.equalsIgnoreCase(rightType)) {
+            throw new IllegalArgumentException("Ошибка: нельзя соединить " + left.getName() + "." + leftColumn
+                    + " (" + leftType + ") и " + right.getName() + "." + rightColumn + " (" + rightType + ").");
+        }
+
+        QueryPlan leftPlan = plan(left, leftWhere, null);
+        QueryPlan rightPlan = plan(right, rightWhere, null);
+        boolean innerRight = rightPlan.getEstimatedRows() <= leftPlan.getEstimatedRows();
+        QueryPlan inner = innerRight ? rightPlan : leftPlan;
+        QueryPlan outer = innerRight ? leftPlan : rightPlan;
+        double hashCost = leftPlan.getCost() + rightPlan.getCost()
+                + inner.getEstimatedRows() * HASH_BUILD_COST + outer.getEstimatedRows() * HASH_PROBE_COST;
+        JoinPlan best = new JoinPlan(JoinPlan.Strategy.HASH, left.getName(), right.getName(), leftColumn, rightColumn,
+                leftPlan, rightPlan, innerRight, null, null, hashCost);
+
+        for (boolean indexRight : new boolean[]{true, false}) {
+            Table indexed = indexRight ? right : left;
+            Index index = bestIndex(indexed, indexRight ? rightColumn : leftColumn);
+            if (index == null) {
+                continue;
+            }
+            QueryPlan scanned = indexRight ? leftPlan : rightPlan;
+            double probe = index instanceof TreeIndex ? log2(index.keyCount()) : HASH_PROBE_COST;
+            double matches = (double) indexed.getRowCount() / Math.max(1, index.keyCount());
+            double cost = scanned.getCost() + scanned.getEstimatedRows() * (probe + matches * RANDOM_ROW_COST);
+            if (cost < best.getCost()) {
+                best = new JoinPlan(JoinPlan.Strategy.INDEX_NESTED_LOOP, left.getName(), right.getName(),
+                        leftColumn, rightColumn, leftPlan, rightPlan, indexRight, index,
+                        indexRight ? rightWhere : leftWhere, cost);
+            }
+        }
+        return best;
+    }
+
+    private static Map<String, List<Condition>> rangesByColumn(List<Condition> predicates) {
+        Map<String, List<Condition>> result = new LinkedHashMap<>();
+        for (Condition predicate : predicates) {
+            if (predicate instanceof Condition.Range range) {
+                result.computeIfAbsent(range.column(), k -> new ArrayList<>()).add(predicate);
+            }
+        }
+        return result;
+    }
+
+    private static Index bestIndex(Table table, String column) {
+        Index result = null;
+        for (Index index : table.getIndexes().values()) {
+            if (index.getColumn().equals(column) && (result == null || result instanceof TreeIndex)) {
+                result = index;
+            }
+        }
+        return result;
+    }
+
+    private static double sortCost(double rows) {
+        return rows <= 1 ? 0 : rows * log2(rows);
+    }
+
+    private static double log2(double value) {
+        return value <= 1 ? 1 : Math.log(value) / Math.log(2);
+    }
+
+    /** access — условие, по которому идёт доступ через индекс; consumed — условия, которые он уже проверяет. */
+    private record Candidate(AccessPath accessPath, Index index, Condition access, List<Condition> consumed,
+                             double cost, boolean sortRequired) {
+    }
+}
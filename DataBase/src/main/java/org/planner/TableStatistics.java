@@ -0,0 +1,127 @@
+package org.planner;
+
+import org.index.Index;
+import org.model.Table;
+import org.storage.ColumnarStorage;
+import org.storage.ColumnVector;
+import org.storage.StringColumnVector;
+import org.storage.TableStorage;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Оценки числа различных значений в столбцах. Берутся из уже существующих структур
+ * (uniqueValues, индексы, словарь строк), иначе по выборке строк. Кэш сбрасывается
+ * при любом изменении таблицы.
+ */
+public class TableStatistics {
+    private static final int SAMPLE_SIZE = 1024;
+
+    private final Table table;
+    private final Map<String, Long> distinctCounts = new HashMap<>();
+    private long version = -1;
+
+    public TableStatistics(Table table) {
+        this.table = table;
+    }
+
+    public synchronized long distinctCount(String column) {
+        if (version != table.getVersion()) {
+            distinctCounts.clear();
+            version = table.getVersion();
+        }
+        return distinctCounts.computeIfAbsent(column, this::estimateDistinct);
+    }
+
+    public double equalitySelectivity(String column) {
+        return 1.0 / Math.max(1, distinctCount(column));
+    }
+
+    /** Равенство оценивается по числу различных значений, остальные условия — по выборке строк. */
+    public double selectivity(Condition condition) {
+        if (condition instanceof Condition.Equals equals) {
+            return equalitySelectivity(equals.column());
+        }
+        if (condition instanceof Condition.NotEquals notEquals) {
+            return 1.0 - equalitySelectivity(notEquals.column());
+        }
+        return sampleSelectivity(table.getStorage(), condition.bind(table.getStorage()));
+    }
+
+    /** Доля подходящих строк выборки; ни одного совпадения не означает, что их нет, поэтому берётся половина строки. */
+    private static double sampleSelectivity(TableStorage storage, IntPredicate matcher) {
+        int step = Math.max(1, storage.slotCount() / SAMPLE_SIZE);
+        int sampled = 0;
+        int matched = 0;
+
+        for (int slot = 0; slot < storage.slotCount(); slot += step) {
+            int rowId = storage.nextRowId(slot);
+            if (rowId == -1) {
+                break;
+            }
+            sampled++;
+            if (matcher.test(rowId)) {
+                matched++;
+            }
+        }
+        return sampled == 0 ? 1.0 : Math.max(0.5, matched) / sampled;
+    }
+
+    private long estimateDistinct(String column) {
+        int rowCount = table.getRowCount();
+        if (rowCount == 0) {
+            return 1;
+        }
+
+        if (table.getColumn(column).getIsUnique()) {
+            return Math.max(1, table.getUniqueValueCount(column));
+        }
+
+        for (Index index : table.getIndexes().values()) {
+            if (index.getColumn().equals(column)) {
+                return Math.max(1, index.keyCount());
+            }
+        }
+
+        if ("boolean".equalsIgnoreCase(table.getColumn(column).getType())) {
+            return 2;
+        }
+
+        TableStorage storage = table.getStorage();
+        if (storage instanceof ColumnarStorage columnar) {
+            ColumnVector vector = columnar.getVector(column);
+            if (vector instanceof StringColumnVector strings) {
+                return Math.max(1, Math.min(rowCount, strings.dictionarySize()));
+            }
+        }
+
+        return sampleDistinct(storage, column, rowCount);
+    }
+
+    private static long sampleDistinct(TableStorage storage, String column, int rowCount) {
+        int step = Math.max(1, storage.slotCount() / SAMPLE_SIZE);
+        Set<Object> seen = new HashSet<>();
+        int sampled = 0;
+
+        for (int slot = 0; slot < storage.slotCount(); slot += step) {
+            int rowId = storage.nextRowId(slot);
+            if (rowId == -1) {
+                break;
+            }
+            seen.add(storage.getValue(rowId, column));
+            sampled++;
+        }
+
+        if (sampled == 0) {
+            return 1;
+        }
+        if (seen.size() * 2 < sampled) {
+            return seen.size();
+        }
+        return Math.max(1, (long) seen.size() * rowCount / sampled);
+    }
+}
@@ -0,0 +1,86 @@
+package org.server;
+
+import org.storage.ValueCodec;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Клиент сервера базы. Одно подключение — один сеанс: BEGIN/COMMIT действуют на все
+ * последующие запросы этого клиента. Не потокобезопасен, каждому потоку нужен свой клиент.
+ */
+public class DatabaseClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Protocol.FrameWriter frame = new Protocol.FrameWriter();
+
+    public DatabaseClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+    }
+
+    public record Result(List<String> columns, List<List<Object>> rows, List<String> messages) {
+    }
+
+    /** Выполняет команду и собирает весь результат в память. */
+    public Result query(String command) throws IOException, SQLException {
+        List<String> columns = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>();
+        List<String> messages = new ArrayList<>();
+        execute(command, columns::addAll, rows::add, messages::add);
+        return new Result(columns, rows, messages);
+    }
+
+    /** Выполняет команду, передавая строки результата в onRow по мере их прихода. Возвращает число строк. */
+    public int stream(String command, Consumer<List<Object>> onRow) throws IOException, SQLException {
+        return execute(command, columns -> {
+        }, onRow, message -> {
+        });
+    }
+
+    private int execute(String command, Consumer<List<String>> onColumns, Consumer<List<Object>> onRow,
+                        Consumer<String> onMessage) throws IOException, SQLException {
+        frame.begin(Protocol.QUERY).write(command.getBytes(StandardCharsets.UTF_8));
+        frame.send(out);
+        out.flush();
+
+        while (true) {
+            Protocol.Frame response = Protocol.readFrame(in);
+            if (response == null) {
+                throw new EOFException("Сервер закрыл соединение");
+            }
+
+            DataInputStream payload = response.payload();
+            switch (response.type()) {
+                case Protocol.COLUMNS -> {
+                    int count = payload.readInt();
+                    List<String> columns = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        columns.add(ValueCodec.readString(payload));
+                    }
+                    onColumns.accept(columns);
+                }
+                case Protocol.ROW -> onRow.accept(ValueCodec.readValues(payload));
+                case Protocol.MESSAGE -> onMessage.accept(ValueCodec.readString(payload));
+                case Protocol.DONE -> {
+                    return payload.readInt();
+                }
+                case Protocol.ERROR -> throw new SQLException(ValueCodec.readString(payload));
+                default -> throw new IOException("Неизвестный тип кадра: " + response.type());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
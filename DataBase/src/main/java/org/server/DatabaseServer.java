@@ -0,0 +1,120 @@
+package org.server;
+
+import org.app.LoggerManager;
+import org.database.DatabaseConfig;
+import org.database.DatabaseManager;
+import org.database.Session;
+import org.parser.SQLParser;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Сервер без графического интерфейса: каждое подключение обслуживается в своём
+ * виртуальном потоке со своим сеансом (SQLParser), поэтому транзакции клиентов независимы.
+ * Запуск: {@code java -cp ... org.server.DatabaseServer [порт]}.
+ */
+public class DatabaseServer implements Closeable {
+    private static final Logger logger = LoggerManager.getLogger(DatabaseServer.class);
+
+    private final DatabaseManager dbManager;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    public DatabaseServer(DatabaseManager dbManager, int port) throws IOException {
+        this.dbManager = dbManager;
+        this.serverSocket = new ServerSocket(port);
+    }
+
+    public int getPort() {return serverSocket.getLocalPort();}
+
+    /** Принимает подключения, пока сервер не закрыт. */
+    public void serve() {
+        logger.info("Сервер принимает подключения на порту " + getPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> handle(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warning("Ошибка при приёме подключения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        int id = connectionCount.incrementAndGet();
+        logger.info("Подключение " + id + ": " + socket.getRemoteSocketAddress());
+
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16))) {
+            FrameResultSink sink = new FrameResultSink(out);
+            Session session = new Session(sink);
+            SQLParser parser = new SQLParser(dbManager, session);
+
+            try {
+                Protocol.Frame frame;
+                while ((frame = Protocol.readFrame(in)) != null) {
+                    if (frame.type() != Protocol.QUERY) {
+                        sink.error("Ожидался кадр запроса, получен " + frame.type());
+                        continue;
+                    }
+
+                    String command = new String(frame.payload().readAllBytes(), StandardCharsets.UTF_8);
+                    sink.reset();
+                    try {
+                        parser.execute(command);
+                        sink.done();
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    } catch (Exception e) {
+                        sink.error(e.getMessage());
+                    }
+                }
+            } finally {
+                dbManager.closeSession(session);
+            }
+        } catch (SocketException | EOFException e) {
+            logger.info("Подключение " + id + " разорвано: " + e.getMessage());
+        } catch (IOException e) {
+            logger.warning("Ошибка в подключении " + id + ": " + e.getMessage());
+        }
+        logger.info("Подключение " + id + " закрыто");
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DatabaseConfig.getServerPort();
+
+        DatabaseManager dbManager = new DatabaseManager();
+        dbManager.ensure_DB_DirectoryExists();
+        dbManager.loadAllTables();
+
+        DatabaseServer server = new DatabaseServer(dbManager, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.warning("Ошибка при остановке сервера: " + e.getMessage());
+            }
+            dbManager.close();
+        }));
+        server.serve();
+    }
+}
@@ -0,0 +1,77 @@
+package org.server;
+
+import org.command.ResultSink;
+import org.storage.ValueCodec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/** Отправляет результат команды клиенту кадрами протокола по мере получения строк. */
+class FrameResultSink implements ResultSink {
+    private final DataOutputStream out;
+    private final Protocol.FrameWriter frame = new Protocol.FrameWriter();
+    private int rows;
+
+    FrameResultSink(DataOutputStream out) {
+        this.out = out;
+    }
+
+    int getRows() {return rows;}
+
+    void reset() {
+        rows = 0;
+    }
+
+    @Override
+    public void columns(List<String> names) {
+        try {
+            DataOutputStream data = frame.begin(Protocol.COLUMNS);
+            data.writeInt(names.size());
+            for (String name : names) {
+                ValueCodec.writeString(data, name);
+            }
+            frame.send(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void row(List<Object> values) {
+        try {
+            ValueCodec.writeValues(frame.begin(Protocol.ROW), values);
+            frame.send(out);
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void message(String text) {
+        try {
+            ValueCodec.writeString(frame.begin(Protocol.MESSAGE), text);
+            frame.send(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void done() throws IOException {
+        frame.begin(Protocol.DONE).writeInt(rows);
+        frame.send(out);
+        out.flush();
+    }
+
+    void error(String message) throws IOException {
+        ValueCodec.writeString(frame.begin(Protocol.ERROR), message == null ? "Неизвестная ошибка" : message);
+        frame.send(out);
+        out.flush();
+    }
+}
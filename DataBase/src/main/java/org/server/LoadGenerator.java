@@ -0,0 +1,88 @@
+package org.server;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузка на сервер: clients потоков, каждый со своим подключением, в течение seconds
+ * секунд вставляют строки и читают их по ключу. Доля чтений задаётся readPercent.
+ * Запуск: {@code java -cp ... org.server.LoadGenerator host port clients seconds readPercent}.
+ */
+public class LoadGenerator {
+    private static final String TABLE = "LOAD_TEST";
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int readPercent = args.length > 4 ? Integer.parseInt(args[4]) : 80;
+
+        try (DatabaseClient client = new DatabaseClient(host, port)) {
+            try {
+                client.query("CREATE TABLE " + TABLE + " (id int unique; client int; payload string);");
+                client.query("CREATE INDEX " + TABLE + "_ID ON " + TABLE + "(id);");
+            } catch (SQLException e) {
+                System.out.println("Таблица " + TABLE + " уже существует, используется она");
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicInteger errors = new AtomicInteger();
+        long[][] latencies = new long[clients][];
+        Thread[] threads = new Thread[clients];
+
+        for (int c = 0; c < clients; c++) {
+            int clientId = c;
+            threads[c] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                int inserted = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                try (DatabaseClient client = new DatabaseClient(host, port)) {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            if (inserted > 0 && random.nextInt(100) < readPercent) {
+                                int id = clientId * 100_000_000 + random.nextInt(inserted);
+                                client.query("SELECT * FROM " + TABLE + " WHERE id=" + id + ";");
+                            } else {
+                                int id = clientId * 100_000_000 + inserted++;
+                                client.query("INSERT INTO " + TABLE + " (" + id + ", " + clientId + ", \"row " + id + "\");");
+                            }
+                        } catch (SQLException e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    System.out.println("Клиент " + clientId + " остановлен: " + e.getMessage());
+                }
+                latencies[clientId] = Arrays.copyOf(samples, count);
+            });
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("Клиентов: %d, запросов: %d, ошибок: %d, %.0f запросов/с%n", clients, all.length,
+                errors.get(), all.length / (double) seconds);
+        if (all.length > 0) {
+            System.out.printf("Задержка, мкс: p50 %d, p99 %d, max %d%n", percentile(all, 0.50) / 1000,
+                    percentile(all, 0.99) / 1000, all[all.length - 1] / 1000);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
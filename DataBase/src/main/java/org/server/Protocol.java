@@ -0,0 +1,63 @@
+package org.server;
+
+import org.storage.ValueCodec;
+
+import java.io.*;
+
+/**
+ * Сетевой протокол сервера. Каждое сообщение — кадр [int длина][byte тип][данные],
+ * длина считает тип и данные. Клиент шлёт QUERY с текстом команды, сервер отвечает
+ * кадрами COLUMNS, ROW..., MESSAGE... и завершает ответ кадром DONE или ERROR.
+ * Строки и значения в данных кодируются {@link ValueCodec}.
+ */
+public final class Protocol {
+    public static final byte QUERY = 1;
+    public static final byte COLUMNS = 2;
+    public static final byte ROW = 3;
+    public static final byte MESSAGE = 4;
+    public static final byte DONE = 5;
+    public static final byte ERROR = 6;
+
+    /** Предел размера кадра, чтобы повреждённая длина не приводила к огромному выделению памяти. */
+    public static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private Protocol() {
+    }
+
+    public record Frame(byte type, DataInputStream payload) {
+    }
+
+    /** Кадр собирается в буфере, чтобы записать длину перед данными. */
+    public static class FrameWriter {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(buffer);
+
+        public DataOutputStream begin(byte type) throws IOException {
+            buffer.reset();
+            data.writeByte(type);
+            return data;
+        }
+
+        public void send(DataOutputStream out) throws IOException {
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        }
+    }
+
+    /** Читает следующий кадр; null, если соединение закрыто между кадрами. */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("Некорректная длина кадра: " + length);
+        }
+
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return new Frame(frame[0], new DataInputStream(new ByteArrayInputStream(frame, 1, length - 1)));
+    }
+}
@@ -0,0 +1,254 @@
+package org.storage;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Колонка массивов ([]ints, []strings, []booleans, []dates) в упакованном виде: элементы всех строк лежат
+ * подряд в одном int[] data, строка хранит начало и длину (-1 — пустое значение). int и boolean хранятся
+ * как есть, строки и даты — кодами словаря колонки, поэтому повторяющиеся значения хранятся один раз,
+ * а равенство массивов проверяется сравнением int. При замене значения старые элементы остаются в data
+ * до уплотнения (truncate после compact или когда мусора становится больше, чем живых элементов).
+ */
+public class ArrayColumnVector extends ColumnVector {
+    private static final int NULL_LENGTH = -1;
+
+    private final String elementType;
+    private int[] starts = new int[0];
+    private int[] lengths = new int[0];
+    private int[] data = new int[16];
+    private int dataSize;
+    private int garbage;
+    private final List<Object> dictionary = new ArrayList<>();
+    private final Map<Object, Integer> dictionaryCodes = new HashMap<>();
+
+    /** elementType — тип элемента: int, string, boolean или date. */
+    public ArrayColumnVector(String elementType) {
+        this.elementType = elementType.toLowerCase();
+    }
+
+    /** Готовая колонка из файла таблицы: длины строк, элементы подряд и словарь. */
+    public ArrayColumnVector(String elementType, int[] lengths, int[] data, List<Object> dictionary) {
+        this(elementType);
+        this.lengths = lengths;
+        this.starts = new int[lengths.length];
+        int position = 0;
+        for (int rowId = 0; rowId < lengths.length; rowId++) {
+            starts[rowId] = position;
+            position += Math.max(0, lengths[rowId]);
+        }
+        this.data = data;
+        this.dataSize = position;
+        for (Object value : dictionary) {
+            dictionaryCodes.put(value, this.dictionary.size());
+            this.dictionary.add(value);
+        }
+    }
+
+    /** Тип элемента по типу столбца ([]ints -> int); null, если тип не массив. */
+    public static String elementType(String columnType) {
+        String type = columnType.toLowerCase();
+        return switch (type.startsWith("[]") ? type.substring(2).trim() : "") {
+            case "ints" -> "int";
+            case "strings" -> "string";
+            case "booleans" -> "boolean";
+            case "dates" -> "date";
+            default -> null;
+        };
+    }
+
+    public String getElementType() {return elementType;}
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (rowId >= lengths.length) {
+            int oldLength = lengths.length;
+            int capacity = grow(oldLength, rowId);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            Arrays.fill(lengths, oldLength, capacity, NULL_LENGTH);
+        } else if (lengths[rowId] > 0) {
+            garbage += lengths[rowId];
+        }
+        if (isEmpty(value)) {
+            lengths[rowId] = NULL_LENGTH;
+            return;
+        }
+        if (!(value instanceof List<?> list)) {
+            throw new IllegalArgumentException("Неверное значение массива: " + value);
+        }
+
+        if (garbage > dataSize / 2 && garbage > 1024) {
+            lengths[rowId] = NULL_LENGTH;
+            repack(lengths.length);
+        }
+        ensureData(dataSize + list.size());
+        starts[rowId] = dataSize;
+        lengths[rowId] = list.size();
+        for (Object element : list) {
+            data[dataSize++] = encode(element);
+        }
+    }
+
+    private int encode(Object element) {
+        return switch (elementType) {
+            case "int" -> (Integer) element;
+            case "boolean" -> (Boolean) element ? 1 : 0;
+            default -> {
+                Object key = element instanceof ZonedDateTime ? element : element.toString();
+                Integer code = dictionaryCodes.get(key);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add(key);
+                    dictionaryCodes.put(key, code);
+                }
+                yield code;
+            }
+        };
+    }
+
+    private Object decode(int element) {
+        return switch (elementType) {
+            case "int" -> element;
+            case "boolean" -> element != 0;
+            default -> dictionary.get(element);
+        };
+    }
+
+    @Override
+    public Object get(int rowId) {
+        int length = lengths[rowId];
+        if (length == NULL_LENGTH) {
+            return EMPTY;
+        }
+        List<Object> values = new ArrayList<>(length);
+        int start = starts[rowId];
+        for (int i = 0; i < length; i++) {
+            values.add(decode(data[start + i]));
+        }
+        return values;
+    }
+
+    @Override
+    public boolean isNull(int rowId) {return lengths[rowId] == NULL_LENGTH;}
+
+    /** Число элементов массива в строке (-1 — пустое значение). */
+    public int length(int rowId) {return lengths[rowId];}
+
+    /** Код или значение i-го элемента: int как есть, boolean — 0/1, строки и даты — код словаря. */
+    public int element(int rowId, int i) {return data[starts[rowId] + i];}
+
+    public int dictionarySize() {return dictionary.size();}
+
+    /** Значение элемента словаря строк и дат. */
+    public Object decodeElement(int code) {return dictionary.get(code);}
+
+    /** Элементы строк подряд в порядке rowIds и длины строк — для записи в файл таблицы. */
+    public int[] packedData(int[] rowIds, int[] lengthsOut) {
+        int total = 0;
+        for (int i = 0; i < rowIds.length; i++) {
+            lengthsOut[i] = lengths[rowIds[i]];
+            total += Math.max(0, lengthsOut[i]);
+        }
+        int[] packed = new int[total];
+        int position = 0;
+        for (int rowId : rowIds) {
+            int length = lengths[rowId];
+            if (length > 0) {
+                System.arraycopy(data, starts[rowId], packed, position, length);
+                position += length;
+            }
+        }
+        return packed;
+    }
+
+    @Override
+    public void move(int from, int to) {
+        starts[to] = starts[from];
+        lengths[to] = lengths[from];
+    }
+
+    @Override
+    public void truncate(int size) {
+        for (int rowId = size; rowId < lengths.length; rowId++) {
+            lengths[rowId] = NULL_LENGTH;
+        }
+        repack(size);
+        starts = Arrays.copyOf(starts, size);
+        lengths = Arrays.copyOf(lengths, size);
+    }
+
+    /** Переписывает элементы строк [0, rows) подряд, освобождая место, занятое заменёнными значениями. */
+    private void repack(int rows) {
+        int live = 0;
+        for (int rowId = 0; rowId < rows; rowId++) {
+            live += Math.max(0, lengths[rowId]);
+        }
+        int[] packed = new int[Math.max(16, live + (live >> 2))];
+        int position = 0;
+        for (int rowId = 0; rowId < rows; rowId++) {
+            int length = lengths[rowId];
+            if (length > 0) {
+                System.arraycopy(data, starts[rowId], packed, position, length);
+            }
+            starts[rowId] = position;
+            position += Math.max(0, length);
+        }
+        data = packed;
+        dataSize = position;
+        garbage = 0;
+    }
+
+    private void ensureData(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1)));
+        }
+    }
+
+    @Override
+    public long estimateBytes() {
+        long bytes = lengths.length * 8L + data.length * 4L;
+        for (Object value : dictionary) {
+            bytes += value instanceof String string ? 40 + string.length() * 2L + 48 : 64;
+        }
+        return bytes;
+    }
+
+    /** Массив значения приводится к кодам один раз, строки сравниваются по int без создания списков. */
+    @Override
+    public IntPredicate equalsMatcher(Object value) {
+        if (isEmpty(value)) {
+            return rowId -> lengths[rowId] == NULL_LENGTH;
+        }
+        if (!(value instanceof List<?> list)) {
+            return rowId -> false;
+        }
+        int[] expected = new int[list.size()];
+        for (int i = 0; i < expected.length; i++) {
+            Object element = list.get(i);
+            if (elementType.equals("string") || elementType.equals("date")) {
+                Integer code = dictionaryCodes.get(element instanceof ZonedDateTime ? element : String.valueOf(element));
+                if (code == null) {
+                    return rowId -> false;
+                }
+                expected[i] = code;
+            } else if (element instanceof Integer number && elementType.equals("int")) {
+                expected[i] = number;
+            } else if (element instanceof Boolean bool && elementType.equals("boolean")) {
+                expected[i] = bool ? 1 : 0;
+            } else {
+                return rowId -> false;
+            }
+        }
+        return rowId -> {
+            int start = starts[rowId];
+            return lengths[rowId] == expected.length
+                    && Arrays.equals(data, start, start + expected.length, expected, 0, expected.length);
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package org.storage;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+public class BooleanColumnVector extends ColumnVector {
+    private final BitSet values;
+    private final BitSet nulls;
+
+    public BooleanColumnVector() {
+        this(new BitSet(), new BitSet());
+    }
+
+    public BooleanColumnVector(BitSet values, BitSet nulls) {
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (isEmpty(value)) {
+            nulls.set(rowId);
+            values.clear(rowId);
+            return;
+        }
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("Неверное логическое значение: " + value);
+        }
+        values.set(rowId, (Boolean) value);
+        nulls.clear(rowId);
+    }
+
+    @Override
+    public Object get(int rowId) {
+        return nulls.get(rowId) ? EMPTY : values.get(rowId);
+    }
+
+    public boolean getBoolean(int rowId) {return values.get(rowId);}
+
+    @Override
+    public boolean isNull(int rowId) {return nulls.get(rowId);}
+
+    @Override
+    public void move(int from, int to) {
+        values.set(to, values.get(from));
+        nulls.set(to, nulls.get(from));
+    }
+
+    @Override
+    public void truncate(int size) {
+        values.clear(size, Math.max(size, values.length()));
+        nulls.clear(size, Math.max(size, nulls.length()));
+    }
+
+    @Override
+    public long estimateBytes() {
+        return (values.size() + nulls.size()) / 8;
+    }
+
+    @Override
+    public IntPredicate equalsMatcher(Object value) {
+        if (isEmpty(value)) {
+            return nulls::get;
+        }
+        if (!(value instanceof Boolean)) {
+            return rowId -> false;
+        }
+        boolean expected = (Boolean) value;
+        return rowId -> values.get(rowId) == expected && !nulls.get(rowId);
+    }
+}
@@ -0,0 +1,200 @@
+package org.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Колонка columnar-хранилища. Пустое значение ("" из Literal.toValue или null)
+ * хранится битом в nulls и читается обратно как "".
+ */
+public abstract class ColumnVector {
+    protected static final Object EMPTY = "";
+
+    public abstract void set(int rowId, Object value);
+
+    public abstract Object get(int rowId);
+
+    public abstract boolean isNull(int rowId);
+
+    /** Переносит значение из слота from в слот to (to <= from), используется при уплотнении. */
+    public abstract void move(int from, int to);
+
+    public abstract void truncate(int size);
+
+    public abstract long estimateBytes();
+
+    public IntPredicate equalsMatcher(Object value) {
+        Object key = ValueRange.equalityKey(value);
+        return rowId -> Objects.equals(ValueRange.equalityKey(get(rowId)), key);
+    }
+
+    public IntPredicate rangeMatcher(ValueRange range) {
+        return rowId -> range.contains(get(rowId));
+    }
+
+    /** Произвольная проверка значения (IN, LIKE); пустое значение передаётся как "". */
+    public IntPredicate valueMatcher(Predicate<Object> test) {
+        return rowId -> test.test(get(rowId));
+    }
+
+    protected static boolean isEmpty(Object value) {
+        return value == null || EMPTY.equals(value);
+    }
+
+    protected static int grow(int capacity, int rowId) {
+        return Math.max(rowId + 1, Math.max(16, capacity + (capacity >> 1)));
+    }
+
+    public static ColumnVector forType(String type) {
+        return switch (type.toLowerCase()) {
+            case "int" -> new IntColumnVector();
+            case "boolean" -> new BooleanColumnVector();
+            case "date" -> new DateColumnVector();
+            case "string" -> new StringColumnVector();
+            default -> {
+                String elementType = ArrayColumnVector.elementType(type);
+                yield elementType != null ? new ArrayColumnVector(elementType) : new ObjectColumnVector();
+            }
+        };
+    }
+
+    /**
+     * Склеивает колонки одного типа, прочитанные по частям (сегменты файла таблицы): i-я часть содержит
+     * rows[i] строк. Значения копируются из примитивных массивов, словари строк и элементов массивов
+     * объединяются с перекодировкой.
+     */
+    public static ColumnVector concat(List<ColumnVector> parts, int[] rows) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int total = 0;
+        for (int count : rows) {
+            total += count;
+        }
+        BitSet nulls = new BitSet(total);
+
+        switch (parts.get(0)) {
+            case IntColumnVector ignored -> {
+                int[] values = new int[total];
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    IntColumnVector ints = (IntColumnVector) parts.get(part);
+                    for (int i = 0; i < rows[part]; i++) {
+                        if (ints.isNull(i)) {
+                            nulls.set(base + i);
+                        } else {
+                            values[base + i] = ints.getInt(i);
+                        }
+                    }
+                    base += rows[part];
+                }
+                return new IntColumnVector(values, nulls);
+            }
+            case BooleanColumnVector ignored -> {
+                BitSet values = new BitSet(total);
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    BooleanColumnVector booleans = (BooleanColumnVector) parts.get(part);
+                    for (int i = 0; i < rows[part]; i++) {
+                        nulls.set(base + i, booleans.isNull(i));
+                        values.set(base + i, booleans.getBoolean(i));
+                    }
+                    base += rows[part];
+                }
+                return new BooleanColumnVector(values, nulls);
+            }
+            case DateColumnVector ignored -> {
+                long[] seconds = new long[total];
+                int[] nanos = new int[total];
+                int[] offsets = new int[total];
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    DateColumnVector dates = (DateColumnVector) parts.get(part);
+                    for (int i = 0; i < rows[part]; i++) {
+                        if (dates.isNull(i)) {
+                            nulls.set(base + i);
+                            continue;
+                        }
+                        seconds[base + i] = dates.getEpochSecond(i);
+                        nanos[base + i] = dates.getNano(i);
+                        offsets[base + i] = dates.getOffsetSeconds(i);
+                    }
+                    base += rows[part];
+                }
+                return new DateColumnVector(seconds, nanos, offsets, nulls);
+            }
+            case StringColumnVector ignored -> {
+                int[] codes = new int[total];
+                List<String> dictionary = new ArrayList<>();
+                Map<String, Integer> dictionaryCodes = new HashMap<>();
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    StringColumnVector strings = (StringColumnVector) parts.get(part);
+                    int[] recode = new int[strings.dictionarySize()];
+                    for (int code = 0; code < recode.length; code++) {
+                        recode[code] = dictionaryCodes.computeIfAbsent(strings.decode(code), value -> {
+                            dictionary.add(value);
+                            return dictionary.size() - 1;
+                        });
+                    }
+                    for (int i = 0; i < rows[part]; i++) {
+                        codes[base + i] = strings.isNull(i) ? -1 : recode[strings.getCode(i)];
+                    }
+                    base += rows[part];
+                }
+                return new StringColumnVector(codes, dictionary);
+            }
+            case ArrayColumnVector first -> {
+                boolean coded = first.getElementType().equals("string") || first.getElementType().equals("date");
+                int[] lengths = new int[total];
+                int[] data = new int[16];
+                int dataSize = 0;
+                List<Object> dictionary = new ArrayList<>();
+                Map<Object, Integer> dictionaryCodes = new HashMap<>();
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    ArrayColumnVector arrays = (ArrayColumnVector) parts.get(part);
+                    int[] recode = new int[coded ? arrays.dictionarySize() : 0];
+                    for (int code = 0; code < recode.length; code++) {
+                        recode[code] = dictionaryCodes.computeIfAbsent(arrays.decodeElement(code), value -> {
+                            dictionary.add(value);
+                            return dictionary.size() - 1;
+                        });
+                    }
+                    for (int i = 0; i < rows[part]; i++) {
+                        int length = arrays.length(i);
+                        lengths[base + i] = length;
+                        if (dataSize + Math.max(0, length) > data.length) {
+                            data = Arrays.copyOf(data, Math.max(dataSize + length, data.length * 2));
+                        }
+                        for (int element = 0; element < length; element++) {
+                            int value = arrays.element(i, element);
+                            data[dataSize++] = coded ? recode[value] : value;
+                        }
+                    }
+                    base += rows[part];
+                }
+                return new ArrayColumnVector(first.getElementType(), lengths, data, dictionary);
+            }
+            default -> {
+                Object[] values = new Object[total];
+                int base = 0;
+                for (int part = 0; part < parts.size(); part++) {
+                    ColumnVector vector = parts.get(part);
+                    for (int i = 0; i < rows[part]; i++) {
+                        values[base + i] = vector.isNull(i) ? null : vector.get(i);
+                    }
+                    base += rows[part];
+                }
+                return new ObjectColumnVector(values);
+            }
+        }
+    }
+}
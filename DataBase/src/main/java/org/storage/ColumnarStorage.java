@@ -0,0 +1,252 @@
+package org.storage;
+
+import org.model.Column;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Колонки по столбцам и статистика зон ({@link ZoneMap}) для пропуска зон при полном просмотре.
+ * Зоны, изменённые после записи файла таблицы, отмечаются в dirty — страничный формат перезаписывает
+ * только их.
+ */
+public class ColumnarStorage implements TableStorage {
+    private final LinkedHashMap<String, ColumnVector> vectors = new LinkedHashMap<>();
+    private final BitSet deleted = new BitSet();
+    private ZoneMap zones = new ZoneMap();
+    private BitSet dirty;
+    private int slots;
+    private int size;
+
+    @Override
+    public int add(Map<String, Object> row) {
+        int rowId = slots;
+        for (Map.Entry<String, ColumnVector> entry : vectors.entrySet()) {
+            entry.getValue().set(rowId, row.get(entry.getKey()));
+        }
+        zones.add(rowId);
+        markDirty(rowId);
+        slots++;
+        size++;
+        return rowId;
+    }
+
+    @Override
+    public void remove(int rowId) {
+        if (rowId < slots && !deleted.get(rowId)) {
+            zones.remove(rowId);
+            markDirty(rowId);
+            deleted.set(rowId);
+            size--;
+        }
+    }
+
+    @Override
+    public int nextRowId(int from) {
+        int rowId = deleted.nextClearBit(from);
+        return rowId < slots ? rowId : -1;
+    }
+
+    /** Пропускает зоны из skippedZones целиком, не проверяя их строки. */
+    @Override
+    public int nextRowId(int from, BitSet skippedZones) {
+        int rowId = nextRowId(from);
+        while (skippedZones != null && rowId != -1 && skippedZones.get(rowId >> ZoneMap.ZONE_SHIFT)) {
+            rowId = nextRowId(skippedZones.nextClearBit(rowId >> ZoneMap.ZONE_SHIFT) << ZoneMap.ZONE_SHIFT);
+        }
+        return rowId;
+    }
+
+    public ZoneMap getZoneMap() {return zones;}
+
+    @Override
+    public BitSet dirtyZones() {return dirty;}
+
+    @Override
+    public void markClean() {
+        dirty = new BitSet();
+    }
+
+    @Override
+    public void markAllDirty() {
+        dirty = null;
+    }
+
+    private void markDirty(int rowId) {
+        if (dirty != null) {
+            dirty.set(rowId >> ZoneMap.ZONE_SHIFT);
+        }
+    }
+
+    /**
+     * Зоны, в которых mayMatch ложно и ни одна строка не подходит; последняя неполная зона не
+     * пропускается, так как в неё ещё добавляются строки.
+     */
+    public BitSet skippedZones(IntPredicate mayMatch) {
+        BitSet skipped = new BitSet();
+        int fullZones = slots >> ZoneMap.ZONE_SHIFT;
+        for (int zone = 0; zone < fullZones; zone++) {
+            if (!mayMatch.test(zone)) {
+                skipped.set(zone);
+            }
+        }
+        return skipped;
+    }
+
+    /** Статистика зон строк rowIds в порядке записи — для файла таблицы. */
+    public ZoneMap zonesForRows(int[] rowIds) {
+        return ZoneMap.forRows(vectors, rowIds);
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public int slotCount() {return slots;}
+
+    @Override
+    public Object getValue(int rowId, String column) {
+        ColumnVector vector = vectors.get(column);
+        return vector == null ? null : vector.get(rowId);
+    }
+
+    @Override
+    public void setValue(int rowId, String column, Object value) {
+        zones.remove(rowId, column);
+        vectors.get(column).set(rowId, value);
+        zones.add(rowId, column);
+        markDirty(rowId);
+    }
+
+    public ColumnVector getVector(String column) {
+        return vectors.get(column);
+    }
+
+    @Override
+    public Map<String, Object> getRow(int rowId) {
+        Map<String, Object> row = new HashMap<>();
+        for (Map.Entry<String, ColumnVector> entry : vectors.entrySet()) {
+            row.put(entry.getKey(), entry.getValue().get(rowId));
+        }
+        return row;
+    }
+
+    @Override
+    public IntPredicate equalsMatcher(String column, Object value) {
+        ColumnVector vector = vectors.get(column);
+        if (vector == null) {
+            return rowId -> false;
+        }
+        return vector.equalsMatcher(value);
+    }
+
+    @Override
+    public IntPredicate rangeMatcher(String column, ValueRange range) {
+        ColumnVector vector = vectors.get(column);
+        if (vector == null) {
+            return rowId -> false;
+        }
+        return vector.rangeMatcher(range);
+    }
+
+    @Override
+    public IntPredicate valueMatcher(String column, Predicate<Object> test) {
+        ColumnVector vector = vectors.get(column);
+        if (vector == null) {
+            return rowId -> false;
+        }
+        return vector.valueMatcher(test);
+    }
+
+    @Override
+    public void addColumn(Column column) {
+        ColumnVector vector = ColumnVector.forType(column.getType());
+        for (int rowId = 0; rowId < slots; rowId++) {
+            vector.set(rowId, null);
+        }
+        vectors.put(column.getName(), vector);
+        zones.addColumn(column.getName(), vector);
+        for (int rowId = nextRowId(0); rowId != -1; rowId = nextRowId(rowId + 1)) {
+            zones.add(rowId, column.getName());
+        }
+        dirty = null;
+    }
+
+    @Override
+    public void dropColumn(String column) {
+        vectors.remove(column);
+        zones.dropColumn(column);
+        dirty = null;
+    }
+
+    @Override
+    public long estimateBytes() {
+        long bytes = deleted.size() / 8;
+        for (ColumnVector vector : vectors.values()) {
+            bytes += vector.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Заменяет содержимое готовыми колонками из rowCount слотов (загрузка файла таблицы), удалённые
+     * слоты — deletedSlots (null — нет). Статистика зон берётся из файла, а если её там нет (null) —
+     * пересчитывается по колонкам.
+     */
+    public void load(Map<String, ColumnVector> columnVectors, int rowCount, BitSet deletedSlots, ZoneMap zoneMap) {
+        vectors.clear();
+        vectors.putAll(columnVectors);
+        deleted.clear();
+        if (deletedSlots != null) {
+            deleted.or(deletedSlots);
+        }
+        slots = rowCount;
+        size = rowCount - deleted.cardinality();
+        if (zoneMap != null) {
+            zones = zoneMap;
+        } else {
+            rebuildZones();
+        }
+        dirty = null;
+    }
+
+    private void rebuildZones() {
+        zones = new ZoneMap();
+        vectors.forEach(zones::addColumn);
+        for (int rowId = nextRowId(0); rowId != -1; rowId = nextRowId(rowId + 1)) {
+            zones.add(rowId);
+        }
+    }
+
+    @Override
+    public int[] compact() {
+        int[] mapping = new int[slots];
+        int next = 0;
+
+        for (int rowId = 0; rowId < slots; rowId++) {
+            if (deleted.get(rowId)) {
+                mapping[rowId] = -1;
+                continue;
+            }
+            if (rowId != next) {
+                for (ColumnVector vector : vectors.values()) {
+                    vector.move(rowId, next);
+                }
+            }
+            mapping[rowId] = next++;
+        }
+
+        for (ColumnVector vector : vectors.values()) {
+            vector.truncate(next);
+        }
+        deleted.clear();
+        slots = next;
+        rebuildZones();
+        dirty = null;
+        return mapping;
+    }
+}
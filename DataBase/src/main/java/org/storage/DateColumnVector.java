@@ -0,0 +1,136 @@
+package org.storage;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Дата хранится как epoch-секунды, наносекунды и смещение зоны — этого достаточно,
+ * чтобы восстановить ZonedDateTime, разобранный через ISO_OFFSET_DATE_TIME.
+ */
+public class DateColumnVector extends ColumnVector {
+    private long[] epochSeconds = new long[0];
+    private int[] nanos = new int[0];
+    private int[] offsets = new int[0];
+    private final BitSet nulls;
+
+    public DateColumnVector() {
+        this.nulls = new BitSet();
+    }
+
+    public DateColumnVector(long[] epochSeconds, int[] nanos, int[] offsets, BitSet nulls) {
+        this.epochSeconds = epochSeconds;
+        this.nanos = nanos;
+        this.offsets = offsets;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (rowId >= epochSeconds.length) {
+            int capacity = grow(epochSeconds.length, rowId);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            nanos = Arrays.copyOf(nanos, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        if (isEmpty(value)) {
+            nulls.set(rowId);
+            return;
+        }
+        if (!(value instanceof ZonedDateTime date)) {
+            throw new IllegalArgumentException("Неверное значение даты: " + value);
+        }
+        epochSeconds[rowId] = date.toEpochSecond();
+        nanos[rowId] = date.getNano();
+        offsets[rowId] = date.getOffset().getTotalSeconds();
+        nulls.clear(rowId);
+    }
+
+    @Override
+    public Object get(int rowId) {
+        if (nulls.get(rowId)) {
+            return EMPTY;
+        }
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds[rowId], nanos[rowId]),
+                ZoneOffset.ofTotalSeconds(offsets[rowId]));
+    }
+
+    public long getEpochSecond(int rowId) {return epochSeconds[rowId];}
+
+    public int getNano(int rowId) {return nanos[rowId];}
+
+    public int getOffsetSeconds(int rowId) {return offsets[rowId];}
+
+    @Override
+    public boolean isNull(int rowId) {return nulls.get(rowId);}
+
+    @Override
+    public void move(int from, int to) {
+        epochSeconds[to] = epochSeconds[from];
+        nanos[to] = nanos[from];
+        offsets[to] = offsets[from];
+        nulls.set(to, nulls.get(from));
+    }
+
+    @Override
+    public void truncate(int size) {
+        epochSeconds = Arrays.copyOf(epochSeconds, size);
+        nanos = Arrays.copyOf(nanos, size);
+        offsets = Arrays.copyOf(offsets, size);
+        nulls.clear(size, Math.max(size, nulls.length()));
+    }
+
+    @Override
+    public long estimateBytes() {
+        return epochSeconds.length * 16L + nulls.size() / 8;
+    }
+
+    /** Равенство, как и диапазоны, — по моменту времени: смещение зоны не сравнивается. */
+    @Override
+    public IntPredicate equalsMatcher(Object value) {
+        if (isEmpty(value)) {
+            return nulls::get;
+        }
+        if (!(value instanceof ZonedDateTime date)) {
+            return rowId -> false;
+        }
+        long seconds = date.toEpochSecond();
+        int nano = date.getNano();
+        return rowId -> epochSeconds[rowId] == seconds && nanos[rowId] == nano && !nulls.get(rowId);
+    }
+
+    /** Момент времени строки сравнивается с границами по epochSeconds и nanos, без создания ZonedDateTime. */
+    @Override
+    public IntPredicate rangeMatcher(ValueRange range) {
+        if (range.low() != null && !(range.low() instanceof ZonedDateTime)
+                || range.high() != null && !(range.high() instanceof ZonedDateTime)) {
+            return super.rangeMatcher(range);
+        }
+        ZonedDateTime low = (ZonedDateTime) range.low();
+        ZonedDateTime high = (ZonedDateTime) range.high();
+        long lowSeconds = low == null ? 0 : low.toEpochSecond();
+        int lowNano = low == null ? 0 : low.getNano();
+        long highSeconds = high == null ? 0 : high.toEpochSecond();
+        int highNano = high == null ? 0 : high.getNano();
+        int lowLimit = range.lowInclusive() ? 0 : 1;
+        int highLimit = range.highInclusive() ? 0 : -1;
+
+        return rowId -> {
+            if (nulls.get(rowId)) {
+                return false;
+            }
+            if (low != null && compare(rowId, lowSeconds, lowNano) < lowLimit) {
+                return false;
+            }
+            return high == null || compare(rowId, highSeconds, highNano) <= highLimit;
+        };
+    }
+
+    private int compare(int rowId, long seconds, int nano) {
+        int result = Long.compare(epochSeconds[rowId], seconds);
+        return result != 0 ? result : Integer.compare(nanos[rowId], nano);
+    }
+}
@@ -0,0 +1,94 @@
+package org.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+public class IntColumnVector extends ColumnVector {
+    private int[] values = new int[0];
+    private final BitSet nulls;
+
+    public IntColumnVector() {
+        this.nulls = new BitSet();
+    }
+
+    public IntColumnVector(int[] values, BitSet nulls) {
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (rowId >= values.length) {
+            values = Arrays.copyOf(values, grow(values.length, rowId));
+        }
+        if (isEmpty(value)) {
+            nulls.set(rowId);
+            return;
+        }
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Неверное целочисленное значение: " + value);
+        }
+        values[rowId] = ((Number) value).intValue();
+        nulls.clear(rowId);
+    }
+
+    @Override
+    public Object get(int rowId) {
+        return nulls.get(rowId) ? EMPTY : values[rowId];
+    }
+
+    public int getInt(int rowId) {return values[rowId];}
+
+    @Override
+    public boolean isNull(int rowId) {return nulls.get(rowId);}
+
+    @Override
+    public void move(int from, int to) {
+        values[to] = values[from];
+        nulls.set(to, nulls.get(from));
+    }
+
+    @Override
+    public void truncate(int size) {
+        values = Arrays.copyOf(values, size);
+        nulls.clear(size, Math.max(size, nulls.length()));
+    }
+
+    @Override
+    public long estimateBytes() {
+        return values.length * 4L + nulls.size() / 8;
+    }
+
+    @Override
+    public IntPredicate equalsMatcher(Object value) {
+        if (isEmpty(value)) {
+            return nulls::get;
+        }
+        if (!(value instanceof Integer)) {
+            return rowId -> false;
+        }
+        int expected = (Integer) value;
+        return rowId -> values[rowId] == expected && !nulls.get(rowId);
+    }
+
+    /** Границы приводятся к включительным int, строка проверяется двумя сравнениями с values. */
+    @Override
+    public IntPredicate rangeMatcher(ValueRange range) {
+        if (range.low() != null && !(range.low() instanceof Integer)
+                || range.high() != null && !(range.high() instanceof Integer)) {
+            return super.rangeMatcher(range);
+        }
+        long low = range.low() == null ? Integer.MIN_VALUE : (Integer) range.low() + (range.lowInclusive() ? 0L : 1L);
+        long high = range.high() == null ? Integer.MAX_VALUE : (Integer) range.high() - (range.highInclusive() ? 0L : 1L);
+        if (low > high) {
+            return rowId -> false;
+        }
+        int min = (int) low;
+        int max = (int) high;
+        return rowId -> {
+            int value = values[rowId];
+            return value >= min && value <= max && !nulls.get(rowId);
+        };
+    }
+}
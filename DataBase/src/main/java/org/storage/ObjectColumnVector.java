@@ -0,0 +1,58 @@
+package org.storage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Колонка без специализированного представления: значения хранятся объектами как есть.
+ */
+public class ObjectColumnVector extends ColumnVector {
+    private Object[] values = new Object[0];
+
+    public ObjectColumnVector() {
+    }
+
+    public ObjectColumnVector(Object[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (rowId >= values.length) {
+            values = Arrays.copyOf(values, grow(values.length, rowId));
+        }
+        values[rowId] = isEmpty(value) ? null : value;
+    }
+
+    @Override
+    public Object get(int rowId) {
+        Object value = values[rowId];
+        return value == null ? EMPTY : value;
+    }
+
+    @Override
+    public boolean isNull(int rowId) {return values[rowId] == null;}
+
+    @Override
+    public void move(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    public void truncate(int size) {
+        values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public long estimateBytes() {
+        long bytes = values.length * 4L;
+        for (Object value : values) {
+            if (value instanceof List<?> list) {
+                bytes += 40 + list.size() * 24L;
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+}
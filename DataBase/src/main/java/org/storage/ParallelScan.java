@@ -0,0 +1,109 @@
+package org.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Параллельный полный просмотр: слоты хранилища делятся на части по MORSEL_SLOTS, условие
+ * проверяется в пуле потоков, найденные номера строк склеиваются в порядке слотов.
+ * Вызывающий поток держит блокировку таблицы на чтение на всё время просмотра, поэтому
+ * хранилище в это время не меняется и читается потоками пула без дополнительной синхронизации.
+ */
+public final class ParallelScan {
+    static final int MORSEL_SLOTS = 16 * 1024;
+
+    private static volatile int thresholdRows = 200_000;
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private ParallelScan() {
+    }
+
+    /** Таблицы от thresholdRows строк просматриваются параллельно в threads потоках. */
+    public static synchronized void configure(int thresholdRows, int threads) {
+        ParallelScan.thresholdRows = thresholdRows;
+        if (pool.getParallelism() != threads) {
+            ForkJoinPool previous = pool;
+            pool = new ForkJoinPool(threads);
+            if (previous != ForkJoinPool.commonPool()) {
+                previous.shutdown();
+            }
+        }
+    }
+
+    public static boolean isParallel(double rows) {
+        return rows >= thresholdRows && pool.getParallelism() > 1;
+    }
+
+    public static int morselCount(int slots) {
+        return (slots + MORSEL_SLOTS - 1) / MORSEL_SLOTS;
+    }
+
+    /** Часть работы над слотами [from, to). */
+    public interface MorselTask<T> {
+        T run(int from, int to);
+    }
+
+    /**
+     * Выполняет task над частями слотов по MORSEL_SLOTS (в пуле, если parallel) и возвращает
+     * результаты частей в порядке слотов.
+     */
+    public static <T> List<T> mapMorsels(int slots, boolean parallel, MorselTask<T> task) {
+        if (!parallel || slots <= MORSEL_SLOTS) {
+            return List.of(task.run(0, slots));
+        }
+
+        List<ForkJoinTask<T>> morsels = new ArrayList<>();
+        for (int from = 0; from < slots; from += MORSEL_SLOTS) {
+            int start = from;
+            int end = Math.min(slots, from + MORSEL_SLOTS);
+            morsels.add(pool.submit(() -> task.run(start, end)));
+        }
+
+        List<T> results = new ArrayList<>(morsels.size());
+        for (ForkJoinTask<T> morsel : morsels) {
+            results.add(morsel.join());
+        }
+        return results;
+    }
+
+    /** Живые строки вне зон skippedZones (null — все), для которых matcher истинен, в порядке слотов. */
+    public static int[] matches(TableStorage storage, IntPredicate matcher, BitSet skippedZones, boolean parallel) {
+        List<int[]> parts = mapMorsels(storage.slotCount(), parallel,
+                (from, to) -> scan(storage, matcher, skippedZones, from, to));
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] result = new int[total];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+
+    private static int[] scan(TableStorage storage, IntPredicate matcher, BitSet skippedZones, int from, int to) {
+        int[] result = new int[Math.min(to - from, 64)];
+        int count = 0;
+        for (int rowId = storage.nextRowId(from, skippedZones); rowId != -1 && rowId < to;
+             rowId = storage.nextRowId(rowId + 1, skippedZones)) {
+            if (matcher.test(rowId)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.min(to - from, count * 2));
+                }
+                result[count++] = rowId;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
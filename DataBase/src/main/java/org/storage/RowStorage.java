@@ -0,0 +1,126 @@
+package org.storage;
+
+import org.model.Column;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+public class RowStorage implements TableStorage {
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private int size;
+
+    @Override
+    public int add(Map<String, Object> row) {
+        rows.add(new HashMap<>(row));
+        size++;
+        return rows.size() - 1;
+    }
+
+    @Override
+    public void remove(int rowId) {
+        if (rows.set(rowId, null) != null) {
+            size--;
+        }
+    }
+
+    @Override
+    public int nextRowId(int from) {
+        for (int i = from; i < rows.size(); i++) {
+            if (rows.get(i) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public int slotCount() {return rows.size();}
+
+    @Override
+    public Object getValue(int rowId, String column) {
+        return rows.get(rowId).get(column);
+    }
+
+    @Override
+    public void setValue(int rowId, String column, Object value) {
+        rows.get(rowId).put(column, value);
+    }
+
+    @Override
+    public Map<String, Object> getRow(int rowId) {
+        return Collections.unmodifiableMap(rows.get(rowId));
+    }
+
+    @Override
+    public IntPredicate equalsMatcher(String column, Object value) {
+        Object key = ValueRange.equalityKey(value);
+        return rowId -> {
+            Map<String, Object> row = rows.get(rowId);
+            return row.containsKey(column) && Objects.equals(ValueRange.equalityKey(row.get(column)), key);
+        };
+    }
+
+    @Override
+    public IntPredicate rangeMatcher(String column, ValueRange range) {
+        return rowId -> range.contains(rows.get(rowId).get(column));
+    }
+
+    @Override
+    public IntPredicate valueMatcher(String column, Predicate<Object> test) {
+        return rowId -> {
+            Object value = rows.get(rowId).get(column);
+            return test.test(value == null ? "" : value);
+        };
+    }
+
+    @Override
+    public void addColumn(Column column) {
+        for (Map<String, Object> row : rows) {
+            if (row != null) {
+                row.put(column.getName(), null);
+            }
+        }
+    }
+
+    @Override
+    public void dropColumn(String column) {
+        for (Map<String, Object> row : rows) {
+            if (row != null) {
+                row.remove(column);
+            }
+        }
+    }
+
+    @Override
+    public long estimateBytes() {
+        long columns = 0;
+        for (Map<String, Object> row : rows) {
+            if (row != null) {
+                columns = row.size();
+                break;
+            }
+        }
+        return rows.size() * (64 + columns * 72L);
+    }
+
+    @Override
+    public int[] compact() {
+        int[] mapping = new int[rows.size()];
+        List<Map<String, Object>> live = new ArrayList<>(size);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            mapping[i] = row == null ? -1 : live.size();
+            if (row != null) {
+                live.add(row);
+            }
+        }
+        rows.clear();
+        rows.addAll(live);
+        return mapping;
+    }
+}
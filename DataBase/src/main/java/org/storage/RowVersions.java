@@ -0,0 +1,95 @@
+package org.storage;
+
+import org.transaction.Snapshot;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Версии строк для MVCC: для каждого слота — транзакция, создавшая строку, и транзакция,
+ * удалившая её (0 — строка общая для всех и не удалена). Слоты с ненулевой версией
+ * отмечены в pending, их разбирает очистка (Table.vacuum).
+ */
+public class RowVersions {
+    private long[] createdBy = new long[0];
+    private long[] deletedBy = new long[0];
+    private final BitSet pending = new BitSet();
+
+    public long getCreatedBy(int rowId) {
+        return rowId < createdBy.length ? createdBy[rowId] : 0;
+    }
+
+    public long getDeletedBy(int rowId) {
+        return rowId < deletedBy.length ? deletedBy[rowId] : 0;
+    }
+
+    public void setCreatedBy(int rowId, long txId) {
+        ensureCapacity(rowId);
+        createdBy[rowId] = txId;
+        deletedBy[rowId] = 0;
+        pending.set(rowId, txId != 0);
+    }
+
+    public void setDeletedBy(int rowId, long txId) {
+        ensureCapacity(rowId);
+        deletedBy[rowId] = txId;
+        pending.set(rowId, txId != 0 || createdBy[rowId] != 0);
+    }
+
+    /** Делает строку общей для всех: создавшая её транзакция видна любому снимку. */
+    public void freeze(int rowId) {
+        createdBy[rowId] = 0;
+        pending.set(rowId, deletedBy[rowId] != 0);
+    }
+
+    public void clear(int rowId) {
+        if (rowId < createdBy.length) {
+            createdBy[rowId] = 0;
+            deletedBy[rowId] = 0;
+        }
+        pending.clear(rowId);
+    }
+
+    public boolean isVisible(int rowId, Snapshot snapshot) {
+        if (snapshot == null || !pending.get(rowId)) {
+            return true;
+        }
+        return snapshot.isVisible(createdBy[rowId], deletedBy[rowId]);
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /** Следующий слот с ненулевой версией, начиная с from, или -1. */
+    public int nextPending(int from) {
+        return pending.nextSetBit(from);
+    }
+
+    public void compact(int[] mapping) {
+        long[] newCreated = new long[createdBy.length];
+        long[] newDeleted = new long[deletedBy.length];
+        pending.clear();
+
+        for (int rowId = 0; rowId < Math.min(mapping.length, createdBy.length); rowId++) {
+            int target = mapping[rowId];
+            if (target >= 0) {
+                newCreated[target] = createdBy[rowId];
+                newDeleted[target] = deletedBy[rowId];
+                if (newCreated[target] != 0 || newDeleted[target] != 0) {
+                    pending.set(target);
+                }
+            }
+        }
+        createdBy = newCreated;
+        deletedBy = newDeleted;
+    }
+
+    private void ensureCapacity(int rowId) {
+        if (rowId >= createdBy.length) {
+            int capacity = Math.max(rowId + 1, Math.max(16, createdBy.length * 2));
+            createdBy = Arrays.copyOf(createdBy, capacity);
+            deletedBy = Arrays.copyOf(deletedBy, capacity);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package org.storage;
+
+public enum StorageType {
+    ROW, COLUMNAR
+}
@@ -0,0 +1,157 @@
+package org.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Строки кодируются словарём: в строке таблицы лежит int-код, каждая различная строка
+ * хранится один раз. Код -1 означает пустое значение.
+ */
+public class StringColumnVector extends ColumnVector {
+    private static final int NULL_CODE = -1;
+
+    private int[] codes = new int[0];
+    private final List<String> dictionary;
+    private final Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+    public StringColumnVector() {
+        this.dictionary = new ArrayList<>();
+    }
+
+    public StringColumnVector(int[] codes, List<String> dictionary) {
+        this.codes = codes;
+        this.dictionary = new ArrayList<>(dictionary);
+        for (int code = 0; code < dictionary.size(); code++) {
+            dictionaryCodes.put(dictionary.get(code), code);
+        }
+    }
+
+    @Override
+    public void set(int rowId, Object value) {
+        if (rowId >= codes.length) {
+            int oldLength = codes.length;
+            codes = Arrays.copyOf(codes, grow(oldLength, rowId));
+            Arrays.fill(codes, oldLength, codes.length, NULL_CODE);
+        }
+        if (isEmpty(value)) {
+            codes[rowId] = NULL_CODE;
+            return;
+        }
+        if (!(value instanceof String string)) {
+            throw new IllegalArgumentException("Неверное строковое значение: " + value);
+        }
+        codes[rowId] = encode(string);
+    }
+
+    private int encode(String value) {
+        Integer code = dictionaryCodes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryCodes.put(value, code);
+        }
+        return code;
+    }
+
+    @Override
+    public Object get(int rowId) {
+        int code = codes[rowId];
+        return code == NULL_CODE ? EMPTY : dictionary.get(code);
+    }
+
+    public int getCode(int rowId) {return codes[rowId];}
+
+    public int dictionarySize() {return dictionary.size();}
+
+    public String decode(int code) {return dictionary.get(code);}
+
+    @Override
+    public boolean isNull(int rowId) {return codes[rowId] == NULL_CODE;}
+
+    @Override
+    public void move(int from, int to) {
+        codes[to] = codes[from];
+    }
+
+    /** Вызывается при уплотнении: словарь пересобирается по оставшимся кодам, строки удалённых значений из него уходят. */
+    @Override
+    public void truncate(int size) {
+        codes = Arrays.copyOf(codes, size);
+
+        int[] recode = new int[dictionary.size()];
+        for (int code : codes) {
+            if (code != NULL_CODE) {
+                recode[code] = 1;
+            }
+        }
+        int used = 0;
+        for (int code = 0; code < recode.length; code++) {
+            recode[code] = recode[code] == 0 ? NULL_CODE : used++;
+        }
+        if (used == dictionary.size()) {
+            return;
+        }
+
+        List<String> live = new ArrayList<>(used);
+        dictionaryCodes.clear();
+        for (int code = 0; code < recode.length; code++) {
+            if (recode[code] != NULL_CODE) {
+                dictionaryCodes.put(dictionary.get(code), live.size());
+                live.add(dictionary.get(code));
+            }
+        }
+        dictionary.clear();
+        dictionary.addAll(live);
+        for (int rowId = 0; rowId < size; rowId++) {
+            if (codes[rowId] != NULL_CODE) {
+                codes[rowId] = recode[codes[rowId]];
+            }
+        }
+    }
+
+    @Override
+    public long estimateBytes() {
+        long bytes = codes.length * 4L;
+        for (String value : dictionary) {
+            bytes += 40 + value.length() * 2L + 48;
+        }
+        return bytes;
+    }
+
+    @Override
+    public IntPredicate equalsMatcher(Object value) {
+        if (isEmpty(value)) {
+            return rowId -> codes[rowId] == NULL_CODE;
+        }
+        Integer code = value instanceof String ? dictionaryCodes.get(value) : null;
+        if (code == null) {
+            return rowId -> false;
+        }
+        int expected = code;
+        return rowId -> codes[rowId] == expected;
+    }
+
+    @Override
+    public IntPredicate rangeMatcher(ValueRange range) {
+        return valueMatcher(range::contains);
+    }
+
+    /** Проверка выполняется один раз для каждой строки словаря, строка таблицы проверяется по коду. */
+    @Override
+    public IntPredicate valueMatcher(Predicate<Object> test) {
+        boolean[] matches = new boolean[dictionary.size()];
+        for (int code = 0; code < matches.length; code++) {
+            matches[code] = test.test(dictionary.get(code));
+        }
+        boolean matchesEmpty = test.test(EMPTY);
+        return rowId -> {
+            int code = codes[rowId];
+            return code == NULL_CODE ? matchesEmpty : matches[code];
+        };
+    }
+}
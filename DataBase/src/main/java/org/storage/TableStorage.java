@@ -0,0 +1,80 @@
+package org.storage;
+
+import org.model.Column;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище строк таблицы. Строки адресуются номером слота (rowId), который не меняется
+ * при удалении других строк — до вызова {@link #compact()}.
+ */
+public interface TableStorage {
+
+    int add(Map<String, Object> row);
+
+    void remove(int rowId);
+
+    /** Первый живой rowId, начиная с from, или -1. */
+    int nextRowId(int from);
+
+    /** Первый живой rowId, начиная с from, вне зон skippedZones (null — без пропуска зон). */
+    default int nextRowId(int from, BitSet skippedZones) {
+        return nextRowId(from);
+    }
+
+    int size();
+
+    int slotCount();
+
+    Object getValue(int rowId, String column);
+
+    /** Заменяет значение столбца у живой строки (UPDATE на месте). */
+    void setValue(int rowId, String column, Object value);
+
+    Map<String, Object> getRow(int rowId);
+
+    /** Условие column = value, привязанное к хранилищу один раз на запрос. */
+    IntPredicate equalsMatcher(String column, Object value);
+
+    /** Условие «значение column в диапазоне»; пустые значения не подходят. */
+    IntPredicate rangeMatcher(String column, ValueRange range);
+
+    /** Условие test(значение column); пустое значение передаётся как "". */
+    IntPredicate valueMatcher(String column, Predicate<Object> test);
+
+    void addColumn(Column column);
+
+    void dropColumn(String column);
+
+    /** Приблизительный объём данных в памяти, байт. */
+    long estimateBytes();
+
+    /**
+     * Зоны слотов (по {@link ZoneMap#ZONE_ROWS}), изменённые после {@link #markClean}; null — изменения
+     * не отслеживаются и файл таблицы записывается целиком.
+     */
+    default BitSet dirtyZones() {
+        return null;
+    }
+
+    /** Содержимое совпадает с файлом таблицы по слотам: дальше отслеживаются изменения относительно него. */
+    default void markClean() {
+    }
+
+    /** Файл таблицы больше не совпадает с хранилищем по слотам, следующая запись — целиком. */
+    default void markAllDirty() {
+    }
+
+    /** Уплотняет слоты, возвращает старый rowId -> новый rowId (-1 для удалённых). */
+    int[] compact();
+
+    static TableStorage create(StorageType type) {
+        return switch (type) {
+            case ROW -> new RowStorage();
+            case COLUMNAR -> new ColumnarStorage();
+        };
+    }
+}
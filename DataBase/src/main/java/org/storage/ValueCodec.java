@@ -0,0 +1,107 @@
+package org.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое кодирование значений теми же тегами, что и в двоичном файле таблицы.
+ * Используется сетевым протоколом и файлами внешней сортировки.
+ */
+public final class ValueCodec {
+    private static final byte EMPTY_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte BOOLEAN_VALUE = 2;
+    private static final byte DATE_VALUE = 3;
+    private static final byte STRING_VALUE = 4;
+    private static final byte LIST_VALUE = 5;
+    /** Результаты агрегатов: SUM и COUNT — long, AVG — double. */
+    private static final byte LONG_VALUE = 6;
+    private static final byte DOUBLE_VALUE = 7;
+
+    private ValueCodec() {
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeValues(DataOutputStream out, List<?> values) throws IOException {
+        out.writeInt(values.size());
+        for (Object value : values) {
+            writeValue(out, value);
+        }
+    }
+
+    public static List<Object> readValues(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Object> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readValue(in));
+        }
+        return values;
+    }
+
+    public static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null || "".equals(value)) {
+            out.writeByte(EMPTY_VALUE);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INT_VALUE);
+            out.writeInt(number);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong(number);
+        } else if (value instanceof Double number) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble(number);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean(bool);
+        } else if (value instanceof ZonedDateTime date) {
+            out.writeByte(DATE_VALUE);
+            out.writeLong(date.toEpochSecond());
+            out.writeInt(date.getNano());
+            out.writeInt(date.getOffset().getTotalSeconds());
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST_VALUE);
+            writeValues(out, list);
+        } else {
+            out.writeByte(STRING_VALUE);
+            writeString(out, value.toString());
+        }
+    }
+
+    public static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case EMPTY_VALUE -> "";
+            case INT_VALUE -> in.readInt();
+            case LONG_VALUE -> in.readLong();
+            case DOUBLE_VALUE -> in.readDouble();
+            case BOOLEAN_VALUE -> in.readBoolean();
+            case DATE_VALUE -> {
+                long seconds = in.readLong();
+                int nano = in.readInt();
+                int offset = in.readInt();
+                yield ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nano), ZoneOffset.ofTotalSeconds(offset));
+            }
+            case STRING_VALUE -> readString(in);
+            case LIST_VALUE -> readValues(in);
+            default -> throw new IOException("Неизвестный тип значения: " + tag);
+        };
+    }
+}
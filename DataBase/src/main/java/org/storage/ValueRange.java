@@ -0,0 +1,81 @@
+package org.storage;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Диапазон значений столбца для условий <, <=, >, >= и BETWEEN. null вместо границы — диапазон
+ * с этой стороны не ограничен. Пустые значения не входят ни в один диапазон, даты сравниваются
+ * по моменту времени независимо от смещения зоны.
+ */
+public record ValueRange(Object low, boolean lowInclusive, Object high, boolean highInclusive) {
+
+    public boolean contains(Object value) {
+        if (value == null || "".equals(value)) {
+            return false;
+        }
+        if (low != null) {
+            int result = compare(value, low);
+            if (result < 0 || result == 0 && !lowInclusive) {
+                return false;
+            }
+        }
+        if (high != null) {
+            int result = compare(value, high);
+            return result < 0 || result == 0 && highInclusive;
+        }
+        return true;
+    }
+
+    /** Пересечение двух диапазонов одного столбца. */
+    public ValueRange intersect(ValueRange other) {
+        Object newLow = low;
+        boolean newLowInclusive = lowInclusive;
+        if (other.low != null && (low == null || compare(other.low, low) > 0
+                || compare(other.low, low) == 0 && !other.lowInclusive)) {
+            newLow = other.low;
+            newLowInclusive = other.lowInclusive;
+        }
+
+        Object newHigh = high;
+        boolean newHighInclusive = highInclusive;
+        if (other.high != null && (high == null || compare(other.high, high) < 0
+                || compare(other.high, high) == 0 && !other.highInclusive)) {
+            newHigh = other.high;
+            newHighInclusive = other.highInclusive;
+        }
+        return new ValueRange(newLow, newLowInclusive, newHigh, newHighInclusive);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compare(Object v1, Object v2) {
+        if (v1 instanceof ZonedDateTime d1 && v2 instanceof ZonedDateTime d2) {
+            return d1.toInstant().compareTo(d2.toInstant());
+        }
+        if (v1 instanceof Comparable c1 && v1.getClass() == v2.getClass()) {
+            return c1.compareTo(v2);
+        }
+        throw new IllegalArgumentException("Несравнимые значения: " + v1 + " и " + v2);
+    }
+
+    /** Ключ для проверки равенства: даты, как и в compare, равны при совпадении момента времени. */
+    public static Object equalityKey(Object value) {
+        return value instanceof ZonedDateTime date ? date.toInstant() : value;
+    }
+
+    public String describe(String column) {
+        if (low != null && high != null && lowInclusive && highInclusive) {
+            return column + " BETWEEN " + low + " AND " + high;
+        }
+        StringBuilder text = new StringBuilder();
+        if (low != null) {
+            text.append(column).append(lowInclusive ? " >= " : " > ").append(low);
+        }
+        if (high != null) {
+            if (!text.isEmpty()) {
+                text.append(" AND ");
+            }
+            text.append(column).append(highInclusive ? " <= " : " < ").append(high);
+        }
+        return text.toString();
+    }
+}
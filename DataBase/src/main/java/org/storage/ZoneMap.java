@@ -0,0 +1,433 @@
+package org.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Статистика зон (zone map): слоты хранилища делятся на зоны по ZONE_ROWS, для каждого столбца в зоне
+ * хранится число пустых и непустых значений, для int, date и string — ещё минимум и максимум. Счётчики
+ * точные, а границы при удалении и замене значений не сужаются — остаются верной оценкой сверху до
+ * пересчёта при уплотнении или загрузке. Полный просмотр пропускает зоны, где условие заведомо ложно.
+ */
+public final class ZoneMap {
+    public static final int ZONE_SHIFT = 12;
+    public static final int ZONE_ROWS = 1 << ZONE_SHIFT;
+
+    private static final byte COUNTS_ZONES = 0;
+    private static final byte INT_ZONES = 1;
+    private static final byte DATE_ZONES = 2;
+    private static final byte STRING_ZONES = 3;
+
+    private final Map<String, ColumnZones> columns = new HashMap<>();
+    private int zoneCount;
+
+    /** Статистика по строкам rowIds, записанным подряд (i-я строка попадает в зону i / ZONE_ROWS). */
+    public static ZoneMap forRows(Map<String, ColumnVector> vectors, int[] rowIds) {
+        ZoneMap zones = new ZoneMap();
+        vectors.forEach(zones::addColumn);
+        for (int i = 0; i < rowIds.length; i++) {
+            zones.add(i >> ZONE_SHIFT, rowIds[i]);
+        }
+        return zones;
+    }
+
+    /** Пустая статистика zoneCount зон по колонкам vectors; зоны заполняются {@link #readZone}. */
+    public static ZoneMap empty(Map<String, ColumnVector> vectors, int zoneCount) {
+        ZoneMap zones = new ZoneMap();
+        zones.zoneCount = zoneCount;
+        vectors.forEach(zones::addColumn);
+        return zones;
+    }
+
+    public int zoneCount() {return zoneCount;}
+
+    void addColumn(String name, ColumnVector vector) {
+        ColumnZones zones = switch (vector) {
+            case IntColumnVector ints -> new IntZones(ints);
+            case DateColumnVector dates -> new DateZones(dates);
+            case StringColumnVector strings -> new StringZones(strings);
+            default -> new ColumnZones(vector);
+        };
+        zones.grow(zoneCount);
+        columns.put(name, zones);
+    }
+
+    void dropColumn(String name) {
+        columns.remove(name);
+    }
+
+    /** Учитывает значения строки rowId во всех столбцах. */
+    void add(int rowId) {
+        add(rowId >> ZONE_SHIFT, rowId);
+    }
+
+    void add(int rowId, String column) {
+        int zone = rowId >> ZONE_SHIFT;
+        ensureZones(zone);
+        columns.get(column).add(zone, rowId);
+    }
+
+    void remove(int rowId) {
+        for (ColumnZones zones : columns.values()) {
+            zones.remove(rowId >> ZONE_SHIFT, rowId);
+        }
+    }
+
+    void remove(int rowId, String column) {
+        columns.get(column).remove(rowId >> ZONE_SHIFT, rowId);
+    }
+
+    private void add(int zone, int rowId) {
+        ensureZones(zone);
+        for (ColumnZones zones : columns.values()) {
+            zones.add(zone, rowId);
+        }
+    }
+
+    private void ensureZones(int zone) {
+        if (zone >= zoneCount) {
+            zoneCount = zone + 1;
+            for (ColumnZones zones : columns.values()) {
+                zones.grow(zoneCount);
+            }
+        }
+    }
+
+    /** Зоны, в которых может быть значение column из range. */
+    public IntPredicate rangeZones(String column, ValueRange range) {
+        ColumnZones zones = columns.get(column);
+        return zones == null ? zone -> true : zone -> zones.mayContain(zone, range);
+    }
+
+    /** Зоны, в которых есть пустые значения column. */
+    public IntPredicate emptyZones(String column) {
+        ColumnZones zones = columns.get(column);
+        return zones == null ? zone -> true : zone -> zones.empty[zone] > 0;
+    }
+
+    /** Зоны, в которых есть непустые значения column. */
+    public IntPredicate valueZones(String column) {
+        ColumnZones zones = columns.get(column);
+        return zones == null ? zone -> true : zone -> zones.values[zone] > 0;
+    }
+
+    /** Статистика столбца для файла таблицы: [вид][число зон][пустые][непустые][границы]. */
+    public void write(DataOutputStream out, String column) throws IOException {
+        ColumnZones zones = columns.get(column);
+        out.writeByte(zones.kind());
+        out.writeInt(zoneCount);
+        for (int zone = 0; zone < zoneCount; zone++) {
+            out.writeInt(zones.empty[zone]);
+        }
+        for (int zone = 0; zone < zoneCount; zone++) {
+            out.writeInt(zones.values[zone]);
+        }
+        for (int zone = 0; zone < zoneCount; zone++) {
+            zones.writeBounds(out, zone);
+        }
+    }
+
+    /** Статистика одной зоны столбца — для сегмента страничного файла таблицы. */
+    public void writeZone(DataOutputStream out, String column, int zone) throws IOException {
+        ColumnZones zones = columns.get(column);
+        out.writeByte(zones.kind());
+        out.writeInt(zones.empty[zone]);
+        out.writeInt(zones.values[zone]);
+        zones.writeBounds(out, zone);
+    }
+
+    /** Читает статистику, записанную {@link #writeZone}; false — записанное не подходит к столбцу. */
+    public boolean readZone(ByteBuffer buffer, String column, int zone) {
+        ColumnZones zones = columns.get(column);
+        if (zones == null || zone >= zoneCount || buffer.get() != zones.kind()) {
+            return false;
+        }
+        zones.empty[zone] = buffer.getInt();
+        zones.values[zone] = buffer.getInt();
+        zones.readBounds(buffer, zone);
+        return true;
+    }
+
+    /**
+     * Статистика, записанная {@link #write} для колонок vectors из rowCount строк; null, если записанное
+     * не подходит к колонкам (тогда статистика пересчитывается по данным).
+     */
+    public static ZoneMap read(Map<String, ByteBuffer> blocks, Map<String, ColumnVector> vectors, int rowCount) {
+        ZoneMap zones = new ZoneMap();
+        zones.zoneCount = (rowCount + ZONE_ROWS - 1) >> ZONE_SHIFT;
+        for (Map.Entry<String, ColumnVector> entry : vectors.entrySet()) {
+            ByteBuffer block = blocks.get(entry.getKey());
+            if (block == null) {
+                return null;
+            }
+            zones.addColumn(entry.getKey(), entry.getValue());
+            ColumnZones column = zones.columns.get(entry.getKey());
+            if (block.get() != column.kind() || block.getInt() != zones.zoneCount) {
+                return null;
+            }
+            block.asIntBuffer().get(column.empty, 0, zones.zoneCount);
+            block.position(block.position() + zones.zoneCount * Integer.BYTES);
+            block.asIntBuffer().get(column.values, 0, zones.zoneCount);
+            block.position(block.position() + zones.zoneCount * Integer.BYTES);
+            for (int zone = 0; zone < zones.zoneCount; zone++) {
+                column.readBounds(block, zone);
+            }
+        }
+        return zones;
+    }
+
+    /** Счётчики пустых и непустых значений; для столбцов без порядка значений границ нет. */
+    private static class ColumnZones {
+        final ColumnVector vector;
+        int[] empty = new int[0];
+        int[] values = new int[0];
+
+        ColumnZones(ColumnVector vector) {
+            this.vector = vector;
+        }
+
+        byte kind() {return COUNTS_ZONES;}
+
+        void grow(int zones) {
+            if (zones <= empty.length) {
+                return;
+            }
+            empty = Arrays.copyOf(empty, Math.max(zones, empty.length + (empty.length >> 1)));
+            values = Arrays.copyOf(values, empty.length);
+            growBounds(empty.length);
+        }
+
+        void growBounds(int capacity) {
+        }
+
+        void add(int zone, int rowId) {
+            if (vector.isNull(rowId)) {
+                empty[zone]++;
+            } else if (values[zone]++ == 0) {
+                reset(zone, rowId);
+            } else {
+                widen(zone, rowId);
+            }
+        }
+
+        void remove(int zone, int rowId) {
+            if (vector.isNull(rowId)) {
+                empty[zone]--;
+            } else {
+                values[zone]--;
+            }
+        }
+
+        void reset(int zone, int rowId) {
+        }
+
+        void widen(int zone, int rowId) {
+        }
+
+        boolean mayContain(int zone, ValueRange range) {
+            return values[zone] > 0;
+        }
+
+        void writeBounds(DataOutputStream out, int zone) throws IOException {
+        }
+
+        void readBounds(ByteBuffer buffer, int zone) {
+        }
+    }
+
+    private static final class IntZones extends ColumnZones {
+        private final IntColumnVector ints;
+        private int[] min = new int[0];
+        private int[] max = new int[0];
+
+        IntZones(IntColumnVector ints) {
+            super(ints);
+            this.ints = ints;
+        }
+
+        @Override
+        byte kind() {return INT_ZONES;}
+
+        @Override
+        void growBounds(int capacity) {
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+
+        @Override
+        void reset(int zone, int rowId) {
+            min[zone] = max[zone] = ints.getInt(rowId);
+        }
+
+        @Override
+        void widen(int zone, int rowId) {
+            int value = ints.getInt(rowId);
+            min[zone] = Math.min(min[zone], value);
+            max[zone] = Math.max(max[zone], value);
+        }
+
+        @Override
+        boolean mayContain(int zone, ValueRange range) {
+            if (values[zone] == 0) {
+                return false;
+            }
+            if (range.low() instanceof Integer low && (max[zone] < low || max[zone] == low && !range.lowInclusive())) {
+                return false;
+            }
+            return !(range.high() instanceof Integer high
+                    && (min[zone] > high || min[zone] == high && !range.highInclusive()));
+        }
+
+        @Override
+        void writeBounds(DataOutputStream out, int zone) throws IOException {
+            out.writeInt(min[zone]);
+            out.writeInt(max[zone]);
+        }
+
+        @Override
+        void readBounds(ByteBuffer buffer, int zone) {
+            min[zone] = buffer.getInt();
+            max[zone] = buffer.getInt();
+        }
+    }
+
+    /** Границы — epoch-секунды без наносекунд: зона покрывает [min, max + 1) секунд. */
+    private static final class DateZones extends ColumnZones {
+        private final DateColumnVector dates;
+        private long[] min = new long[0];
+        private long[] max = new long[0];
+
+        DateZones(DateColumnVector dates) {
+            super(dates);
+            this.dates = dates;
+        }
+
+        @Override
+        byte kind() {return DATE_ZONES;}
+
+        @Override
+        void growBounds(int capacity) {
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+
+        @Override
+        void reset(int zone, int rowId) {
+            min[zone] = max[zone] = dates.getEpochSecond(rowId);
+        }
+
+        @Override
+        void widen(int zone, int rowId) {
+            long value = dates.getEpochSecond(rowId);
+            min[zone] = Math.min(min[zone], value);
+            max[zone] = Math.max(max[zone], value);
+        }
+
+        @Override
+        boolean mayContain(int zone, ValueRange range) {
+            if (values[zone] == 0) {
+                return false;
+            }
+            if (range.low() instanceof ZonedDateTime low && max[zone] < low.toEpochSecond()) {
+                return false;
+            }
+            return !(range.high() instanceof ZonedDateTime high && min[zone] > high.toEpochSecond());
+        }
+
+        @Override
+        void writeBounds(DataOutputStream out, int zone) throws IOException {
+            out.writeLong(min[zone]);
+            out.writeLong(max[zone]);
+        }
+
+        @Override
+        void readBounds(ByteBuffer buffer, int zone) {
+            min[zone] = buffer.getLong();
+            max[zone] = buffer.getLong();
+        }
+    }
+
+    private static final class StringZones extends ColumnZones {
+        private final StringColumnVector strings;
+        private String[] min = new String[0];
+        private String[] max = new String[0];
+
+        StringZones(StringColumnVector strings) {
+            super(strings);
+            this.strings = strings;
+        }
+
+        @Override
+        byte kind() {return STRING_ZONES;}
+
+        @Override
+        void growBounds(int capacity) {
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+
+        @Override
+        void reset(int zone, int rowId) {
+            min[zone] = max[zone] = strings.decode(strings.getCode(rowId));
+        }
+
+        @Override
+        void widen(int zone, int rowId) {
+            String value = strings.decode(strings.getCode(rowId));
+            if (value.compareTo(min[zone]) < 0) {
+                min[zone] = value;
+            } else if (value.compareTo(max[zone]) > 0) {
+                max[zone] = value;
+            }
+        }
+
+        @Override
+        boolean mayContain(int zone, ValueRange range) {
+            if (values[zone] == 0) {
+                return false;
+            }
+            if (range.low() instanceof String low) {
+                int result = max[zone].compareTo(low);
+                if (result < 0 || result == 0 && !range.lowInclusive()) {
+                    return false;
+                }
+            }
+            if (range.high() instanceof String high) {
+                int result = min[zone].compareTo(high);
+                return result < 0 || result == 0 && range.highInclusive();
+            }
+            return true;
+        }
+
+        @Override
+        void writeBounds(DataOutputStream out, int zone) throws IOException {
+            writeString(out, values[zone] > 0 ? min[zone] : "");
+            writeString(out, values[zone] > 0 ? max[zone] : "");
+        }
+
+        @Override
+        void readBounds(ByteBuffer buffer, int zone) {
+            min[zone] = readString(buffer);
+            max[zone] = readString(buffer);
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.transaction;
+
+import java.util.Arrays;
+
+/**
+ * Снимок состояния базы на момент начала транзакции. Транзакция видна снимку, если она
+ * началась раньше (id < xmax), не была активна в этот момент, либо это сама транзакция снимка.
+ */
+public class Snapshot {
+    private final long txId;
+    private final long xmax;
+    private final long[] active;
+
+    Snapshot(long txId, long xmax, long[] active) {
+        this.txId = txId;
+        this.xmax = xmax;
+        this.active = active;
+    }
+
+    public long getTxId() {return txId;}
+
+    /** Наименьший id транзакции, которая может быть не видна снимку. */
+    public long getXmin() {
+        return active.length > 0 ? active[0] : xmax;
+    }
+
+    public boolean sees(long tx) {
+        if (tx == 0 || tx == txId) {
+            return true;
+        }
+        return tx < xmax && Arrays.binarySearch(active, tx) < 0;
+    }
+
+    public boolean isVisible(long createdBy, long deletedBy) {
+        return sees(createdBy) && (deletedBy == 0 || !sees(deletedBy));
+    }
+}
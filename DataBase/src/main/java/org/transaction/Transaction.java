@@ -0,0 +1,101 @@
+package org.transaction;
+
+import com.google.gson.JsonObject;
+import org.model.Table;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Транзакция: снимок для чтения, журнал отката и записи для журнала изменений,
+ * которые попадут в WAL одной записью при фиксации.
+ */
+public class Transaction {
+    private final long id;
+    private final Snapshot snapshot;
+    private final List<Undo> undo = new ArrayList<>();
+    private final List<JsonObject> changes = new ArrayList<>();
+    private final Set<Table> tables = new LinkedHashSet<>();
+
+    Transaction(long id, Snapshot snapshot) {
+        this.id = id;
+        this.snapshot = snapshot;
+    }
+
+    public long getId() {return id;}
+
+    public Snapshot getSnapshot() {return snapshot;}
+
+    public List<JsonObject> getChanges() {return changes;}
+
+    /** Таблицы, изменённые транзакцией. */
+    public Set<Table> getTables() {return tables;}
+
+    public void recordInsert(Table table, int rowId) {
+        undo.add(new Undo(table, new int[]{rowId}, Undo.Kind.INSERT, null));
+        tables.add(table);
+    }
+
+    /** Пачка добавленных строк (COPY) — одна запись отката вместо записи на строку. */
+    public void recordInserts(Table table, int[] rowIds) {
+        undo.add(new Undo(table, rowIds, Undo.Kind.INSERT, null));
+        tables.add(table);
+    }
+
+    public void recordDelete(Table table, int rowId) {
+        undo.add(new Undo(table, new int[]{rowId}, Undo.Kind.DELETE, null));
+        tables.add(table);
+    }
+
+    /** Строки, изменённые UPDATE на месте; oldValues[i] — прежние значения изменённых столбцов строки rowIds[i]. */
+    public void recordUpdate(Table table, int[] rowIds, List<Map<String, Object>> oldValues) {
+        undo.add(new Undo(table, rowIds, Undo.Kind.UPDATE, oldValues));
+        tables.add(table);
+    }
+
+    public void log(Table table, JsonObject change) {
+        changes.add(change);
+        tables.add(table);
+    }
+
+    public Savepoint savepoint() {
+        return new Savepoint(undo.size(), changes.size());
+    }
+
+    public void rollback() {
+        rollbackTo(new Savepoint(0, 0));
+    }
+
+    /** Отменяет изменения, сделанные после savepoint, в обратном порядке. */
+    public void rollbackTo(Savepoint savepoint) {
+        for (int i = undo.size() - 1; i >= savepoint.undo(); i--) {
+            Undo entry = undo.remove(i);
+            Lock lock = entry.table().getLock().writeLock();
+            lock.lock();
+            try {
+                for (int j = entry.rowIds().length - 1; j >= 0; j--) {
+                    int rowId = entry.rowIds()[j];
+                    switch (entry.kind()) {
+                        case INSERT -> entry.table().undoInsert(rowId);
+                        case DELETE -> entry.table().undoDelete(rowId);
+                        case UPDATE -> entry.table().undoUpdate(rowId, entry.oldValues().get(j));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        changes.subList(savepoint.changes(), changes.size()).clear();
+    }
+
+    public record Savepoint(int undo, int changes) {
+    }
+
+    private record Undo(Table table, int[] rowIds, Kind kind, List<Map<String, Object>> oldValues) {
+        enum Kind {INSERT, DELETE, UPDATE}
+    }
+}
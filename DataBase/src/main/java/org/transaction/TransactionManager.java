@@ -0,0 +1,75 @@
+package org.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/** Выдаёт номера транзакций и снимки, знает активные транзакции. */
+public class TransactionManager {
+    private final TreeMap<Long, Transaction> active = new TreeMap<>();
+    private final List<Snapshot> readers = new ArrayList<>();
+    private long nextId = 1;
+
+    public synchronized Transaction begin() {
+        long id = nextId++;
+        Transaction transaction = new Transaction(id, new Snapshot(id, id, activeIds()));
+        active.put(id, transaction);
+        return transaction;
+    }
+
+    /** Снимок для чтения вне транзакции: видны все зафиксированные изменения. */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(0, nextId, activeIds());
+    }
+
+    /** Снимок для долгого чтения вне транзакции (курсора); пока он не освобождён, очистка его не затронет. */
+    public synchronized Snapshot openSnapshot() {
+        Snapshot snapshot = snapshot();
+        readers.add(snapshot);
+        return snapshot;
+    }
+
+    public synchronized void release(Snapshot snapshot) {
+        readers.remove(snapshot);
+    }
+
+    public synchronized void finish(Transaction transaction) {
+        active.remove(transaction.getId());
+    }
+
+    /**
+     * Кроме transaction нет активных транзакций и открытых снимков: прежние значения строк, которые она
+     * меняет, больше никто не прочитает, и UPDATE может менять их на месте.
+     */
+    public synchronized boolean isSole(Transaction transaction) {
+        return readers.isEmpty() && active.size() == 1 && active.containsKey(transaction.getId());
+    }
+
+    public synchronized int activeCount() {
+        return active.size();
+    }
+
+    /**
+     * Граница очистки: транзакции с меньшим id завершены и видны всем активным снимкам,
+     * поэтому удалённые ими строки можно убрать физически.
+     */
+    public synchronized long horizon() {
+        long horizon = nextId;
+        for (Transaction transaction : active.values()) {
+            horizon = Math.min(horizon, transaction.getSnapshot().getXmin());
+        }
+        for (Snapshot snapshot : readers) {
+            horizon = Math.min(horizon, snapshot.getXmin());
+        }
+        return horizon;
+    }
+
+    private long[] activeIds() {
+        long[] ids = new long[active.size()];
+        int i = 0;
+        for (long id : active.keySet()) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+}